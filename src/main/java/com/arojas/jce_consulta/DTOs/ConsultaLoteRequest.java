@@ -0,0 +1,48 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.DTOs;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+/**
+ * DTO para peticiones de consulta en lote en la JCE.
+ *
+ * Agrupa varias {@link ConsultaRequest} en una sola llamada HTTP. El tamaño
+ * máximo del lote se valida contra la configuración antes de consumir
+ * tokens de rate limit; aquí solo se fija el tope absoluto que admite
+ * {@code jce.consulta.batch.max-items}.
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+@Schema(description = "Lote de consultas a realizar en la JCE", example = """
+    {
+        "consultas": [
+            { "cedula": "00112345671", "formato": "basico" },
+            { "cedula": "00298765432", "incluirFoto": false }
+        ]
+    }
+    """)
+public record ConsultaLoteRequest(
+
+    @Schema(description = "Consultas individuales del lote; el orden se conserva en la respuesta", requiredMode = Schema.RequiredMode.REQUIRED) @NotNull(message = "La lista de consultas es obligatoria") @NotEmpty(message = "El lote debe contener al menos una consulta") @Size(max = 1000, message = "El lote no debe exceder 1000 consultas") @JsonProperty("consultas") List<@Valid @NotNull ConsultaRequest> consultas) {
+
+  /**
+   * Obtiene el número de consultas del lote.
+   *
+   * @return cantidad de consultas (0 si la lista es null)
+   */
+  public int getTamano() {
+    return consultas == null ? 0 : consultas.size();
+  }
+}
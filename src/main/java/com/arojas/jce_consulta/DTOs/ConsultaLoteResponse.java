@@ -0,0 +1,38 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.DTOs;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO para respuestas de consulta en lote en la JCE.
+ *
+ * Contiene un resultado por cada consulta de la petición, en el mismo
+ * orden, junto con contadores de cómo se resolvió el lote.
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Resultados de una consulta en lote en la JCE")
+public record ConsultaLoteResponse(
+
+    @Schema(description = "Número de consultas recibidas", example = "3") @JsonProperty("total") Integer total,
+
+    @Schema(description = "Consultas distintas tras eliminar duplicados", example = "2") @JsonProperty("unicas") Integer unicas,
+
+    @Schema(description = "Consultas distintas servidas desde caché", example = "1") @JsonProperty("desdeCache") Integer desdeCache,
+
+    @Schema(description = "Consultas con resultado exitoso", example = "3") @JsonProperty("exitosas") Integer exitosas,
+
+    @Schema(description = "Tiempo total de procesamiento del lote en milisegundos", example = "1830") @JsonProperty("tiempoRespuesta") Long tiempoRespuesta,
+
+    @Schema(description = "Resultado de cada consulta en el orden de la petición") @JsonProperty("resultados") List<ConsultaResponse> resultados) {
+}
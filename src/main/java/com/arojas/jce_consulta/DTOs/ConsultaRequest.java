@@ -4,6 +4,8 @@
  */
 package com.arojas.jce_consulta.DTOs;
 
+import com.arojas.jce_consulta.model.Cedula;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -76,6 +78,16 @@ public record ConsultaRequest(
     this(cedula, incluirFoto, "completo");
   }
 
+  /**
+   * Analiza la cédula de la petición.
+   * 
+   * @return la cédula analizada, o null si no es válida
+   */
+  @JsonIgnore
+  public Cedula getCedulaParseada() {
+    return Cedula.de(cedula);
+  }
+
   /**
    * Obtiene la cédula limpia sin guiones.
    * 
@@ -85,7 +97,8 @@ public record ConsultaRequest(
     if (cedula == null) {
       return null;
     }
-    return cedula.replaceAll("[^\\d]", "");
+    long valor = Cedula.valorDe(cedula);
+    return valor == Cedula.SIN_VALOR ? Cedula.soloDigitos(cedula) : Cedula.aTextoLimpio(valor);
   }
 
   /**
@@ -94,15 +107,11 @@ public record ConsultaRequest(
    * @return cédula en formato XXX-XXXXXXX-X
    */
   public String getCedulaFormateada() {
-    String cedulaLimpia = getCedulaLimpia();
-    if (cedulaLimpia == null || cedulaLimpia.length() != 11) {
-      return cedulaLimpia;
+    if (cedula == null) {
+      return null;
     }
-
-    return String.format("%s-%s-%s",
-        cedulaLimpia.substring(0, 3),
-        cedulaLimpia.substring(3, 10),
-        cedulaLimpia.substring(10, 11));
+    long valor = Cedula.valorDe(cedula);
+    return valor == Cedula.SIN_VALOR ? Cedula.soloDigitos(cedula) : Cedula.aTextoFormateado(valor);
   }
 
   /**
@@ -145,15 +154,12 @@ public record ConsultaRequest(
   }
 
   /**
-   * Valida si la cédula tiene el formato correcto.
+   * Valida el formato, el municipio y el dígito verificador de la cédula.
    * 
    * @return true si la cédula es válida
    */
   public boolean esCedulaValida() {
-    String cedulaLimpia = getCedulaLimpia();
-    return cedulaLimpia != null &&
-        cedulaLimpia.length() == 11 &&
-        cedulaLimpia.matches("\\d{11}");
+    return Cedula.esValida(Cedula.valorDe(cedula));
   }
 
   /**
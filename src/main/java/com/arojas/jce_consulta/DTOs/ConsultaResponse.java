@@ -55,7 +55,9 @@ public record ConsultaResponse(
     // INFORMACIÓN DE FOTO
     // ========================================
 
-    @Schema(description = "Información de la foto de cédula (opcional)") @JsonProperty("foto") InformacionFoto foto
+    @Schema(description = "Información de la foto de cédula (opcional)") @JsonProperty("foto") InformacionFoto foto,
+
+    @Schema(description = "Presente y en true cuando el portal JCE no respondió y los datos provienen de un caché ya vencido", example = "true") @JsonProperty("datosObsoletos") Boolean datosObsoletos
 
 ) {
 
@@ -75,7 +77,8 @@ public record ConsultaResponse(
         tiempoRespuesta,
         cedulaConsultada,
         datos,
-        foto);
+        foto,
+        null);
   }
 
   /**
@@ -104,9 +107,27 @@ public record ConsultaResponse(
         tiempoRespuesta,
         cedulaConsultada,
         null,
+        null,
         null);
   }
 
+  /**
+   * Crea una copia marcada como datos obsoletos, para respuestas servidas
+   * desde caché vencido cuando el portal falla.
+   */
+  public ConsultaResponse comoDatosObsoletos() {
+    return new ConsultaResponse(
+        exitosa,
+        mensaje,
+        codigo,
+        timestamp,
+        tiempoRespuesta,
+        cedulaConsultada,
+        datos,
+        foto,
+        true);
+  }
+
   /**
    * Datos personales completos del ciudadano.
    */
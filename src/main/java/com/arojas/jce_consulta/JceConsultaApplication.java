@@ -15,6 +15,7 @@ import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.core.env.Environment;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.info.Contact;
@@ -48,6 +49,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 @SpringBootApplication
 @EnableCaching
 @EnableAsync
+@EnableScheduling
 @ConfigurationPropertiesScan
 @OpenAPIDefinition(info = @Info(title = "JCE Consulta Microservice API", version = "1.0.0", description = """
         **Microservicio profesional para consulta de datos ciudadanos en la JCE de República Dominicana**
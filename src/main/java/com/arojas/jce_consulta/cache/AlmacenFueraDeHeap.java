@@ -0,0 +1,443 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.cache;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Almacén local de registros codificados fuera del heap, indexado por la
+ * cédula como {@code long}.
+ *
+ * Pensado para mantener millones de ciudadanos por nodo sin que el
+ * recolector de basura tenga que recorrerlos: los bytes viven en
+ * {@link ByteBuffer} directos y el índice son arreglos primitivos. El
+ * almacén se divide en segmentos, cada uno con su propio lock, su porción
+ * del presupuesto de memoria y su índice.
+ *
+ * Cada segmento es un registro circular de entradas
+ * {@code [clave:8][longitud:4][bytes]} que nunca cruzan el final del
+ * búfer. Las escrituras se añaden en la cola; cuando falta espacio se
+ * libera desde la cabeza con el algoritmo CLOCK: una entrada leída desde
+ * la última pasada pierde su marca y se vuelve a escribir en la cola, una
+ * sin marca se expulsa. Las copias reemplazadas o eliminadas quedan como
+ * espacio muerto hasta que la cabeza pasa por ellas; mientras las entradas
+ * vigentes ocupen menos de la mitad del segmento, la cabeza las mueve a la
+ * cola (compactación) en lugar de expulsarlas.
+ *
+ * El índice es de direccionamiento abierto con sondeo lineal y borrado por
+ * desplazamiento hacia atrás (sin lápidas); guarda la posición física de
+ * la copia vigente, que identifica la entrada al recorrer la cabeza.
+ *
+ * Los valores se copian al leer y al escribir; el almacén no interpreta
+ * su contenido. La clave 0 está reservada.
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+public final class AlmacenFueraDeHeap {
+
+  private static final long VACIO = 0L;
+  private static final int CABECERA = Long.BYTES + Integer.BYTES;
+  private static final int CAPACIDAD_INICIAL_INDICE = 1024;
+
+  private final Segmento[] segmentos;
+  private final long capacidadBytes;
+
+  /**
+   * Recibe las entradas al recorrer el almacén.
+   */
+  @FunctionalInterface
+  public interface Visitante {
+
+    /**
+     * @param clave cédula como número
+     * @param valor copia del valor guardado
+     */
+    void visitar(long clave, byte[] valor);
+  }
+
+  /**
+   * @param bytesMaximos presupuesto total fuera del heap
+   * @param numeroSegmentos cantidad de segmentos con lock propio
+   * @throws IllegalArgumentException si un segmento no cabe en un búfer
+   */
+  public AlmacenFueraDeHeap(long bytesMaximos, int numeroSegmentos) {
+    long bytesPorSegmento = bytesMaximos / numeroSegmentos;
+    if (numeroSegmentos < 1 || bytesPorSegmento < 1024 || bytesPorSegmento > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Tamaño de segmento inválido: " + bytesPorSegmento + " bytes");
+    }
+
+    this.segmentos = new Segmento[numeroSegmentos];
+    for (int i = 0; i < numeroSegmentos; i++) {
+      segmentos[i] = new Segmento((int) bytesPorSegmento);
+    }
+    this.capacidadBytes = bytesPorSegmento * numeroSegmentos;
+  }
+
+  // ========================================
+  // MÉTODOS PÚBLICOS
+  // ========================================
+
+  /**
+   * Copia el valor guardado para una clave y lo marca como usado.
+   *
+   * @param clave cédula como número (distinta de 0)
+   * @return copia del valor o null si no está
+   */
+  public byte[] obtener(long clave) {
+    return segmento(clave).obtener(clave);
+  }
+
+  /**
+   * Guarda o reemplaza el valor de una clave, expulsando entradas si hace
+   * falta espacio.
+   *
+   * @param clave cédula como número (distinta de 0)
+   * @param valor bytes a guardar; se copian
+   * @return false si el valor es demasiado grande para un segmento
+   */
+  public boolean guardar(long clave, byte[] valor) {
+    if (clave == VACIO) {
+      throw new IllegalArgumentException("La clave 0 está reservada");
+    }
+    return segmento(clave).guardar(clave, valor);
+  }
+
+  /**
+   * Elimina la entrada de una clave, si existe.
+   *
+   * @param clave cédula como número
+   */
+  public void eliminar(long clave) {
+    segmento(clave).eliminar(clave);
+  }
+
+  /**
+   * Recorre las entradas vigentes segmento a segmento. Cada segmento se
+   * copia bajo su lock y se entrega fuera de él, así que el visitante puede
+   * hacer E/S sin bloquear al resto del almacén; las escrituras
+   * concurrentes pueden verse o no.
+   *
+   * @param visitante recibe cada clave con una copia de su valor
+   */
+  public void recorrer(Visitante visitante) {
+    for (Segmento segmento : segmentos) {
+      long[] claves;
+      byte[][] valores;
+      segmento.lock.lock();
+      try {
+        claves = new long[segmento.entradas];
+        valores = new byte[claves.length][];
+        int n = 0;
+        for (int i = 0; i < segmento.claves.length; i++) {
+          if (segmento.claves[i] != VACIO) {
+            claves[n] = segmento.claves[i];
+            valores[n++] = segmento.leer(segmento.posiciones[i]);
+          }
+        }
+      } finally {
+        segmento.lock.unlock();
+      }
+
+      for (int i = 0; i < claves.length; i++) {
+        visitante.visitar(claves[i], valores[i]);
+      }
+    }
+  }
+
+  /**
+   * @return cantidad de entradas vigentes
+   */
+  public long getEntradas() {
+    long total = 0;
+    for (Segmento segmento : segmentos) {
+      total += segmento.entradas;
+    }
+    return total;
+  }
+
+  /**
+   * @return bytes ocupados por entradas vigentes (sin espacio muerto)
+   */
+  public long getBytesUsados() {
+    long total = 0;
+    for (Segmento segmento : segmentos) {
+      total += segmento.bytesVivos;
+    }
+    return total;
+  }
+
+  /**
+   * @return memoria reservada fuera del heap
+   */
+  public long getCapacidadBytes() {
+    return capacidadBytes;
+  }
+
+  /**
+   * @return entradas expulsadas por falta de espacio desde el arranque
+   */
+  public long getExpulsiones() {
+    long total = 0;
+    for (Segmento segmento : segmentos) {
+      total += segmento.expulsiones;
+    }
+    return total;
+  }
+
+  // ========================================
+  // MÉTODOS PRIVADOS
+  // ========================================
+
+  private Segmento segmento(long clave) {
+    // Bits altos para el segmento, bajos para la ranura del índice
+    return segmentos[(int) ((mezclar(clave) >>> 32) % segmentos.length)];
+  }
+
+  private static long mezclar(long clave) {
+    long h = clave;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  // ========================================
+  // SEGMENTO
+  // ========================================
+
+  private static final class Segmento {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ByteBuffer datos;
+    private final int capacidad;
+    private final int tamanoMaximoEntrada;
+
+    // Posiciones lógicas crecientes; la física es posición % capacidad
+    private long cabeza;
+    private long cola;
+
+    // Índice: clave -> posición física de la copia vigente
+    private long[] claves = new long[CAPACIDAD_INICIAL_INDICE];
+    private int[] posiciones = new int[CAPACIDAD_INICIAL_INDICE];
+    private boolean[] referencias = new boolean[CAPACIDAD_INICIAL_INDICE];
+    private int mascara = CAPACIDAD_INICIAL_INDICE - 1;
+
+    // Leídos sin lock por las métricas
+    private volatile int entradas;
+    private volatile long bytesVivos;
+    private volatile long expulsiones;
+
+    Segmento(int capacidad) {
+      this.datos = ByteBuffer.allocateDirect(capacidad);
+      this.capacidad = capacidad;
+      // Una entrada más grande obligaría a expulsar buena parte del segmento de golpe
+      this.tamanoMaximoEntrada = capacidad / 8;
+    }
+
+    byte[] obtener(long clave) {
+      lock.lock();
+      try {
+        int ranura = buscar(clave);
+        if (ranura < 0) {
+          return null;
+        }
+        referencias[ranura] = true;
+        return leer(posiciones[ranura]);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    boolean guardar(long clave, byte[] valor) {
+      int tamano = CABECERA + valor.length;
+      lock.lock();
+      try {
+        eliminar(clave);
+        if (tamano > tamanoMaximoEntrada) {
+          return false;
+        }
+
+        while (libre() < espacioNecesario(tamano)) {
+          liberarCabeza();
+        }
+        int posicion = escribir(clave, valor, 0, valor.length);
+        insertar(clave, posicion);
+        entradas++;
+        bytesVivos += tamano;
+        return true;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void eliminar(long clave) {
+      lock.lock();
+      try {
+        int ranura = buscar(clave);
+        if (ranura >= 0) {
+          bytesVivos -= CABECERA + datos.getInt(posiciones[ranura] + Long.BYTES);
+          entradas--;
+          quitarRanura(ranura);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    // ----------------------------------------
+    // Registro circular
+    // ----------------------------------------
+
+    private byte[] leer(int posicion) {
+      byte[] valor = new byte[datos.getInt(posicion + Long.BYTES)];
+      datos.get(posicion + CABECERA, valor);
+      return valor;
+    }
+
+    private long libre() {
+      return capacidad - (cola - cabeza);
+    }
+
+    /**
+     * Espacio para una entrada en la cola, incluido el relleno si no cabe
+     * antes del final del búfer.
+     */
+    private int espacioNecesario(int tamano) {
+      int restante = capacidad - (int) (cola % capacidad);
+      return restante < tamano ? restante + tamano : tamano;
+    }
+
+    private int escribir(long clave, byte[] origen, int offset, int longitud) {
+      int restante = capacidad - (int) (cola % capacidad);
+      if (restante < CABECERA + longitud) {
+        if (restante >= Long.BYTES) {
+          datos.putLong((int) (cola % capacidad), VACIO);
+        }
+        cola += restante;
+      }
+
+      int posicion = (int) (cola % capacidad);
+      datos.putLong(posicion, clave);
+      datos.putInt(posicion + Long.BYTES, longitud);
+      datos.put(posicion + CABECERA, origen, offset, longitud);
+      cola += CABECERA + longitud;
+      return posicion;
+    }
+
+    /**
+     * Avanza la cabeza una entrada: salta relleno y copias muertas, da una
+     * segunda oportunidad a las entradas usadas y expulsa las demás. Si la
+     * mayor parte del segmento es espacio muerto, las entradas vigentes se
+     * mueven a la cola en lugar de expulsarse.
+     */
+    private void liberarCabeza() {
+      int posicion = (int) (cabeza % capacidad);
+      int restante = capacidad - posicion;
+      if (restante < CABECERA || datos.getLong(posicion) == VACIO) {
+        cabeza += restante;
+        return;
+      }
+
+      long clave = datos.getLong(posicion);
+      int longitud = datos.getInt(posicion + Long.BYTES);
+      int tamano = CABECERA + longitud;
+      cabeza += tamano;
+
+      int ranura = buscar(clave);
+      if (ranura < 0 || posiciones[ranura] != posicion) {
+        return;
+      }
+
+      // Con la mitad del segmento muerta se compacta en lugar de expulsar
+      boolean conservar = referencias[ranura] || bytesVivos <= capacidad / 2;
+      if (conservar && libre() >= espacioNecesario(tamano)) {
+        // Copia intermedia: origen y destino pueden solaparse con el búfer casi lleno
+        byte[] valor = new byte[longitud];
+        datos.get(posicion + CABECERA, valor);
+        referencias[ranura] = false;
+        posiciones[ranura] = escribir(clave, valor, 0, longitud);
+        return;
+      }
+
+      quitarRanura(ranura);
+      entradas--;
+      bytesVivos -= tamano;
+      expulsiones++;
+    }
+
+    // ----------------------------------------
+    // Índice
+    // ----------------------------------------
+
+    private int buscar(long clave) {
+      for (int i = (int) mezclar(clave) & mascara;; i = (i + 1) & mascara) {
+        if (claves[i] == clave) {
+          return i;
+        }
+        if (claves[i] == VACIO) {
+          return -1;
+        }
+      }
+    }
+
+    private void insertar(long clave, int posicion) {
+      if ((entradas + 1) * 4L > claves.length * 3L) {
+        redimensionar(claves.length * 2);
+      }
+      int i = (int) mezclar(clave) & mascara;
+      while (claves[i] != VACIO) {
+        i = (i + 1) & mascara;
+      }
+      claves[i] = clave;
+      posiciones[i] = posicion;
+      referencias[i] = false;
+    }
+
+    private void quitarRanura(int ranura) {
+      int libre = ranura;
+      for (int i = (libre + 1) & mascara; claves[i] != VACIO; i = (i + 1) & mascara) {
+        int ideal = (int) mezclar(claves[i]) & mascara;
+        // Se mueve si su ranura ideal no está entre el hueco y su posición actual
+        boolean fuera = libre <= i ? (ideal <= libre || ideal > i) : (ideal <= libre && ideal > i);
+        if (fuera) {
+          claves[libre] = claves[i];
+          posiciones[libre] = posiciones[i];
+          referencias[libre] = referencias[i];
+          libre = i;
+        }
+      }
+      claves[libre] = VACIO;
+      referencias[libre] = false;
+    }
+
+    private void redimensionar(int nuevaCapacidad) {
+      long[] clavesAnteriores = claves;
+      int[] posicionesAnteriores = posiciones;
+      boolean[] referenciasAnteriores = referencias;
+
+      claves = new long[nuevaCapacidad];
+      posiciones = new int[nuevaCapacidad];
+      referencias = new boolean[nuevaCapacidad];
+      mascara = nuevaCapacidad - 1;
+
+      for (int j = 0; j < clavesAnteriores.length; j++) {
+        if (clavesAnteriores[j] == VACIO) {
+          continue;
+        }
+        int i = (int) mezclar(clavesAnteriores[j]) & mascara;
+        while (claves[i] != VACIO) {
+          i = (i + 1) & mascara;
+        }
+        claves[i] = clavesAnteriores[j];
+        posiciones[i] = posicionesAnteriores[j];
+        referencias[i] = referenciasAnteriores[j];
+      }
+    }
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.arojas.jce_consulta.config.AppProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Caché negativo de corta duración para cédulas que el portal reporta como
+ * inexistentes.
+ *
+ * Evita que scripts de enumeración, reintentos de clientes y trabajos de
+ * validación masiva repitan contra la JCE consultas que ya se sabe que no
+ * devuelven datos. Las entradas viven en un caché Caffeine con TTL y
+ * tamaño propios; delante hay dos filtros Bloom rotativos que descartan sin
+ * tocar el caché la gran mayoría de cédulas que nunca fallaron.
+ *
+ * Los filtros Bloom no admiten borrado, así que se rota el filtro activo
+ * cada TTL: una cédula registrada está siempre en el filtro activo o en el
+ * anterior mientras su entrada siga viva. Un falso positivo del filtro solo
+ * cuesta una búsqueda en Caffeine, nunca una respuesta incorrecta.
+ *
+ * Métricas publicadas:
+ * - {@code jce.cache.negativo.aciertos}
+ * - {@code jce.cache.negativo.guardados}
+ * - {@code jce.cache.negativo.descartes_bloom}
+ * - {@code jce.cache.negativo.tamano}
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+@Component
+public class CacheNegativo {
+
+  private static final Logger logger = LoggerFactory.getLogger(CacheNegativo.class);
+
+  private final boolean habilitado;
+  private final Cache<String, Boolean> entradas;
+  private final int capacidadFiltro;
+  private final double tasaFalsosPositivos;
+  private final long ttlNanos;
+  private final LongSupplier reloj;
+
+  // Filtros rotativos
+  private volatile BloomFilter<CharSequence> filtroActivo;
+  private volatile BloomFilter<CharSequence> filtroAnterior;
+  private volatile long inicioFiltroActivo;
+
+  // Métricas
+  private final Counter aciertosCounter;
+  private final Counter guardadosCounter;
+  private final Counter descartesBloomCounter;
+
+  /**
+   * Constructor con inyección de dependencias.
+   */
+  @Autowired
+  public CacheNegativo(AppProperties appProperties, MeterRegistry meterRegistry) {
+    this(appProperties.getCache(), meterRegistry, System::nanoTime);
+  }
+
+  CacheNegativo(AppProperties.Cache config, MeterRegistry meterRegistry, LongSupplier reloj) {
+    Duration ttl = Duration.ofSeconds(config.getNegativeTtlSeconds());
+
+    this.habilitado = config.isNegativeEnabled();
+    this.capacidadFiltro = config.getNegativeMaxSize();
+    this.tasaFalsosPositivos = config.getNegativeFalsePositiveRate();
+    this.ttlNanos = ttl.toNanos();
+    this.reloj = reloj;
+
+    this.entradas = Caffeine.newBuilder()
+        .maximumSize(config.getNegativeMaxSize())
+        .expireAfterWrite(ttl)
+        .ticker(reloj::getAsLong)
+        .build();
+
+    this.filtroActivo = nuevoFiltro();
+    this.filtroAnterior = nuevoFiltro();
+    this.inicioFiltroActivo = reloj.getAsLong();
+
+    this.aciertosCounter = Counter.builder("jce.cache.negativo.aciertos")
+        .description("Consultas resueltas como no encontradas desde el caché negativo")
+        .register(meterRegistry);
+
+    this.guardadosCounter = Counter.builder("jce.cache.negativo.guardados")
+        .description("Cédulas no encontradas registradas en el caché negativo")
+        .register(meterRegistry);
+
+    this.descartesBloomCounter = Counter.builder("jce.cache.negativo.descartes_bloom")
+        .description("Consultas descartadas por el filtro Bloom sin buscar en el caché negativo")
+        .register(meterRegistry);
+
+    Gauge.builder("jce.cache.negativo.tamano", entradas, Cache::estimatedSize)
+        .description("Entradas en el caché negativo")
+        .register(meterRegistry);
+
+    logger.info("🚫 CacheNegativo inicializado - Habilitado: {}, TTL: {}, max {}",
+        habilitado, ttl, config.getNegativeMaxSize());
+  }
+
+  // ========================================
+  // MÉTODOS PÚBLICOS
+  // ========================================
+
+  /**
+   * Indica si la cédula se consultó hace poco y el portal no la encontró.
+   *
+   * @param clave cédula limpia
+   * @return true si hay una entrada negativa vigente
+   */
+  public boolean contiene(String clave) {
+    if (!habilitado) {
+      return false;
+    }
+
+    rotarSiCorresponde();
+    if (!filtroActivo.mightContain(clave) && !filtroAnterior.mightContain(clave)) {
+      descartesBloomCounter.increment();
+      return false;
+    }
+
+    if (entradas.getIfPresent(clave) == null) {
+      return false;
+    }
+
+    aciertosCounter.increment();
+    logger.debug("🚫 Acierto de caché negativo para clave: {}", clave);
+    return true;
+  }
+
+  /**
+   * Registra una cédula que el portal no encontró.
+   *
+   * @param clave cédula limpia
+   */
+  public void guardar(String clave) {
+    if (!habilitado) {
+      return;
+    }
+
+    rotarSiCorresponde();
+    filtroActivo.put(clave);
+    entradas.put(clave, Boolean.TRUE);
+    guardadosCounter.increment();
+  }
+
+  /**
+   * Elimina la entrada negativa de una cédula, por ejemplo porque el portal
+   * ya devuelve sus datos.
+   *
+   * @param clave cédula limpia
+   */
+  public void invalidar(String clave) {
+    if (habilitado) {
+      entradas.invalidate(clave);
+    }
+  }
+
+  // ========================================
+  // MÉTODOS PRIVADOS
+  // ========================================
+
+  private BloomFilter<CharSequence> nuevoFiltro() {
+    return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.US_ASCII), capacidadFiltro,
+        tasaFalsosPositivos);
+  }
+
+  private void rotarSiCorresponde() {
+    if (reloj.getAsLong() - inicioFiltroActivo < ttlNanos) {
+      return;
+    }
+    synchronized (this) {
+      long ahora = reloj.getAsLong();
+      if (ahora - inicioFiltroActivo < ttlNanos) {
+        return;
+      }
+      // Tras dos TTL sin rotar ningún registro del filtro activo sigue vivo
+      filtroAnterior = ahora - inicioFiltroActivo < 2 * ttlNanos ? filtroActivo : nuevoFiltro();
+      filtroActivo = nuevoFiltro();
+      inicioFiltroActivo = ahora;
+      logger.debug("🔄 Filtros Bloom del caché negativo rotados");
+    }
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.cache;
+
+import com.arojas.jce_consulta.model.Individuo;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Registro canónico de un ciudadano tal como se guarda en el caché, con el
+ * momento en que se obtuvo del portal.
+ *
+ * El momento de obtención viaja con el registro (también en Redis) para que
+ * cualquier nodo pueda decidir si la entrada está fresca, si debe
+ * revalidarse en segundo plano o si solo sirve como respaldo ante errores
+ * del portal.
+ *
+ * @param individuo  datos completos del ciudadano; no deben modificarse
+ * @param guardadoEn instante de obtención en milisegundos desde epoch
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+public record CiudadanoCacheado(
+    @JsonProperty("individuo") Individuo individuo,
+    @JsonProperty("guardadoEn") long guardadoEn) {
+
+  /**
+   * @param ahora instante actual en milisegundos desde epoch
+   * @return antigüedad del registro en milisegundos
+   */
+  public long edadMillis(long ahora) {
+    return Math.max(0, ahora - guardadoEn);
+  }
+}
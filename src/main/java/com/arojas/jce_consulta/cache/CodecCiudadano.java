@@ -0,0 +1,415 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.arojas.jce_consulta.model.DiccionarioValores;
+import com.arojas.jce_consulta.model.Individuo;
+
+/**
+ * Codec binario compacto y versionado para los registros de ciudadanos que
+ * se guardan en Redis.
+ *
+ * Formato (versión 1):
+ * <pre>
+ * [versión:1][flags:1][cuerpo]
+ * cuerpo = [guardadoEn:varlong][presencia:4 bytes][campos presentes...]
+ * campo  = [longitud:varint][UTF-8]                     texto libre
+ *        | [código:varint] (0 = [longitud:varint][UTF-8]) campo con diccionario
+ * </pre>
+ * El mapa de presencia tiene un bit por campo en el orden de
+ * {@link #CAMPOS}; los campos nulos no ocupan más espacio. Los campos de
+ * baja cardinalidad se escriben como el código fijo (más uno) del valor en
+ * su {@link DiccionarioValores}, o como texto si el valor no es una
+ * semilla. Al leer, esos campos se devuelven como instancias canónicas.
+ *
+ * Si el flag de compresión está activo, el cuerpo es
+ * {@code [longitudOriginal:varint][deflate sin cabecera]}. Solo se comprime
+ * por encima del umbral configurado y si el resultado es más pequeño.
+ *
+ * Compatibilidad: los campos y los valores de diccionario solo pueden
+ * añadirse al final; cualquier otro cambio requiere una versión nueva. Un
+ * valor con una versión desconocida (por ejemplo el JSON del formato
+ * anterior) produce {@link SerializationException}, que el caché trata
+ * como un fallo.
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+public class CodecCiudadano implements RedisSerializer<CiudadanoCacheado> {
+
+  public static final byte VERSION = 1;
+
+  private static final int FLAG_COMPRIMIDO = 1;
+
+  // Un registro real ocupa menos de 1 KB; el límite evita reservas absurdas con datos corruptos
+  private static final int TAMANO_MAXIMO_CUERPO = 64 * 1024;
+
+  /**
+   * Campo del registro: acceso y diccionario opcional. Los campos con
+   * diccionario se internan al leer; solo los codificados escriben su código
+   * fijo en lugar del texto.
+   */
+  private record Campo(Function<Individuo, String> lector, BiConsumer<Individuo, String> escritor,
+      DiccionarioValores diccionario, boolean codificado) {
+
+    Campo(Function<Individuo, String> lector, BiConsumer<Individuo, String> escritor) {
+      this(lector, escritor, null, false);
+    }
+
+    Campo(Function<Individuo, String> lector, BiConsumer<Individuo, String> escritor,
+        DiccionarioValores diccionario) {
+      this(lector, escritor, diccionario, true);
+    }
+  }
+
+  // Orden fijo del formato: solo se pueden añadir campos al final
+  private static final Campo[] CAMPOS = {
+      new Campo(Individuo::getNombres, Individuo::setNombres),
+      new Campo(Individuo::getApellido1, Individuo::setApellido1),
+      new Campo(Individuo::getApellido2, Individuo::setApellido2),
+      new Campo(Individuo::getFechaNacimiento, Individuo::setFechaNacimiento),
+      new Campo(Individuo::getLugarNacimiento, Individuo::setLugarNacimiento,
+          DiccionarioValores.LUGAR_NACIMIENTO),
+      new Campo(Individuo::getFechaExpiracion, Individuo::setFechaExpiracion),
+      new Campo(Individuo::getSexo, Individuo::setSexo, DiccionarioValores.SEXO),
+      new Campo(Individuo::getEstadoCivil, Individuo::setEstadoCivil, DiccionarioValores.ESTADO_CIVIL),
+      new Campo(Individuo::getEdad, Individuo::setEdad),
+      new Campo(Individuo::getCodigoNacionalidad, Individuo::setCodigoNacionalidad,
+          DiccionarioValores.CODIGO_NACIONALIDAD),
+      new Campo(Individuo::getDescripcionNacionalidad, Individuo::setDescripcionNacionalidad,
+          DiccionarioValores.DESCRIPCION_NACIONALIDAD),
+      // Sin códigos fijos: se escribe como texto (versión 1) y se interna al leer
+      new Campo(Individuo::getMunicipioCedula, Individuo::setMunicipioCedula,
+          DiccionarioValores.MUNICIPIO_CEDULA, false),
+      new Campo(Individuo::getSecuenciaCedula, Individuo::setSecuenciaCedula),
+      new Campo(Individuo::getOcupacion, Individuo::setOcupacion),
+      new Campo(Individuo::getConyugue, Individuo::setConyugue),
+      new Campo(Individuo::getCedulaConyugue, Individuo::setCedulaConyugue),
+      new Campo(Individuo::getPadre, Individuo::setPadre),
+      new Campo(Individuo::getMadre, Individuo::setMadre),
+      new Campo(Individuo::getCedulaVieja, Individuo::setCedulaVieja),
+      new Campo(Individuo::getPasaporte, Individuo::setPasaporte),
+      new Campo(Individuo::getFotoUrl, Individuo::setFotoUrl),
+      new Campo(Individuo::getCategoria, Individuo::setCategoria, DiccionarioValores.CATEGORIA),
+      new Campo(Individuo::getDescripcionCategoria, Individuo::setDescripcionCategoria,
+          DiccionarioValores.DESCRIPCION_CATEGORIA),
+      new Campo(Individuo::getEstatus, Individuo::setEstatus, DiccionarioValores.ESTATUS),
+      new Campo(Individuo::getCodigoCausa, Individuo::setCodigoCausa),
+      new Campo(Individuo::getDescripcionCausaInhabilidad, Individuo::setDescripcionCausaInhabilidad),
+      new Campo(Individuo::getDescripcionTipoCausa, Individuo::setDescripcionTipoCausa),
+      new Campo(Individuo::getSuccess, Individuo::setSuccess, DiccionarioValores.SUCCESS),
+      new Campo(Individuo::getMessage, Individuo::setMessage, DiccionarioValores.MESSAGE),
+      new Campo(Individuo::getResponseTime, Individuo::setResponseTime),
+  };
+
+  private static final int BYTES_PRESENCIA = (CAMPOS.length + 7) / 8;
+
+  private final boolean compresionHabilitada;
+  private final int umbralCompresion;
+
+  /**
+   * @param compresionHabilitada comprimir los registros grandes con deflate
+   * @param umbralCompresion     tamaño mínimo del cuerpo (bytes) para
+   *                             intentar comprimir
+   */
+  public CodecCiudadano(boolean compresionHabilitada, int umbralCompresion) {
+    this.compresionHabilitada = compresionHabilitada;
+    this.umbralCompresion = umbralCompresion;
+  }
+
+  // ========================================
+  // SERIALIZACIÓN
+  // ========================================
+
+  @Override
+  public byte[] serialize(CiudadanoCacheado registro) throws SerializationException {
+    if (registro == null) {
+      return null;
+    }
+
+    Escritor cuerpo = new Escritor(256);
+    cuerpo.varlong(registro.guardadoEn());
+
+    Individuo individuo = registro.individuo();
+    String[] valores = new String[CAMPOS.length];
+    byte[] presencia = new byte[BYTES_PRESENCIA];
+    for (int i = 0; i < CAMPOS.length; i++) {
+      valores[i] = CAMPOS[i].lector().apply(individuo);
+      if (valores[i] != null) {
+        presencia[i >>> 3] |= (byte) (1 << (i & 7));
+      }
+    }
+    cuerpo.bytes(presencia, 0, presencia.length);
+
+    for (int i = 0; i < CAMPOS.length; i++) {
+      if (valores[i] == null) {
+        continue;
+      }
+      if (CAMPOS[i].codificado()) {
+        int codigo = CAMPOS[i].diccionario().codigoFijo(valores[i]);
+        cuerpo.varint(codigo + 1);
+        if (codigo >= 0) {
+          continue;
+        }
+      }
+      cuerpo.texto(valores[i]);
+    }
+
+    if (compresionHabilitada && cuerpo.longitud >= umbralCompresion) {
+      byte[] comprimido = comprimir(cuerpo.datos, cuerpo.longitud);
+      if (comprimido.length < cuerpo.longitud) {
+        Escritor salida = new Escritor(comprimido.length + 8);
+        salida.varint(VERSION);
+        salida.varint(FLAG_COMPRIMIDO);
+        salida.varint(cuerpo.longitud);
+        salida.bytes(comprimido, 0, comprimido.length);
+        return salida.resultado();
+      }
+    }
+
+    Escritor salida = new Escritor(cuerpo.longitud + 2);
+    salida.varint(VERSION);
+    salida.varint(0);
+    salida.bytes(cuerpo.datos, 0, cuerpo.longitud);
+    return salida.resultado();
+  }
+
+  @Override
+  public CiudadanoCacheado deserialize(byte[] bytes) throws SerializationException {
+    if (bytes == null || bytes.length == 0) {
+      return null;
+    }
+    if (bytes.length < 2 || bytes[0] != VERSION) {
+      throw new SerializationException("Versión de registro de ciudadano no soportada: " + bytes[0]);
+    }
+
+    try {
+      Lector lector;
+      if ((bytes[1] & FLAG_COMPRIMIDO) != 0) {
+        Lector cabecera = new Lector(bytes, 2, bytes.length);
+        int longitudOriginal = cabecera.varint();
+        if (longitudOriginal > TAMANO_MAXIMO_CUERPO) {
+          throw new SerializationException("Registro de ciudadano demasiado grande: " + longitudOriginal);
+        }
+        byte[] cuerpo = descomprimir(bytes, cabecera.posicion, longitudOriginal);
+        lector = new Lector(cuerpo, 0, cuerpo.length);
+      } else {
+        lector = new Lector(bytes, 2, bytes.length);
+      }
+
+      long guardadoEn = lector.varlong();
+      int inicioPresencia = lector.saltar(BYTES_PRESENCIA);
+
+      Individuo individuo = new Individuo();
+      for (int i = 0; i < CAMPOS.length; i++) {
+        if ((lector.datos[inicioPresencia + (i >>> 3)] & (1 << (i & 7))) == 0) {
+          continue;
+        }
+        Campo campo = CAMPOS[i];
+        String valor;
+        if (campo.codificado()) {
+          int codigo = lector.varint();
+          valor = codigo > 0 ? campo.diccionario().valorFijo(codigo - 1) : lector.texto();
+        } else {
+          valor = lector.texto();
+        }
+        if (campo.diccionario() != null) {
+          valor = campo.diccionario().canonico(valor);
+        }
+        campo.escritor().accept(individuo, valor);
+      }
+      return new CiudadanoCacheado(individuo, guardadoEn);
+    } catch (IndexOutOfBoundsException | DataFormatException e) {
+      throw new SerializationException("Registro de ciudadano corrupto", e);
+    }
+  }
+
+  /**
+   * Lee únicamente la marca {@code guardadoEn} de un registro serializado,
+   * sin decodificar los campos. En registros comprimidos solo se
+   * descomprimen los primeros bytes del cuerpo.
+   *
+   * @param bytes registro serializado con {@link #serialize}
+   * @return milisegundos epoch en que se guardó el registro
+   * @throws SerializationException si el registro está vacío o corrupto
+   */
+  public long leerGuardadoEn(byte[] bytes) throws SerializationException {
+    if (bytes == null || bytes.length < 2 || bytes[0] != VERSION) {
+      throw new SerializationException("Registro de ciudadano no válido");
+    }
+
+    try {
+      if ((bytes[1] & FLAG_COMPRIMIDO) != 0) {
+        Lector cabecera = new Lector(bytes, 2, bytes.length);
+        int longitudOriginal = cabecera.varint();
+        if (longitudOriginal > TAMANO_MAXIMO_CUERPO) {
+          throw new SerializationException("Registro de ciudadano demasiado grande: " + longitudOriginal);
+        }
+        byte[] inicio = descomprimir(bytes, cabecera.posicion, Math.min(10, longitudOriginal));
+        return new Lector(inicio, 0, inicio.length).varlong();
+      }
+      return new Lector(bytes, 2, bytes.length).varlong();
+    } catch (IndexOutOfBoundsException | DataFormatException e) {
+      throw new SerializationException("Registro de ciudadano corrupto", e);
+    }
+  }
+
+  // ========================================
+  // COMPRESIÓN
+  // ========================================
+
+  private static byte[] comprimir(byte[] datos, int longitud) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    try {
+      deflater.setInput(datos, 0, longitud);
+      deflater.finish();
+      byte[] salida = new byte[longitud + 64];
+      int escritos = 0;
+      while (!deflater.finished()) {
+        if (escritos == salida.length) {
+          salida = Arrays.copyOf(salida, salida.length * 2);
+        }
+        escritos += deflater.deflate(salida, escritos, salida.length - escritos);
+      }
+      return Arrays.copyOf(salida, escritos);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] descomprimir(byte[] datos, int offset, int longitudOriginal) throws DataFormatException {
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(datos, offset, datos.length - offset);
+      byte[] salida = new byte[longitudOriginal];
+      int leidos = 0;
+      while (leidos < longitudOriginal && !inflater.finished()) {
+        int n = inflater.inflate(salida, leidos, longitudOriginal - leidos);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new DataFormatException("Cuerpo comprimido truncado");
+        }
+        leidos += n;
+      }
+      return salida;
+    } finally {
+      inflater.end();
+    }
+  }
+
+  // ========================================
+  // BÚFERES
+  // ========================================
+
+  private static final class Escritor {
+
+    private byte[] datos;
+    private int longitud;
+
+    Escritor(int capacidad) {
+      this.datos = new byte[capacidad];
+    }
+
+    void varint(int valor) {
+      varlong(valor & 0xFFFFFFFFL);
+    }
+
+    void varlong(long valor) {
+      asegurar(10);
+      while ((valor & ~0x7FL) != 0) {
+        datos[longitud++] = (byte) ((valor & 0x7F) | 0x80);
+        valor >>>= 7;
+      }
+      datos[longitud++] = (byte) valor;
+    }
+
+    void texto(String valor) {
+      byte[] utf8 = valor.getBytes(StandardCharsets.UTF_8);
+      varint(utf8.length);
+      bytes(utf8, 0, utf8.length);
+    }
+
+    void bytes(byte[] origen, int offset, int cantidad) {
+      asegurar(cantidad);
+      System.arraycopy(origen, offset, datos, longitud, cantidad);
+      longitud += cantidad;
+    }
+
+    byte[] resultado() {
+      return longitud == datos.length ? datos : Arrays.copyOf(datos, longitud);
+    }
+
+    private void asegurar(int cantidad) {
+      if (longitud + cantidad > datos.length) {
+        datos = Arrays.copyOf(datos, Math.max(datos.length * 2, longitud + cantidad));
+      }
+    }
+  }
+
+  private static final class Lector {
+
+    private final byte[] datos;
+    private final int limite;
+    private int posicion;
+
+    Lector(byte[] datos, int posicion, int limite) {
+      this.datos = datos;
+      this.posicion = posicion;
+      this.limite = limite;
+    }
+
+    int varint() {
+      long valor = varlong();
+      if (valor > Integer.MAX_VALUE) {
+        throw new IndexOutOfBoundsException("Varint fuera de rango");
+      }
+      return (int) valor;
+    }
+
+    long varlong() {
+      long valor = 0;
+      for (int desplazamiento = 0; desplazamiento < 64; desplazamiento += 7) {
+        byte b = leer();
+        valor |= (long) (b & 0x7F) << desplazamiento;
+        if (b >= 0) {
+          return valor;
+        }
+      }
+      throw new IndexOutOfBoundsException("Varint demasiado largo");
+    }
+
+    String texto() {
+      int longitud = varint();
+      int inicio = saltar(longitud);
+      return new String(datos, inicio, longitud, StandardCharsets.UTF_8);
+    }
+
+    int saltar(int cantidad) {
+      if (cantidad < 0 || posicion + cantidad > limite) {
+        throw new IndexOutOfBoundsException("Registro truncado");
+      }
+      int inicio = posicion;
+      posicion += cantidad;
+      return inicio;
+    }
+
+    private byte leer() {
+      if (posicion >= limite) {
+        throw new IndexOutOfBoundsException("Registro truncado");
+      }
+      return datos[posicion++];
+    }
+  }
+}
@@ -0,0 +1,681 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.cache;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.stereotype.Component;
+
+import com.arojas.jce_consulta.DTOs.ConsultaRequest;
+import com.arojas.jce_consulta.DTOs.ConsultaResponse;
+import com.arojas.jce_consulta.config.AppProperties;
+import com.arojas.jce_consulta.model.Cedula;
+import com.arojas.jce_consulta.model.DiccionarioValores;
+import com.arojas.jce_consulta.model.Individuo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+/**
+ * Caché reactivo de dos niveles para consultas de ciudadanos.
+ *
+ * Cada nivel guarda un único registro canónico ({@link Individuo}) por
+ * cédula; los formatos y la foto se proyectan al leer, de modo que una
+ * sola consulta al portal sirve a todas las variantes que pidan los
+ * clientes.
+ *
+ * El primer nivel es un caché Caffeine en memoria local, opcionalmente
+ * respaldado por un {@link AlmacenFueraDeHeap} con millones de registros
+ * codificados: Caffeine queda entonces como nivel caliente y los aciertos
+ * fuera del heap se promueven a él. El segundo nivel es Redis
+ * accedido a través de Lettuce reactivo. Ninguna operación bloquea el hilo
+ * que la invoca: las lecturas locales son en memoria y las de Redis se
+ * encadenan al flujo reactivo. Los errores de Redis degradan a un fallo de
+ * caché en lugar de propagarse al cliente.
+ *
+ * Características:
+ * - Lectura L1 → L2 con promoción a L1 en aciertos distribuidos
+ * - Escritura en ambos niveles (L2 de forma asíncrona)
+ * - TTL blando, TTL duro y antigüedad máxima tomados de
+ *   {@link AppProperties.Cache}: las entradas frescas se sirven tal cual,
+ *   las que pasaron el TTL blando se sirven y se revalidan en segundo plano
+ *   (una sola revalidación por clave), y las que pasaron el TTL duro solo
+ *   se entregan como respaldo si el portal falla y no superan la
+ *   antigüedad máxima, contada desde que se obtuvo el registro del portal
+ * - Métricas de aciertos por nivel, fallos y errores de Redis
+ * - Plantillas JSON por variante guardadas junto a la entrada local
+ *   ({@link EntradaCiudadano}), para responder aciertos sin pasar por
+ *   Jackson; se descartan al reemplazar o expulsar el registro canónico
+ * - Campos de baja cardinalidad internados con {@link DiccionarioValores},
+ *   para que los registros en memoria compartan las mismas cadenas
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+@Component
+public class ConsultaCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(ConsultaCache.class);
+
+  private static final String NOMBRE_CACHE = "consultas-jce";
+
+  // ========================================
+  // DEPENDENCIAS Y CONFIGURACIÓN
+  // ========================================
+
+  private final Cache<String, EntradaCiudadano> cacheLocal;
+  private final AlmacenFueraDeHeap almacenFueraDeHeap;
+  private final CodecCiudadano codec;
+  private final ObjectMapper objectMapper;
+  private final ReactiveRedisTemplate<String, CiudadanoCacheado> redisTemplate;
+  private final boolean distribuidoHabilitado;
+  private final String prefijoRedis;
+  private final long ttlBlandoMillis;
+  private final long ttlDuroMillis;
+  private final Duration ttlRetencion;
+  private final Duration timeoutRedis;
+  private volatile Consumer<String> revalidador = clave -> {
+  };
+  private final AtomicReference<SnapshotCiudadanos> snapshot = new AtomicReference<>();
+
+  // Métricas
+  private final Counter aciertosLocalCounter;
+  private final Counter aciertosFueraHeapCounter;
+  private final Counter aciertosSnapshotCounter;
+  private final Counter aciertosDistribuidoCounter;
+  private final Counter fallosCounter;
+  private final Counter erroresRedisCounter;
+  private final Counter revalidacionesCounter;
+
+  /**
+   * Constructor con inyección de dependencias.
+   */
+  public ConsultaCache(
+      AppProperties appProperties,
+      ReactiveRedisTemplate<String, CiudadanoCacheado> ciudadanoRedisTemplate,
+      CodecCiudadano codecCiudadano,
+      MeterRegistry meterRegistry,
+      ObjectMapper objectMapper,
+      @Value("${spring.data.redis.timeout:2000ms}") Duration timeoutRedis) {
+
+    AppProperties.Cache config = appProperties.getCache();
+
+    this.redisTemplate = ciudadanoRedisTemplate;
+    this.distribuidoHabilitado = config.isDistributedEnabled();
+    this.prefijoRedis = config.getRedisKeyPrefix() + ":";
+    this.ttlBlandoMillis = appProperties.getCacheTtlDuration().toMillis();
+    this.ttlDuroMillis = Math.max(ttlBlandoMillis, Duration.ofMinutes(config.getHardTtlMinutes()).toMillis());
+    // Las entradas se conservan mientras puedan servir de respaldo
+    this.ttlRetencion = Duration.ofMillis(
+        Math.max(ttlDuroMillis, Duration.ofMinutes(config.getMaxStaleMinutes()).toMillis()));
+    this.timeoutRedis = timeoutRedis;
+    this.objectMapper = objectMapper;
+    this.codec = codecCiudadano;
+
+    if (config.isLocalEnabled()) {
+      // Vence según la antigüedad del registro y no según cuándo entró a
+      // Caffeine: las promociones desde Redis, fuera del heap o el snapshot
+      // no reinician la retención
+      long retencionMillis = ttlRetencion.toMillis();
+      Caffeine<String, EntradaCiudadano> builder = Caffeine.newBuilder()
+          .maximumSize(config.getMaxSize())
+          .expireAfter(new Expiry<String, EntradaCiudadano>() {
+            @Override
+            public long expireAfterCreate(String clave, EntradaCiudadano entrada, long ahora) {
+              return vidaRestanteNanos(entrada.getRegistro(), retencionMillis);
+            }
+
+            @Override
+            public long expireAfterUpdate(String clave, EntradaCiudadano entrada, long ahora, long restante) {
+              return vidaRestanteNanos(entrada.getRegistro(), retencionMillis);
+            }
+
+            @Override
+            public long expireAfterRead(String clave, EntradaCiudadano entrada, long ahora, long restante) {
+              return restante;
+            }
+          });
+      if (config.isStatsEnabled()) {
+        builder.recordStats();
+      }
+      this.cacheLocal = builder.build();
+      CaffeineCacheMetrics.monitor(meterRegistry, cacheLocal, NOMBRE_CACHE);
+    } else {
+      this.cacheLocal = null;
+    }
+
+    if (config.isLocalEnabled() && config.isOffHeapEnabled()) {
+      this.almacenFueraDeHeap = new AlmacenFueraDeHeap(config.getOffHeapMaxMegabytes() * 1024L * 1024L,
+          config.getOffHeapSegments());
+      Gauge.builder("jce.cache.fuera_heap.entradas", almacenFueraDeHeap, AlmacenFueraDeHeap::getEntradas)
+          .description("Registros en el almacén local fuera del heap")
+          .register(meterRegistry);
+      Gauge.builder("jce.cache.fuera_heap.bytes", almacenFueraDeHeap, AlmacenFueraDeHeap::getBytesUsados)
+          .description("Bytes ocupados por registros vigentes fuera del heap")
+          .baseUnit("bytes")
+          .register(meterRegistry);
+      FunctionCounter.builder("jce.cache.fuera_heap.expulsiones", almacenFueraDeHeap,
+          AlmacenFueraDeHeap::getExpulsiones)
+          .description("Registros expulsados del almacén fuera del heap por falta de espacio")
+          .register(meterRegistry);
+    } else {
+      this.almacenFueraDeHeap = null;
+    }
+
+    this.aciertosLocalCounter = Counter.builder("jce.cache.aciertos")
+        .description("Aciertos del caché de consultas por nivel")
+        .tag("nivel", "local")
+        .register(meterRegistry);
+
+    this.aciertosFueraHeapCounter = Counter.builder("jce.cache.aciertos")
+        .description("Aciertos del caché de consultas por nivel")
+        .tag("nivel", "fuera_heap")
+        .register(meterRegistry);
+
+    this.aciertosSnapshotCounter = Counter.builder("jce.cache.aciertos")
+        .description("Aciertos del caché de consultas por nivel")
+        .tag("nivel", "snapshot")
+        .register(meterRegistry);
+
+    this.aciertosDistribuidoCounter = Counter.builder("jce.cache.aciertos")
+        .description("Aciertos del caché de consultas por nivel")
+        .tag("nivel", "distribuido")
+        .register(meterRegistry);
+
+    this.fallosCounter = Counter.builder("jce.cache.fallos")
+        .description("Consultas que no se encontraron en ningún nivel del caché")
+        .register(meterRegistry);
+
+    this.erroresRedisCounter = Counter.builder("jce.cache.errores")
+        .description("Errores de Redis tratados como fallo de caché")
+        .register(meterRegistry);
+
+    this.revalidacionesCounter = Counter.builder("jce.cache.revalidaciones")
+        .description("Entradas servidas tras el TTL blando que dispararon una revalidación")
+        .register(meterRegistry);
+
+    logger.info("🗄️ ConsultaCache inicializado - Local: {} (max {}), Fuera del heap: {}, Distribuido: {}, TTL: {}/{}/{}",
+        config.isLocalEnabled(), config.getMaxSize(),
+        almacenFueraDeHeap != null ? config.getOffHeapMaxMegabytes() + " MB" : "no", distribuidoHabilitado,
+        Duration.ofMillis(ttlBlandoMillis), Duration.ofMillis(ttlDuroMillis), ttlRetencion);
+  }
+
+  // ========================================
+  // MÉTODOS PÚBLICOS
+  // ========================================
+
+  /**
+   * Construye la clave de caché para una petición: la cédula limpia, común
+   * a todos los formatos.
+   *
+   * @param request petición de consulta validada
+   * @return clave del registro canónico
+   */
+  public static String claveDe(ConsultaRequest request) {
+    return request.getCedulaLimpia();
+  }
+
+  /**
+   * Construye el identificador de la variante (formato y foto) de una
+   * petición.
+   *
+   * @param request petición de consulta validada
+   * @return variante en formato formato:foto
+   */
+  public static String varianteDe(ConsultaRequest request) {
+    String formato = request.getFormato() != null ? request.getFormato().toLowerCase() : "completo";
+    return formato + ":" + (request.getIncluirFoto() ? "1" : "0");
+  }
+
+  /**
+   * Registra la acción que refresca una clave desde el portal. Se invoca
+   * cuando se sirve una entrada que pasó el TTL blando; quien la registre
+   * debe evitar refrescos duplicados de la misma clave.
+   *
+   * @param revalidador recibe la cédula limpia a refrescar
+   */
+  public void alRevalidar(Consumer<String> revalidador) {
+    this.revalidador = revalidador;
+  }
+
+  /**
+   * Indica si el registro pasó el TTL duro y solo debe usarse como respaldo
+   * ante errores del portal.
+   *
+   * @param registro registro obtenido del caché
+   * @return true si debe consultarse el portal antes de servirlo
+   */
+  public boolean estaVencido(CiudadanoCacheado registro) {
+    return registro.edadMillis(System.currentTimeMillis()) >= ttlDuroMillis;
+  }
+
+  /**
+   * Indica si el registro aún puede servirse como dato obsoleto cuando el
+   * portal falla, es decir, si no pasó {@code max-stale-minutes}.
+   *
+   * @param registro registro obtenido del caché
+   * @return true si está dentro de la retención
+   */
+  public boolean puedeServirseObsoleto(CiudadanoCacheado registro) {
+    return registro.edadMillis(System.currentTimeMillis()) < ttlRetencion.toMillis();
+  }
+
+  /**
+   * Indica si el caché Caffeine tiene un registro de la clave que aún no
+   * pasó el TTL blando. No cuenta como acierto ni fallo ni dispara
+   * revalidaciones.
+   *
+   * @param clave cédula limpia
+   * @return true si el registro local está fresco
+   */
+  public boolean tieneFrescoLocal(String clave) {
+    if (cacheLocal == null) {
+      return false;
+    }
+    EntradaCiudadano entrada = cacheLocal.asMap().get(clave);
+    return entrada != null && entrada.getRegistro().edadMillis(System.currentTimeMillis()) < ttlBlandoMillis;
+  }
+
+  /**
+   * Busca un ciudadano en el caché (primero local, luego Redis).
+   *
+   * Si el registro pasó el TTL blando pero no el duro se dispara su
+   * revalidación en segundo plano. Los registros vencidos también se
+   * devuelven; el llamador decide con {@link #estaVencido} si usarlos.
+   *
+   * @param clave cédula limpia
+   * @return Mono con el registro cacheado o vacío si no existe
+   */
+  public Mono<CiudadanoCacheado> obtener(String clave) {
+    if (cacheLocal != null) {
+      EntradaCiudadano local = cacheLocal.getIfPresent(clave);
+      if (local != null) {
+        aciertosLocalCounter.increment();
+        logger.debug("🎯 Acierto de caché local para clave: {}", clave);
+        revalidarSiCorresponde(clave, local.getRegistro());
+        return Mono.just(local.getRegistro());
+      }
+
+      EntradaCiudadano promovida = promoverDesdeFueraDeHeap(clave);
+      if (promovida != null) {
+        aciertosFueraHeapCounter.increment();
+        logger.debug("🎯 Acierto de caché fuera del heap para clave: {}", clave);
+        revalidarSiCorresponde(clave, promovida.getRegistro());
+        return Mono.just(promovida.getRegistro());
+      }
+
+      promovida = promoverDesdeSnapshot(clave);
+      if (promovida != null) {
+        aciertosSnapshotCounter.increment();
+        logger.debug("🎯 Acierto del snapshot de arranque para clave: {}", clave);
+        revalidarSiCorresponde(clave, promovida.getRegistro());
+        return Mono.just(promovida.getRegistro());
+      }
+    }
+
+    if (!distribuidoHabilitado) {
+      fallosCounter.increment();
+      return Mono.empty();
+    }
+
+    return redisTemplate.opsForValue().get(prefijoRedis + clave)
+        .timeout(timeoutRedis)
+        .doOnNext(registro -> {
+          aciertosDistribuidoCounter.increment();
+          logger.debug("🎯 Acierto de caché distribuido para clave: {}", clave);
+          if (cacheLocal != null) {
+            cacheLocal.put(clave, new EntradaCiudadano(registro));
+            guardarFueraDeHeap(clave, registro);
+          }
+          revalidarSiCorresponde(clave, registro);
+        })
+        .onErrorResume(error -> {
+          erroresRedisCounter.increment();
+          logger.warn("⚠️ Error leyendo caché distribuido para clave {}: {}", clave, error.getMessage());
+          return Mono.empty();
+        })
+        .switchIfEmpty(Mono.fromRunnable(fallosCounter::increment));
+  }
+
+  /**
+   * Busca la respuesta ya serializada de una variante en el caché local.
+   *
+   * Solo consulta memoria local y solo sirve registros que no pasaron el
+   * TTL duro. Si el ciudadano está en L1 pero la variante aún no se ha
+   * servido, se proyecta y serializa aquí una única vez.
+   *
+   * @param request    petición de consulta validada
+   * @param proyeccion convierte el registro canónico en la respuesta de la
+   *                   variante pedida
+   * @return la plantilla o null si no hay acierto local
+   */
+  public PlantillaRespuesta obtenerPlantilla(ConsultaRequest request,
+      Function<Individuo, ConsultaResponse> proyeccion) {
+    if (cacheLocal == null) {
+      return null;
+    }
+
+    String clave = claveDe(request);
+    EntradaCiudadano entrada = cacheLocal.getIfPresent(clave);
+    Counter aciertos = aciertosLocalCounter;
+    if (entrada == null) {
+      entrada = promoverDesdeFueraDeHeap(clave);
+      aciertos = aciertosFueraHeapCounter;
+    }
+    if (entrada == null) {
+      entrada = promoverDesdeSnapshot(clave);
+      aciertos = aciertosSnapshotCounter;
+    }
+    if (entrada == null || estaVencido(entrada.getRegistro())) {
+      return null;
+    }
+
+    CiudadanoCacheado registro = entrada.getRegistro();
+    PlantillaRespuesta plantilla = entrada.plantilla(varianteDe(request), () -> {
+      PlantillaRespuesta nueva = PlantillaRespuesta.de(proyeccion.apply(registro.individuo()), objectMapper);
+      if (nueva == null) {
+        logger.warn("⚠️ No se pudo serializar la plantilla de respuesta para clave: {}", clave);
+      }
+      return nueva;
+    });
+    if (plantilla == null) {
+      return null;
+    }
+
+    aciertos.increment();
+    logger.debug("🎯 Acierto de caché local serializado para clave: {}", clave);
+    revalidarSiCorresponde(clave, registro);
+    return plantilla;
+  }
+
+  /**
+   * Guarda el registro de un ciudadano encontrado en ambos niveles del
+   * caché, reemplazando las variantes serializadas anteriores.
+   *
+   * La escritura en Redis se dispara de forma asíncrona para no retrasar
+   * la respuesta al cliente; sus errores solo se registran.
+   *
+   * @param clave     cédula limpia
+   * @param individuo registro a cachear; no debe modificarse después
+   */
+  public void guardar(String clave, Individuo individuo) {
+    CiudadanoCacheado registro = new CiudadanoCacheado(DiccionarioValores.internar(individuo),
+        System.currentTimeMillis());
+    if (cacheLocal != null) {
+      cacheLocal.put(clave, new EntradaCiudadano(registro));
+      guardarFueraDeHeap(clave, registro);
+      descartarDelSnapshot(clave);
+    }
+
+    if (distribuidoHabilitado) {
+      redisTemplate.opsForValue().set(prefijoRedis + clave, registro, ttlRetencion)
+          .timeout(timeoutRedis)
+          .subscribe(
+              guardado -> logger.debug("💾 Ciudadano guardado en caché distribuido: {}", clave),
+              error -> {
+                erroresRedisCounter.increment();
+                logger.warn("⚠️ Error guardando en caché distribuido clave {}: {}", clave, error.getMessage());
+              });
+    }
+  }
+
+  /**
+   * Elimina el registro de un ciudadano de ambos niveles del caché, por
+   * ejemplo porque el portal ya no lo encuentra.
+   *
+   * @param clave cédula limpia
+   */
+  public void invalidar(String clave) {
+    if (cacheLocal != null) {
+      cacheLocal.invalidate(clave);
+    }
+    if (almacenFueraDeHeap != null) {
+      long cedula = Cedula.valorDe(clave);
+      if (cedula > 0) {
+        almacenFueraDeHeap.eliminar(cedula);
+      }
+    }
+    descartarDelSnapshot(clave);
+
+    if (distribuidoHabilitado) {
+      redisTemplate.delete(prefijoRedis + clave)
+          .timeout(timeoutRedis)
+          .subscribe(
+              eliminadas -> logger.debug("🗑️ Clave {} eliminada del caché distribuido", clave),
+              error -> {
+                erroresRedisCounter.increment();
+                logger.warn("⚠️ Error eliminando del caché distribuido clave {}: {}", clave, error.getMessage());
+              });
+    }
+  }
+
+  // ========================================
+  // SNAPSHOT DE ARRANQUE
+  // ========================================
+
+  /**
+   * Registra el snapshot leído al arrancar. Sus entradas se consultan tras
+   * fallar el nivel local y, al usarse, se promueven a él. Se suelta solo
+   * cuando vence su retención o ya no le quedan entradas pendientes.
+   *
+   * @param snapshot snapshot abierto, o null para dejar de usarlo
+   */
+  public void usarSnapshot(SnapshotCiudadanos snapshot) {
+    this.snapshot.set(snapshot);
+  }
+
+  /**
+   * Entrega los registros del nivel local, codificados con
+   * {@link CodecCiudadano}, más las entradas del snapshot de arranque que
+   * aún no se han usado y siguen dentro de la retención. Con el almacén
+   * fuera del heap activo se recorre solo este, que contiene también las
+   * entradas de Caffeine.
+   *
+   * @param visitante recibe cada cédula con los bytes de su registro
+   */
+  public void exportarLocal(AlmacenFueraDeHeap.Visitante visitante) {
+    if (cacheLocal == null) {
+      return;
+    }
+
+    long ahora = System.currentTimeMillis();
+    if (almacenFueraDeHeap != null) {
+      almacenFueraDeHeap.recorrer((cedula, bytes) -> {
+        if (dentroDeRetencion(cedula, bytes, ahora)) {
+          visitante.visitar(cedula, bytes);
+        }
+      });
+    } else {
+      cacheLocal.asMap().forEach((clave, entrada) -> {
+        long cedula = Cedula.valorDe(clave);
+        if (cedula > 0 && entrada.getRegistro().edadMillis(ahora) < ttlRetencion.toMillis()) {
+          visitante.visitar(cedula, codec.serialize(entrada.getRegistro()));
+        }
+      });
+    }
+
+    SnapshotCiudadanos actual = snapshotVigente();
+    if (actual != null) {
+      actual.recorrerPendientes((cedula, bytes) -> {
+        if (dentroDeRetencion(cedula, bytes, ahora)) {
+          visitante.visitar(cedula, bytes);
+        }
+      });
+    }
+  }
+
+  /**
+   * @return antigüedad máxima de los registros que se conservan
+   */
+  public Duration getTtlRetencion() {
+    return ttlRetencion;
+  }
+
+  // ========================================
+  // MÉTODOS PRIVADOS
+  // ========================================
+
+  /**
+   * Busca el registro en el almacén fuera del heap y, si sigue dentro de la
+   * retención, lo sube al caché Caffeine para que sus variantes se
+   * serialicen una sola vez.
+   */
+  private EntradaCiudadano promoverDesdeFueraDeHeap(String clave) {
+    if (almacenFueraDeHeap == null) {
+      return null;
+    }
+    long cedula = Cedula.valorDe(clave);
+    if (cedula <= 0) {
+      return null;
+    }
+    byte[] bytes = almacenFueraDeHeap.obtener(cedula);
+    if (bytes == null) {
+      return null;
+    }
+
+    CiudadanoCacheado registro = decodificarVigente(clave, bytes);
+    if (registro == null) {
+      almacenFueraDeHeap.eliminar(cedula);
+      return null;
+    }
+
+    EntradaCiudadano entrada = new EntradaCiudadano(registro);
+    cacheLocal.put(clave, entrada);
+    return entrada;
+  }
+
+  /**
+   * Toma el registro del snapshot de arranque y lo sube al nivel local.
+   * Las entradas conservan su momento de guardado, así que las vencidas se
+   * descartan igual que en el caché vivo.
+   */
+  private EntradaCiudadano promoverDesdeSnapshot(String clave) {
+    SnapshotCiudadanos actual = snapshotVigente();
+    if (actual == null) {
+      return null;
+    }
+    long cedula = Cedula.valorDe(clave);
+    if (cedula <= 0) {
+      return null;
+    }
+    byte[] bytes = actual.tomar(cedula);
+    if (bytes == null) {
+      return null;
+    }
+
+    CiudadanoCacheado registro = decodificarVigente(clave, bytes);
+    if (registro == null) {
+      return null;
+    }
+
+    EntradaCiudadano entrada = new EntradaCiudadano(registro);
+    cacheLocal.put(clave, entrada);
+    if (almacenFueraDeHeap != null) {
+      almacenFueraDeHeap.guardar(cedula, bytes);
+    }
+    return entrada;
+  }
+
+  private void descartarDelSnapshot(String clave) {
+    SnapshotCiudadanos actual = snapshotVigente();
+    if (actual != null) {
+      actual.descartar(Cedula.valorDe(clave));
+    }
+  }
+
+  /**
+   * Devuelve el snapshot de arranque mientras pueda aportar registros. Una
+   * vez vencida su retención, o sin entradas pendientes, se suelta la
+   * referencia para que el archivo mapeado pueda liberarse.
+   */
+  private SnapshotCiudadanos snapshotVigente() {
+    SnapshotCiudadanos actual = snapshot.get();
+    if (actual == null) {
+      return null;
+    }
+    boolean vencido = System.currentTimeMillis() - actual.getCreadoEn() >= ttlRetencion.toMillis();
+    if (!vencido && actual.getPendientes() > 0) {
+      return actual;
+    }
+    if (snapshot.compareAndSet(actual, null)) {
+      logger.info("💾 Snapshot de arranque liberado ({}), entradas sin usar: {}",
+          vencido ? "retención vencida" : "sin entradas pendientes", actual.getPendientes());
+    }
+    return null;
+  }
+
+  /**
+   * Comprueba la retención leyendo solo la cabecera del registro; los
+   * ilegibles se tratan como vencidos.
+   */
+  private boolean dentroDeRetencion(long cedula, byte[] bytes, long ahora) {
+    try {
+      return ahora - codec.leerGuardadoEn(bytes) < ttlRetencion.toMillis();
+    } catch (SerializationException e) {
+      logger.warn("⚠️ Registro local ilegible para cédula {}: {}", cedula, e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Decodifica un registro local; devuelve null si es ilegible o pasó la
+   * retención.
+   */
+  private CiudadanoCacheado decodificarVigente(String clave, byte[] bytes) {
+    CiudadanoCacheado registro;
+    try {
+      registro = codec.deserialize(bytes);
+    } catch (SerializationException e) {
+      logger.warn("⚠️ Registro local ilegible para clave {}: {}", clave, e.getMessage());
+      return null;
+    }
+    return registro.edadMillis(System.currentTimeMillis()) < ttlRetencion.toMillis() ? registro : null;
+  }
+
+  private static long vidaRestanteNanos(CiudadanoCacheado registro, long retencionMillis) {
+    long restante = retencionMillis - registro.edadMillis(System.currentTimeMillis());
+    return TimeUnit.MILLISECONDS.toNanos(Math.max(0, restante));
+  }
+
+  private void guardarFueraDeHeap(String clave, CiudadanoCacheado registro) {
+    if (almacenFueraDeHeap == null) {
+      return;
+    }
+    long cedula = Cedula.valorDe(clave);
+    if (cedula > 0 && !almacenFueraDeHeap.guardar(cedula, codec.serialize(registro))) {
+      logger.debug("⚠️ Registro demasiado grande para el almacén fuera del heap, clave: {}", clave);
+    }
+  }
+
+  private void revalidarSiCorresponde(String clave, CiudadanoCacheado registro) {
+    long edad = registro.edadMillis(System.currentTimeMillis());
+    if (edad < ttlBlandoMillis || edad >= ttlDuroMillis) {
+      return;
+    }
+    revalidacionesCounter.increment();
+    try {
+      revalidador.accept(clave);
+    } catch (Exception e) {
+      logger.warn("⚠️ No se pudo iniciar la revalidación de la clave {}: {}", clave, e.getMessage());
+    }
+  }
+}
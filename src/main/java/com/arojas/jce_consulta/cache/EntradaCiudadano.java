@@ -0,0 +1,58 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Entrada del caché local: el registro canónico de un ciudadano y las
+ * variantes serializadas que se han ido pidiendo.
+ *
+ * El registro ({@link CiudadanoCacheado}) se guarda una sola vez por
+ * cédula y se trata como inmutable; cada combinación de formato y foto se
+ * proyecta desde él y su {@link PlantillaRespuesta} se guarda aquí la
+ * primera vez que se sirve.
+ * Como las variantes viven dentro de la entrada, reemplazar o expulsar el
+ * registro canónico descarta también sus bytes serializados.
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+public final class EntradaCiudadano {
+
+  private final CiudadanoCacheado registro;
+  private final Map<String, PlantillaRespuesta> variantes = new ConcurrentHashMap<>(4);
+
+  public EntradaCiudadano(CiudadanoCacheado registro) {
+    this.registro = registro;
+  }
+
+  /**
+   * @return registro canónico del ciudadano
+   */
+  public CiudadanoCacheado getRegistro() {
+    return registro;
+  }
+
+  /**
+   * Devuelve la plantilla de una variante, construyéndola si aún no existe.
+   *
+   * @param variante  identificador de formato y foto
+   * @param proyeccion construye la plantilla; puede devolver null si falla
+   * @return la plantilla o null si no se pudo construir
+   */
+  public PlantillaRespuesta plantilla(String variante, Supplier<PlantillaRespuesta> proyeccion) {
+    PlantillaRespuesta plantilla = variantes.get(variante);
+    if (plantilla == null) {
+      plantilla = proyeccion.get();
+      if (plantilla != null) {
+        variantes.putIfAbsent(variante, plantilla);
+      }
+    }
+    return plantilla;
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.cache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.arojas.jce_consulta.config.AppProperties;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Persistencia del caché local entre reinicios mediante
+ * {@link SnapshotCiudadanos}.
+ *
+ * Al arrancar mapea el último snapshot en segundo plano y lo entrega a
+ * {@link ConsultaCache}, que lo consulta tras fallar el nivel local; así
+ * el servicio responde desde memoria a los pocos segundos de un despliegue
+ * en lugar de volcar todo el tráfico sobre la JCE. Mientras corre, escribe
+ * un snapshot nuevo cada {@code snapshot-interval-seconds}, y al apagar
+ * escribe uno final.
+ *
+ * La fase de este lifecycle es inmediatamente inferior a la del graceful
+ * shutdown del servidor web, por lo que el snapshot final se escribe
+ * después de que terminan las peticiones en curso y antes de cerrar las
+ * conexiones.
+ *
+ * Métricas publicadas:
+ * - {@code jce.cache.snapshot.escritura} (duración de cada snapshot)
+ * - {@code jce.cache.snapshot.entradas_escritas}
+ * - {@code jce.cache.snapshot.entradas_cargadas}
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+@Component
+public final class PersistenciaCacheLocal implements SmartLifecycle {
+
+  private static final Logger logger = LoggerFactory.getLogger(PersistenciaCacheLocal.class);
+
+  private final ConsultaCache consultaCache;
+  private final boolean habilitado;
+  private final Path archivo;
+  private final Timer escrituraTimer;
+
+  private volatile boolean activo;
+  private volatile long entradasEscritas;
+  private volatile long entradasCargadas;
+
+  /**
+   * Constructor con inyección de dependencias.
+   */
+  public PersistenciaCacheLocal(ConsultaCache consultaCache, AppProperties appProperties,
+      MeterRegistry meterRegistry) {
+    AppProperties.Cache config = appProperties.getCache();
+
+    this.consultaCache = consultaCache;
+    this.habilitado = config.isSnapshotEnabled() && config.isLocalEnabled();
+    this.archivo = Path.of(config.getSnapshotPath());
+
+    this.escrituraTimer = Timer.builder("jce.cache.snapshot.escritura")
+        .description("Duración de la escritura del snapshot del caché local")
+        .register(meterRegistry);
+
+    Gauge.builder("jce.cache.snapshot.entradas_escritas", this, p -> p.entradasEscritas)
+        .description("Entradas en el último snapshot escrito")
+        .register(meterRegistry);
+
+    Gauge.builder("jce.cache.snapshot.entradas_cargadas", this, p -> p.entradasCargadas)
+        .description("Entradas indexadas del snapshot leído al arrancar")
+        .register(meterRegistry);
+
+    logger.info("💾 PersistenciaCacheLocal inicializada - Habilitada: {}, Archivo: {}", habilitado,
+        archivo.toAbsolutePath());
+  }
+
+  // ========================================
+  // CICLO DE VIDA
+  // ========================================
+
+  @Override
+  public void start() {
+    activo = true;
+    if (habilitado) {
+      Schedulers.boundedElastic().schedule(this::cargar);
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (activo && habilitado) {
+      escribir();
+    }
+    activo = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return activo;
+  }
+
+  @Override
+  public int getPhase() {
+    // Se detiene después del graceful shutdown del servidor web
+    return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 1;
+  }
+
+  // ========================================
+  // SNAPSHOTS
+  // ========================================
+
+  /**
+   * Escribe el snapshot periódico.
+   */
+  @Scheduled(initialDelayString = "#{${jce.consulta.cache.snapshot-interval-seconds:300} * 1000}",
+      fixedDelayString = "#{${jce.consulta.cache.snapshot-interval-seconds:300} * 1000}")
+  public void escribirPeriodico() {
+    if (activo && habilitado) {
+      escribir();
+    }
+  }
+
+  /**
+   * Escribe un snapshot del caché local. Los errores de disco solo se
+   * registran: el snapshot anterior queda intacto.
+   *
+   * @return entradas escritas, o -1 si falló
+   */
+  public synchronized long escribir() {
+    long inicio = System.nanoTime();
+    try {
+      long escritas = SnapshotCiudadanos.escribir(archivo, System.currentTimeMillis(),
+          consultaCache::exportarLocal);
+      Duration duracion = Duration.ofNanos(System.nanoTime() - inicio);
+      escrituraTimer.record(duracion);
+      entradasEscritas = escritas;
+      logger.info("💾 Snapshot del caché local escrito: {} entradas en {} ms", escritas, duracion.toMillis());
+      return escritas;
+    } catch (IOException | RuntimeException e) {
+      logger.warn("⚠️ No se pudo escribir el snapshot del caché local en {}: {}", archivo, e.getMessage());
+      return -1;
+    }
+  }
+
+  private void cargar() {
+    long inicio = System.nanoTime();
+    try {
+      SnapshotCiudadanos snapshot = SnapshotCiudadanos.abrir(archivo);
+      if (snapshot == null) {
+        logger.info("💾 Sin snapshot compatible del caché local en {}; se arranca en frío", archivo);
+        return;
+      }
+
+      long edad = System.currentTimeMillis() - snapshot.getCreadoEn();
+      if (edad >= consultaCache.getTtlRetencion().toMillis()) {
+        logger.info("💾 Snapshot del caché local descartado por antigüedad ({} min)",
+            Duration.ofMillis(edad).toMinutes());
+        return;
+      }
+
+      consultaCache.usarSnapshot(snapshot);
+      entradasCargadas = snapshot.getEntradas();
+      logger.info("💾 Snapshot del caché local cargado: {} entradas indexadas en {} ms", snapshot.getEntradas(),
+          Duration.ofNanos(System.nanoTime() - inicio).toMillis());
+    } catch (IOException | RuntimeException e) {
+      logger.warn("⚠️ No se pudo leer el snapshot del caché local en {}: {}", archivo, e.getMessage());
+    }
+  }
+}
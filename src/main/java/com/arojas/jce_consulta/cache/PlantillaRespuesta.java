@@ -0,0 +1,414 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.arojas.jce_consulta.DTOs.ConsultaResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+
+/**
+ * Respuesta JSON serializada una sola vez y reutilizada en cada acierto de
+ * caché.
+ *
+ * El cuerpo se genera con Jackson usando valores centinela para
+ * {@code timestamp} y {@code tiempoRespuesta}, y se guardan las posiciones
+ * de ambos valores. En cada acierto solo se copian los bytes y se escriben
+ * esos dos campos, sin recorrer de nuevo el objeto ni invocar Jackson. El
+ * timestamp tiene ancho fijo (yyyy-MM-ddTHH:mm:ss) y se sobrescribe en el
+ * sitio; el tiempo de respuesta se inserta con su longitud real.
+ *
+ * También se guarda la forma gzip del cuerpo, comprimida una sola vez al
+ * construir la plantilla. El tramo dinámico (del timestamp al tiempo de
+ * respuesta, unos 50 bytes) no se comprime: el flujo deflate se arma con
+ * el prefijo y el sufijo comprimidos por separado, cada uno sin
+ * referencias fuera de su tramo, y entre ambos un bloque almacenado
+ * (stored) con los bytes de la petición. El CRC32 del cuerpo se obtiene
+ * continuando el del prefijo con el tramo dinámico y combinándolo con el
+ * del sufijo mediante un operador precalculado, sin recorrer el sufijo.
+ *
+ * El ETag es un hash del cuerpo sin el timestamp ni el tiempo de
+ * respuesta, calculado al construir la plantilla: cambia solo si cambian
+ * los datos de la variante. La forma gzip usa el mismo hash con el sufijo
+ * {@code -gz}, porque es otra representación.
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+public final class PlantillaRespuesta {
+
+  private static final LocalDateTime TIMESTAMP_CENTINELA = LocalDateTime.of(2000, 1, 1, 0, 0, 0);
+  private static final long TIEMPO_CENTINELA = 9_087_654_321_234_567L;
+
+  private static final byte[] MARCA_TIMESTAMP = "\"timestamp\":\"2000-01-01T00:00:00\""
+      .getBytes(StandardCharsets.UTF_8);
+  private static final byte[] MARCA_TIEMPO = ("\"tiempoRespuesta\":" + TIEMPO_CENTINELA)
+      .getBytes(StandardCharsets.UTF_8);
+  private static final int LONGITUD_TIMESTAMP = 19;
+  private static final int LONGITUD_TIEMPO_CENTINELA = String.valueOf(TIEMPO_CENTINELA).length();
+
+  // Cabecera gzip: deflate, sin nombre ni fecha, sistema desconocido
+  private static final byte[] CABECERA_GZIP = { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+  private static final int POLINOMIO_CRC = 0xEDB88320;
+  private static final int[] TABLA_CRC = tablaCrc();
+
+  private final byte[] cuerpo;
+  private final int inicioTimestamp;
+  private final int inicioTiempo;
+
+  // Forma gzip: cabecera + prefijo comprimido, y sufijo comprimido final
+  private final byte[] gzipPrefijo;
+  private final byte[] gzipSufijo;
+  private final int crcPrefijo;
+  private final int crcSufijo;
+  private final int[] operadorSufijo;
+
+  private final String etag;
+  private final String etagGzip;
+
+  private PlantillaRespuesta(byte[] cuerpo, int inicioTimestamp, int inicioTiempo) {
+    this.cuerpo = cuerpo;
+    this.inicioTimestamp = inicioTimestamp;
+    this.inicioTiempo = inicioTiempo;
+
+    int finCentinela = inicioTiempo + LONGITUD_TIEMPO_CENTINELA;
+    ByteArrayOutputStream prefijo = new ByteArrayOutputStream(cuerpo.length / 2);
+    prefijo.writeBytes(CABECERA_GZIP);
+    comprimir(prefijo, cuerpo, 0, inicioTimestamp, false);
+    ByteArrayOutputStream sufijo = new ByteArrayOutputStream(cuerpo.length / 2);
+    comprimir(sufijo, cuerpo, finCentinela, cuerpo.length - finCentinela, true);
+
+    this.gzipPrefijo = prefijo.toByteArray();
+    this.gzipSufijo = sufijo.toByteArray();
+    this.crcPrefijo = crc(cuerpo, 0, inicioTimestamp);
+    this.crcSufijo = crc(cuerpo, finCentinela, cuerpo.length - finCentinela);
+    this.operadorSufijo = operadorCeros(cuerpo.length - finCentinela);
+
+    int finTimestamp = inicioTimestamp + LONGITUD_TIMESTAMP;
+    String hash = Hashing.murmur3_128().newHasher()
+        .putBytes(cuerpo, 0, inicioTimestamp)
+        .putBytes(cuerpo, finTimestamp, inicioTiempo - finTimestamp)
+        .putBytes(cuerpo, finCentinela, cuerpo.length - finCentinela)
+        .hash()
+        .toString();
+    this.etag = "\"" + hash + "\"";
+    this.etagGzip = "\"" + hash + "-gz\"";
+  }
+
+  // ========================================
+  // CONSTRUCCIÓN
+  // ========================================
+
+  /**
+   * Serializa la respuesta y prepara la plantilla.
+   *
+   * @param respuesta    respuesta a serializar
+   * @param objectMapper mapper de la aplicación, para que el JSON sea
+   *                     idéntico al de la ruta normal
+   * @return la plantilla, o null si no se pudo construir
+   */
+  public static PlantillaRespuesta de(ConsultaResponse respuesta, ObjectMapper objectMapper) {
+    ConsultaResponse centinela = new ConsultaResponse(
+        respuesta.exitosa(),
+        respuesta.mensaje(),
+        respuesta.codigo(),
+        TIMESTAMP_CENTINELA,
+        TIEMPO_CENTINELA,
+        respuesta.cedulaConsultada(),
+        respuesta.datos(),
+        respuesta.foto(),
+        respuesta.datosObsoletos());
+
+    byte[] cuerpo;
+    try {
+      cuerpo = objectMapper.writeValueAsBytes(centinela);
+    } catch (JsonProcessingException e) {
+      return null;
+    }
+
+    int marcaTimestamp = buscar(cuerpo, MARCA_TIMESTAMP);
+    int marcaTiempo = buscar(cuerpo, MARCA_TIEMPO);
+    if (marcaTimestamp < 0 || marcaTiempo < 0 || marcaTiempo < marcaTimestamp) {
+      return null;
+    }
+
+    int inicioTimestamp = marcaTimestamp + MARCA_TIMESTAMP.length - LONGITUD_TIMESTAMP - 1;
+    int inicioTiempo = marcaTiempo + MARCA_TIEMPO.length - LONGITUD_TIEMPO_CENTINELA;
+    return new PlantillaRespuesta(cuerpo, inicioTimestamp, inicioTiempo);
+  }
+
+  // ========================================
+  // RENDERIZADO
+  // ========================================
+
+  /**
+   * Genera el cuerpo JSON con el timestamp y tiempo de respuesta indicados.
+   *
+   * @param timestamp       momento de la respuesta
+   * @param tiempoRespuesta tiempo de respuesta en milisegundos (no negativo)
+   * @return bytes UTF-8 del JSON
+   */
+  public byte[] renderizar(LocalDateTime timestamp, long tiempoRespuesta) {
+    int digitos = contarDigitos(tiempoRespuesta);
+    int finCentinela = inicioTiempo + LONGITUD_TIEMPO_CENTINELA;
+    byte[] salida = new byte[cuerpo.length - LONGITUD_TIEMPO_CENTINELA + digitos];
+
+    System.arraycopy(cuerpo, 0, salida, 0, inicioTiempo);
+    escribirTimestamp(salida, inicioTimestamp, timestamp);
+    escribirNumero(salida, inicioTiempo, digitos, tiempoRespuesta);
+    System.arraycopy(cuerpo, finCentinela, salida, inicioTiempo + digitos, cuerpo.length - finCentinela);
+    return salida;
+  }
+
+  /**
+   * Genera el cuerpo JSON comprimido con gzip, equivalente a
+   * {@link #renderizar(LocalDateTime, long)}.
+   *
+   * @param timestamp       momento de la respuesta
+   * @param tiempoRespuesta tiempo de respuesta en milisegundos (no negativo)
+   * @return bytes gzip del JSON
+   */
+  public byte[] renderizarGzip(LocalDateTime timestamp, long tiempoRespuesta) {
+    int digitos = contarDigitos(tiempoRespuesta);
+    int longitudDinamica = inicioTiempo - inicioTimestamp + digitos;
+    int longitudSufijo = cuerpo.length - inicioTiempo - LONGITUD_TIEMPO_CENTINELA;
+
+    byte[] salida = new byte[gzipPrefijo.length + 5 + longitudDinamica + gzipSufijo.length + 8];
+    System.arraycopy(gzipPrefijo, 0, salida, 0, gzipPrefijo.length);
+    int posicion = gzipPrefijo.length;
+
+    // Bloque almacenado no final: BFINAL=0, BTYPE=00, LEN y NLEN en little endian
+    salida[posicion] = 0;
+    escribirEnteroLe(salida, posicion + 1, longitudDinamica | (~longitudDinamica & 0xFFFF) << 16);
+    posicion += 5;
+
+    int inicioDinamico = posicion;
+    System.arraycopy(cuerpo, inicioTimestamp, salida, posicion, inicioTiempo - inicioTimestamp);
+    escribirTimestamp(salida, posicion, timestamp);
+    escribirNumero(salida, posicion + inicioTiempo - inicioTimestamp, digitos, tiempoRespuesta);
+    posicion += longitudDinamica;
+
+    System.arraycopy(gzipSufijo, 0, salida, posicion, gzipSufijo.length);
+    posicion += gzipSufijo.length;
+
+    int crc = continuarCrc(crcPrefijo, salida, inicioDinamico, longitudDinamica);
+    crc = aplicar(operadorSufijo, crc) ^ crcSufijo;
+    escribirEnteroLe(salida, posicion, crc);
+    escribirEnteroLe(salida, posicion + 4, inicioTimestamp + longitudDinamica + longitudSufijo);
+    return salida;
+  }
+
+  /**
+   * @return tamaño en bytes de la plantilla
+   */
+  public int getTamano() {
+    return cuerpo.length;
+  }
+
+  // ========================================
+  // VALIDACIÓN CONDICIONAL
+  // ========================================
+
+  /**
+   * @param gzip si la representación es la forma gzip
+   * @return ETag fuerte de la representación, entre comillas
+   */
+  public String getEtag(boolean gzip) {
+    return gzip ? etagGzip : etag;
+  }
+
+  /**
+   * Evalúa un header If-None-Match con comparación débil, como indica la
+   * RFC 9110: cualquiera de las dos representaciones de esta plantilla
+   * coincide, con o sin prefijo {@code W/}.
+   *
+   * @param ifNoneMatch valor del header, o null si no vino
+   * @return true si se puede responder 304 Not Modified
+   */
+  public boolean coincide(String ifNoneMatch) {
+    if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+      return false;
+    }
+    for (String candidato : ifNoneMatch.split(",")) {
+      String valor = candidato.trim();
+      if (valor.equals("*")) {
+        return true;
+      }
+      if (valor.startsWith("W/")) {
+        valor = valor.substring(2);
+      }
+      if (valor.equals(etag) || valor.equals(etagGzip)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // ========================================
+  // MÉTODOS PRIVADOS
+  // ========================================
+
+  private static int buscar(byte[] datos, byte[] patron) {
+    outer: for (int i = 0, limite = datos.length - patron.length; i <= limite; i++) {
+      for (int j = 0; j < patron.length; j++) {
+        if (datos[i + j] != patron[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  private static void escribirTimestamp(byte[] destino, int inicio, LocalDateTime timestamp) {
+    escribirNumero(destino, inicio, 4, timestamp.getYear());
+    escribirNumero(destino, inicio + 5, 2, timestamp.getMonthValue());
+    escribirNumero(destino, inicio + 8, 2, timestamp.getDayOfMonth());
+    escribirNumero(destino, inicio + 11, 2, timestamp.getHour());
+    escribirNumero(destino, inicio + 14, 2, timestamp.getMinute());
+    escribirNumero(destino, inicio + 17, 2, timestamp.getSecond());
+  }
+
+  private static void escribirNumero(byte[] destino, int inicio, int digitos, long valor) {
+    long resto = valor;
+    for (int i = inicio + digitos - 1; i >= inicio; i--) {
+      destino[i] = (byte) ('0' + resto % 10);
+      resto /= 10;
+    }
+  }
+
+  private static int contarDigitos(long valor) {
+    int digitos = 1;
+    long resto = valor;
+    while (resto >= 10) {
+      resto /= 10;
+      digitos++;
+    }
+    return digitos;
+  }
+
+  private static void escribirEnteroLe(byte[] destino, int inicio, int valor) {
+    destino[inicio] = (byte) valor;
+    destino[inicio + 1] = (byte) (valor >>> 8);
+    destino[inicio + 2] = (byte) (valor >>> 16);
+    destino[inicio + 3] = (byte) (valor >>> 24);
+  }
+
+  // ========================================
+  // DEFLATE Y CRC32
+  // ========================================
+
+  /**
+   * Comprime un tramo como flujo deflate crudo independiente. Los tramos no
+   * finales terminan con un vaciado de sincronización, alineados a byte,
+   * para poder continuar el flujo con otros bloques.
+   */
+  private static void comprimir(ByteArrayOutputStream salida, byte[] datos, int inicio, int longitud,
+      boolean esFinal) {
+    Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+    try {
+      deflater.setInput(datos, inicio, longitud);
+      byte[] bufer = new byte[Math.max(64, longitud + 64)];
+      if (esFinal) {
+        deflater.finish();
+        while (!deflater.finished()) {
+          salida.write(bufer, 0, deflater.deflate(bufer));
+        }
+      } else {
+        int escritos;
+        do {
+          escritos = deflater.deflate(bufer, 0, bufer.length, Deflater.SYNC_FLUSH);
+          salida.write(bufer, 0, escritos);
+        } while (escritos == bufer.length);
+      }
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static int crc(byte[] datos, int inicio, int longitud) {
+    CRC32 crc = new CRC32();
+    crc.update(datos, inicio, longitud);
+    return (int) crc.getValue();
+  }
+
+  /**
+   * Continúa un CRC32 ya calculado con más bytes.
+   */
+  private static int continuarCrc(int crc, byte[] datos, int inicio, int longitud) {
+    int c = ~crc;
+    for (int i = inicio, fin = inicio + longitud; i < fin; i++) {
+      c = TABLA_CRC[(c ^ datos[i]) & 0xFF] ^ (c >>> 8);
+    }
+    return ~c;
+  }
+
+  /**
+   * Operador lineal sobre GF(2) que desplaza un CRC32 como si le siguieran
+   * {@code bytes} bytes en cero. Con él, crc(A + B) = aplicar(operador,
+   * crc(A)) ^ crc(B), como {@code crc32_combine} de zlib.
+   */
+  private static int[] operadorCeros(long bytes) {
+    // Operador de un bit en cero, elevado al cuadrado tres veces: un byte
+    int[] potencia = new int[32];
+    potencia[0] = POLINOMIO_CRC;
+    for (int n = 1; n < 32; n++) {
+      potencia[n] = 1 << (n - 1);
+    }
+    for (int i = 0; i < 3; i++) {
+      potencia = componer(potencia, potencia);
+    }
+
+    int[] resultado = new int[32];
+    for (int n = 0; n < 32; n++) {
+      resultado[n] = 1 << n;
+    }
+    for (long resto = bytes; resto != 0; resto >>>= 1) {
+      if ((resto & 1) != 0) {
+        resultado = componer(potencia, resultado);
+      }
+      if (resto > 1) {
+        potencia = componer(potencia, potencia);
+      }
+    }
+    return resultado;
+  }
+
+  private static int[] componer(int[] a, int[] b) {
+    int[] resultado = new int[32];
+    for (int n = 0; n < 32; n++) {
+      resultado[n] = aplicar(a, b[n]);
+    }
+    return resultado;
+  }
+
+  private static int aplicar(int[] operador, int vector) {
+    int suma = 0;
+    for (int i = 0, v = vector; v != 0; i++, v >>>= 1) {
+      if ((v & 1) != 0) {
+        suma ^= operador[i];
+      }
+    }
+    return suma;
+  }
+
+  private static int[] tablaCrc() {
+    int[] tabla = new int[256];
+    for (int n = 0; n < 256; n++) {
+      int c = n;
+      for (int k = 0; k < 8; k++) {
+        c = (c & 1) != 0 ? POLINOMIO_CRC ^ (c >>> 1) : c >>> 1;
+      }
+      tabla[n] = c;
+    }
+    return tabla;
+  }
+}
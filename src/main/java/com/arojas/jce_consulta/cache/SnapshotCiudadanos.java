@@ -0,0 +1,334 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot en disco del caché local de ciudadanos, para arrancar con el
+ * caché caliente tras un despliegue o reinicio.
+ *
+ * Formato (versión 1):
+ * <pre>
+ * cabecera = [magia "JCES":4][versión:1][versiónCodec:1][creadoEn:8]
+ * entrada  = [longitud:4][crc32:4][cédula:8][registro:longitud]
+ * </pre>
+ * El registro son los bytes de {@link CodecCiudadano}, que incluyen el
+ * momento en que se guardó; por eso las entradas conservan su vencimiento
+ * original. El CRC32 cubre cédula y registro.
+ *
+ * El archivo se escribe solo añadiendo entradas a un temporal a través de
+ * {@link FileChannel}, se sincroniza y se renombra de forma atómica sobre
+ * el anterior; un lector nunca ve un snapshot a medias. Al abrirlo se mapea
+ * en memoria y se construye un índice ordenado de cédulas (8 bytes por
+ * entrada) sin decodificar ningún registro; cada registro se verifica y se
+ * decodifica solo cuando se pide. Una cola truncada o corrupta termina el
+ * índice en la última entrada válida.
+ *
+ * Cada entrada se entrega una sola vez: tras {@link #tomar(long)} o
+ * {@link #descartar(long)} el caché vivo es la fuente de verdad.
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+public final class SnapshotCiudadanos {
+
+  public static final byte VERSION = 1;
+
+  private static final int MAGIA = 0x4A434553; // "JCES"
+  private static final int TAMANO_CABECERA = 4 + 1 + 1 + 8;
+  private static final int CABECERA_ENTRADA = 4 + 4 + 8;
+  private static final int TAMANO_MAXIMO_REGISTRO = 64 * 1024;
+
+  // Índice empaquetado: cédula (37 bits) << 26 | número de entrada
+  private static final int BITS_ENTRADA = 26;
+  private static final int MAXIMO_ENTRADAS = 1 << BITS_ENTRADA;
+  private static final long MASCARA_ENTRADA = MAXIMO_ENTRADAS - 1;
+
+  private final MappedByteBuffer datos;
+  private final long creadoEn;
+  private final long[] indice;
+  private final int[] posiciones;
+  private final BitSet entregadas;
+  private volatile int pendientes;
+
+  private SnapshotCiudadanos(MappedByteBuffer datos, long creadoEn, long[] indice, int[] posiciones) {
+    this.datos = datos;
+    this.creadoEn = creadoEn;
+    this.indice = indice;
+    this.posiciones = posiciones;
+    this.entregadas = new BitSet(posiciones.length);
+    this.pendientes = posiciones.length;
+  }
+
+  // ========================================
+  // ESCRITURA
+  // ========================================
+
+  /**
+   * Escribe un snapshot completo y reemplaza el anterior de forma atómica.
+   *
+   * @param archivo  destino
+   * @param creadoEn momento del snapshot (epoch millis)
+   * @param fuente   recibe un visitante y le entrega cada cédula con los
+   *                 bytes de su registro
+   * @return cantidad de entradas escritas
+   * @throws IOException si falla la escritura; el snapshot anterior queda
+   *                     intacto
+   */
+  public static long escribir(Path archivo, long creadoEn, Consumer<AlmacenFueraDeHeap.Visitante> fuente)
+      throws IOException {
+    Path directorio = archivo.toAbsolutePath().getParent();
+    if (directorio != null) {
+      Files.createDirectories(directorio);
+    }
+    Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+
+    long[] escritas = new long[1];
+    try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer bufer = ByteBuffer.allocate(256 * 1024);
+      bufer.putInt(MAGIA).put(VERSION).put(CodecCiudadano.VERSION).putLong(creadoEn);
+
+      CRC32 crc = new CRC32();
+      long[] tamano = { TAMANO_CABECERA };
+      try {
+        fuente.accept((cedula, registro) -> {
+          int longitud = CABECERA_ENTRADA + registro.length;
+          // El índice y el mapeo del lector limitan el tamaño del archivo
+          if (escritas[0] >= MAXIMO_ENTRADAS || tamano[0] + longitud > Integer.MAX_VALUE
+              || registro.length > TAMANO_MAXIMO_REGISTRO) {
+            return;
+          }
+          try {
+            if (bufer.remaining() < longitud) {
+              vaciar(canal, bufer);
+            }
+            crc.reset();
+            crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, cedula));
+            crc.update(registro);
+            bufer.putInt(registro.length).putInt((int) crc.getValue()).putLong(cedula).put(registro);
+          } catch (IOException e) {
+            throw new EscrituraFallida(e);
+          }
+          tamano[0] += longitud;
+          escritas[0]++;
+        });
+      } catch (EscrituraFallida e) {
+        throw e.causa;
+      }
+      vaciar(canal, bufer);
+      canal.force(true);
+    }
+
+    Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return escritas[0];
+  }
+
+  // ========================================
+  // LECTURA
+  // ========================================
+
+  /**
+   * Mapea un snapshot y construye su índice.
+   *
+   * @param archivo snapshot a abrir
+   * @return el snapshot, o null si no existe o no es de una versión
+   *         compatible
+   * @throws IOException si no se puede leer el archivo
+   */
+  public static SnapshotCiudadanos abrir(Path archivo) throws IOException {
+    if (!Files.isRegularFile(archivo)) {
+      return null;
+    }
+
+    MappedByteBuffer datos;
+    try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+      long tamano = canal.size();
+      if (tamano < TAMANO_CABECERA || tamano > Integer.MAX_VALUE) {
+        return null;
+      }
+      datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamano);
+    }
+
+    if (datos.getInt(0) != MAGIA || datos.get(4) != VERSION || datos.get(5) != CodecCiudadano.VERSION) {
+      return null;
+    }
+    long creadoEn = datos.getLong(6);
+
+    long[] indice = new long[1024];
+    int[] posiciones = new int[1024];
+    int n = 0;
+    int posicion = TAMANO_CABECERA;
+    int limite = datos.capacity();
+    while (posicion + CABECERA_ENTRADA <= limite && n < MAXIMO_ENTRADAS) {
+      int longitud = datos.getInt(posicion);
+      long cedula = datos.getLong(posicion + 8);
+      if (longitud < 0 || longitud > TAMANO_MAXIMO_REGISTRO || posicion + CABECERA_ENTRADA + longitud > limite
+          || cedula <= 0 || cedula >= 1L << (63 - BITS_ENTRADA)) {
+        break;
+      }
+      if (n == indice.length) {
+        indice = Arrays.copyOf(indice, n * 2);
+        posiciones = Arrays.copyOf(posiciones, n * 2);
+      }
+      indice[n] = cedula << BITS_ENTRADA | n;
+      posiciones[n] = posicion;
+      n++;
+      posicion += CABECERA_ENTRADA + longitud;
+    }
+
+    indice = Arrays.copyOf(indice, n);
+    Arrays.parallelSort(indice);
+    return new SnapshotCiudadanos(datos, creadoEn, indice, Arrays.copyOf(posiciones, n));
+  }
+
+  /**
+   * Entrega el registro de una cédula y lo marca como consumido.
+   *
+   * @param cedula cédula como número
+   * @return bytes del registro, o null si no está, ya se entregó o su
+   *         checksum no coincide
+   */
+  public byte[] tomar(long cedula) {
+    int entrada = buscar(cedula);
+    if (entrada < 0 || !marcar(entrada)) {
+      return null;
+    }
+    return leer(entrada, cedula);
+  }
+
+  /**
+   * Entrega las entradas que aún no se han tomado ni descartado, sin
+   * marcarlas, para llevarlas al siguiente snapshot.
+   *
+   * @param visitante recibe cada cédula con los bytes de su registro
+   */
+  public void recorrerPendientes(AlmacenFueraDeHeap.Visitante visitante) {
+    for (long empaquetado : indice) {
+      int entrada = (int) (empaquetado & MASCARA_ENTRADA);
+      boolean entregada;
+      synchronized (entregadas) {
+        entregada = entregadas.get(entrada);
+      }
+      if (entregada) {
+        continue;
+      }
+      long cedula = empaquetado >>> BITS_ENTRADA;
+      byte[] registro = leer(entrada, cedula);
+      if (registro != null) {
+        visitante.visitar(cedula, registro);
+      }
+    }
+  }
+
+  /**
+   * Marca como consumida la entrada de una cédula sin leerla, porque el
+   * caché vivo tiene un dato más reciente o la eliminó.
+   *
+   * @param cedula cédula como número
+   */
+  public void descartar(long cedula) {
+    int entrada = buscar(cedula);
+    if (entrada >= 0) {
+      marcar(entrada);
+    }
+  }
+
+  /**
+   * @return cantidad de entradas indexadas
+   */
+  public int getEntradas() {
+    return indice.length;
+  }
+
+  /**
+   * @return cantidad de entradas que aún no se han tomado ni descartado
+   */
+  public int getPendientes() {
+    return pendientes;
+  }
+
+  /**
+   * @return momento en que se escribió el snapshot (epoch millis)
+   */
+  public long getCreadoEn() {
+    return creadoEn;
+  }
+
+  // ========================================
+  // MÉTODOS PRIVADOS
+  // ========================================
+
+  private int buscar(long cedula) {
+    if (cedula <= 0 || cedula >= 1L << (63 - BITS_ENTRADA)) {
+      return -1;
+    }
+    int i = Arrays.binarySearch(indice, cedula << BITS_ENTRADA);
+    // Nunca coincide exacto salvo la entrada 0; el punto de inserción apunta a la cédula
+    int candidato = i >= 0 ? i : -i - 1;
+    if (candidato >= indice.length || indice[candidato] >>> BITS_ENTRADA != cedula) {
+      return -1;
+    }
+    return (int) (indice[candidato] & MASCARA_ENTRADA);
+  }
+
+  /**
+   * Lee una entrada y verifica su checksum.
+   */
+  private byte[] leer(int entrada, long cedula) {
+    int posicion = posiciones[entrada];
+    byte[] registro = new byte[datos.getInt(posicion)];
+    datos.get(posicion + CABECERA_ENTRADA, registro);
+
+    CRC32 crc = new CRC32();
+    crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, cedula));
+    crc.update(registro);
+    return (int) crc.getValue() == datos.getInt(posicion + 4) ? registro : null;
+  }
+
+  private boolean marcar(int entrada) {
+    synchronized (entregadas) {
+      if (entregadas.get(entrada)) {
+        return false;
+      }
+      entregadas.set(entrada);
+      pendientes--;
+      return true;
+    }
+  }
+
+  private static void vaciar(FileChannel canal, ByteBuffer bufer) throws IOException {
+    bufer.flip();
+    while (bufer.hasRemaining()) {
+      canal.write(bufer);
+    }
+    bufer.clear();
+  }
+
+  /**
+   * Transporta un {@link IOException} fuera del visitante.
+   */
+  private static final class EscrituraFallida extends RuntimeException {
+
+    private final IOException causa;
+
+    EscrituraFallida(IOException causa) {
+      super(causa);
+      this.causa = causa;
+    }
+  }
+}
@@ -5,22 +5,41 @@
 package com.arojas.jce_consulta.client;
 
 import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import com.arojas.jce_consulta.config.AppProperties;
+import com.arojas.jce_consulta.exceptions.ApiException;
 import com.arojas.jce_consulta.model.Individuo;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.arojas.jce_consulta.resilience.AdaptiveConcurrencyLimiter;
+import com.arojas.jce_consulta.resilience.HedgingPolicy;
+import com.arojas.jce_consulta.resilience.TokenRatioBudget;
 
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
 import reactor.util.retry.Retry;
 
 /**
@@ -37,18 +56,33 @@ import reactor.util.retry.Retry;
  * @version 1.0.0
  */
 @Component
-public class JceHttpClient {
+public final class JceHttpClient {
 
   private static final Logger logger = LoggerFactory.getLogger(JceHttpClient.class);
 
   private final WebClient webClient;
-  private final XmlMapper xmlMapper;
   private final String baseUrl;
   private final String endpoint;
   private final String serviceId;
   private final int timeoutSeconds;
+  private final boolean retryEnabled;
   private final int maxRetries;
   private final long retryDelayMs;
+  private final long retryMaxDelayMs;
+  private final double retryMultiplier;
+  private final CircuitBreaker circuitBreaker;
+  private final TokenRatioBudget presupuestoReintentos;
+  private final AdaptiveConcurrencyLimiter limitadorConcurrencia;
+  private final boolean limitadorHabilitado;
+  private final HedgingPolicy politicaCobertura;
+
+  // Consultas en curso por cédula (single-flight)
+  private final ConcurrentHashMap<String, Mono<Individuo>> consultasEnCurso = new ConcurrentHashMap<>();
+
+  // Métricas
+  private final Counter consultasLiderCounter;
+  private final Counter consultasCoalescidasCounter;
+  private final Counter reintentosDescartadosCounter;
 
   // ========================================
   // CONSTRUCTOR Y CONFIGURACIÓN
@@ -59,44 +93,81 @@ public class JceHttpClient {
    */
   public JceHttpClient(
       WebClient.Builder webClientBuilder,
+      @Qualifier("jcePortalHttpClient") HttpClient jcePortalHttpClient,
+      @Qualifier("jceCircuitBreaker") CircuitBreaker circuitBreaker,
+      @Qualifier("presupuestoReintentos") TokenRatioBudget presupuestoReintentos,
+      @Qualifier("limitadorConcurrenciaJce") AdaptiveConcurrencyLimiter limitadorConcurrencia,
+      @Qualifier("politicaCoberturaJce") HedgingPolicy politicaCobertura,
+      AppProperties appProperties,
+      MeterRegistry meterRegistry,
       @Value("${jce.portal.base-url}") String baseUrl,
       @Value("${jce.portal.endpoint}") String endpoint,
       @Value("${jce.portal.service-id}") String serviceId,
-      @Value("${jce.portal.timeout:25000}") int timeoutMs,
-      @Value("${jce.portal.retry.max-attempts:3}") int maxRetries,
-      @Value("${jce.portal.retry.delay:1000}") long retryDelayMs) {
+      @Value("${jce.portal.timeout:25000}") int timeoutMs) {
 
     this.baseUrl = baseUrl;
     this.endpoint = endpoint;
     this.serviceId = serviceId;
     this.timeoutSeconds = timeoutMs / 1000;
-    this.maxRetries = maxRetries;
-    this.retryDelayMs = retryDelayMs;
-
-    // Configurar XML Mapper para procesar respuestas XML de JCE
-    this.xmlMapper = new XmlMapper();
-
-    // Configurar WebClient con timeouts y headers optimizados
+    this.circuitBreaker = circuitBreaker;
+    this.presupuestoReintentos = presupuestoReintentos;
+    this.limitadorConcurrencia = limitadorConcurrencia;
+    this.politicaCobertura = politicaCobertura;
+
+    AppProperties.Resilience resilience = appProperties.getResilience();
+    this.limitadorHabilitado = resilience.isConcurrencyLimitEnabled();
+    this.retryEnabled = resilience.isRetryEnabled();
+    this.maxRetries = resilience.getMaxRetryAttempts();
+    this.retryDelayMs = resilience.getRetryDelayMillis();
+    this.retryMaxDelayMs = resilience.getRetryMaxDelayMillis();
+    this.retryMultiplier = resilience.getRetryMultiplier();
+
+    // Configurar WebClient sobre el pool dedicado del portal (timeouts y
+    // compresión definidos en WebClientConfig)
     this.webClient = webClientBuilder
+        .clientConnector(new ReactorClientHttpConnector(jcePortalHttpClient))
         .baseUrl(baseUrl)
         .defaultHeader("User-Agent",
             "JCE-Consulta-Microservice/1.0.0 (Spring Boot 3.5.0; Java 21)")
         .defaultHeader("Accept", MediaType.APPLICATION_XML_VALUE)
         .defaultHeader("Accept-Charset", "UTF-8")
-        .defaultHeader("Accept-Encoding", "gzip, deflate")
         .defaultHeader("Connection", "keep-alive")
         .codecs(configurer -> {
-          configurer.defaultCodecs().maxInMemorySize(1024 * 1024); // 1MB buffer
+          configurer.defaultCodecs().maxInMemorySize(JceXmlParser.TAMANO_MAXIMO_BYTES); // 1MB buffer
         })
         .build();
 
+    // Métricas de coalescencia de consultas concurrentes
+    this.consultasLiderCounter = Counter.builder("jce.upstream.consultas")
+        .description("Consultas por cédula según si viajaron al portal o se unieron a una en curso")
+        .tag("rol", "lider")
+        .register(meterRegistry);
+
+    this.consultasCoalescidasCounter = Counter.builder("jce.upstream.consultas")
+        .description("Consultas por cédula según si viajaron al portal o se unieron a una en curso")
+        .tag("rol", "coalescida")
+        .register(meterRegistry);
+
+    this.reintentosDescartadosCounter = Counter.builder("jce.upstream.reintentos.descartados")
+        .description("Reintentos no realizados por agotamiento del presupuesto global")
+        .register(meterRegistry);
+
+    Gauge.builder("jce.upstream.en_curso", consultasEnCurso, ConcurrentHashMap::size)
+        .description("Cédulas con una consulta al portal JCE en curso")
+        .register(meterRegistry);
+
+    Gauge.builder("jce.upstream.coalescencia.ratio", this, JceHttpClient::calcularRatioCoalescencia)
+        .description("Fracción de consultas atendidas uniéndose a una consulta ya en curso")
+        .register(meterRegistry);
+
     logger.info("🌐 JCE HTTP Client configurado:");
     logger.info("   • Base URL: {}", baseUrl);
     logger.info("   • Endpoint: {}", endpoint);
     logger.info("   • Service ID: {}", serviceId);
     logger.info("   • Timeout: {}s", timeoutSeconds);
-    logger.info("   • Max Retries: {}", maxRetries);
-    logger.info("   • Retry Delay: {}ms", retryDelayMs);
+    logger.info("   • Límite adaptativo de concurrencia: {}", limitadorHabilitado);
+    logger.info("   • Max Retries: {} (habilitado: {})", maxRetries, retryEnabled);
+    logger.info("   • Retry Delay: {}ms x{} (máx {}ms, jitter completo)", retryDelayMs, retryMultiplier, retryMaxDelayMs);
   }
 
   // ========================================
@@ -120,18 +191,26 @@ public class JceHttpClient {
     long startTime = System.currentTimeMillis();
 
     return buildConsultaUrl(municipio, secuencia, verificador)
-        .flatMap(url -> executeHttpRequest(url, requestId))
-        .flatMap(xmlContent -> parseXmlResponse(xmlContent, requestId))
+        .flatMap(url -> politicaCobertura.ejecutar(() -> ejecutarConLimite(url, requestId)))
         .doOnSuccess(individuo -> logSuccessfulResponse(individuo, requestId, startTime))
         .doOnError(error -> logErrorResponse(error, requestId, startTime))
-        .timeout(Duration.ofSeconds(timeoutSeconds))
+        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
         .retryWhen(createRetrySpec(requestId))
+        .doOnSubscribe(subscription -> presupuestoReintentos.depositar())
         .onErrorMap(this::mapToBusinessException);
   }
 
   /**
    * Consulta usando cédula completa (será dividida internamente).
    * 
+   * Las llamadas concurrentes para la misma cédula comparten una única
+   * petición al portal: la primera la inicia y las demás se suscriben al
+   * mismo resultado. El resultado se guarda con {@code cache()}, así quien
+   * obtuvo la consulta del registro justo antes de que terminara recibe ese
+   * mismo resultado en vez de repetir la petición. La entrada se elimina del
+   * registro al terminar y antes de emitir el resultado, de modo que la
+   * siguiente llamada vuelve a consultar al portal.
+   * 
    * @param cedulaCompleta cédula de 11 dígitos
    * @return Mono con el individuo encontrado
    */
@@ -141,11 +220,34 @@ public class JceHttpClient {
           "La cédula debe tener exactamente 11 dígitos"));
     }
 
-    String municipio = cedulaCompleta.substring(0, 3);
-    String secuencia = cedulaCompleta.substring(3, 10);
-    String verificador = cedulaCompleta.substring(10, 11);
+    return Mono.defer(() -> {
+      boolean[] esLider = { false };
+
+      Mono<Individuo> consulta = consultasEnCurso.computeIfAbsent(cedulaCompleta, cedula -> {
+        esLider[0] = true;
+        // Solo se elimina esta misma consulta, nunca una más reciente de la cédula.
+        // Se elimina antes de emitir el resultado, para que quien reaccione a él
+        // ya no encuentre la consulta terminada en el registro
+        AtomicReference<Mono<Individuo>> propia = new AtomicReference<>();
+        Runnable quitar = () -> consultasEnCurso.remove(cedula, propia.get());
+        Mono<Individuo> nueva = consultarCiudadano(cedula.substring(0, 3), cedula.substring(3, 10),
+            cedula.substring(10, 11))
+            .doOnTerminate(quitar)
+            .doOnCancel(quitar)
+            .cache();
+        propia.set(nueva);
+        return nueva;
+      });
+
+      if (esLider[0]) {
+        consultasLiderCounter.increment();
+      } else {
+        consultasCoalescidasCounter.increment();
+        logger.debug("🔗 Consulta para cédula {} unida a una petición en curso", cedulaCompleta);
+      }
 
-    return consultarCiudadano(municipio, secuencia, verificador);
+      return consulta;
+    });
   }
 
   /**
@@ -196,74 +298,100 @@ public class JceHttpClient {
   }
 
   /**
-   * Ejecuta la petición HTTP al portal JCE.
+   * Ejecuta la petición bajo el limitador adaptativo de concurrencia.
+   *
+   * El timeout se aplica dentro del limitador para que los timeouts del
+   * portal se registren como señal de sobrecarga y reduzcan el límite.
    */
-  private Mono<String> executeHttpRequest(String url, String requestId) {
+  private Mono<Individuo> ejecutarConLimite(String url, String requestId) {
+    Supplier<Mono<Individuo>> llamada = () -> executeHttpRequest(url, requestId)
+        .timeout(Duration.ofSeconds(timeoutSeconds));
+
+    return limitadorHabilitado ? limitadorConcurrencia.ejecutar(llamada) : llamada.get();
+  }
+
+  /**
+   * Ejecuta la petición HTTP al portal JCE y parsea la respuesta XML.
+   * 
+   * El cuerpo se consume como flujo de {@link DataBuffer} que se entregan
+   * directamente a {@link JceXmlParser}, liberando cada buffer tras
+   * procesarlo.
+   */
+  private Mono<Individuo> executeHttpRequest(String url, String requestId) {
     return webClient.get()
         .uri(url)
         .retrieve()
-        .bodyToMono(String.class)
-        .doOnNext(response -> logger.debug("📄 [{}] Respuesta XML recibida ({} caracteres)",
-            requestId, response.length()))
+        .bodyToFlux(DataBuffer.class)
+        .reduceWith(JceXmlParser::new, (parser, dataBuffer) -> {
+          try {
+            parser.alimentar(dataBuffer);
+          } finally {
+            DataBufferUtils.release(dataBuffer);
+          }
+          return parser;
+        })
+        .map(parser -> {
+          logger.debug("📄 [{}] Respuesta XML recibida ({} bytes)", requestId, parser.getBytesLeidos());
+          Individuo individuo = parser.finalizar();
+          logger.debug("✅ [{}] XML parseado exitosamente", requestId);
+          return individuo;
+        })
+        .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+        .doOnError(error -> {
+          if (!(error instanceof WebClientResponseException)) {
+            logger.error("❌ [{}] Error parseando XML: {}", requestId, error.getMessage());
+          }
+        })
         .onErrorMap(WebClientResponseException.class, this::handleWebClientError);
   }
 
   /**
-   * Parsea la respuesta XML a objeto Individuo.
+   * Crea la especificación de retry con backoff exponencial.
+   *
+   * Cada espera se elige al azar entre cero y el backoff exponencial
+   * acotado por {@code retryMaxDelayMs} (jitter completo), para que los
+   * reintentos de peticiones simultáneas no lleguen al portal en ráfaga.
+   * Además, cada reintento debe obtener un token del presupuesto global:
+   * si el presupuesto está agotado se propaga el error original sin
+   * reintentar.
    */
-  private Mono<Individuo> parseXmlResponse(String xmlContent, String requestId) {
-    return Mono.fromCallable(() -> {
-      try {
-        logger.debug("🔄 [{}] Parseando respuesta XML", requestId);
-
-        if (xmlContent == null || xmlContent.trim().isEmpty()) {
-          throw new RuntimeException("Respuesta XML vacía del portal JCE");
-        }
-
-        // Limpiar XML si tiene caracteres problemáticos
-        String cleanXml = cleanXmlContent(xmlContent);
-
-        Individuo individuo = xmlMapper.readValue(cleanXml, Individuo.class);
+  private Retry createRetrySpec(String requestId) {
+    return Retry.from(retrySignals -> retrySignals.concatMap(retrySignal -> {
+      Throwable failure = retrySignal.failure();
+      long intento = retrySignal.totalRetriesInARow();
 
-        logger.debug("✅ [{}] XML parseado exitosamente", requestId);
-        return individuo;
+      if (!retryEnabled || !shouldRetry(failure)) {
+        return Mono.error(failure);
+      }
 
-      } catch (JsonProcessingException | RuntimeException e) {
-        logger.error("❌ [{}] Error parseando XML: {}", requestId, e.getMessage());
-        throw new RuntimeException("Error procesando respuesta del portal JCE", e);
+      if (intento >= maxRetries) {
+        logger.error("❌ [{}] Máximo de reintentos ({}) alcanzado para consulta JCE",
+            requestId, maxRetries);
+        return Mono.error(new RuntimeException("Consulta JCE falló después de " + maxRetries + " reintentos",
+            failure));
       }
-    });
-  }
 
-  /**
-   * Limpia el contenido XML de caracteres problemáticos.
-   */
-  private String cleanXmlContent(String xmlContent) {
-    if (xmlContent == null) {
-      return null;
-    }
+      if (!presupuestoReintentos.intentarRetirar()) {
+        reintentosDescartadosCounter.increment();
+        logger.warn("🎫 [{}] Presupuesto de reintentos agotado, se descarta el retry #{}: {}",
+            requestId, intento + 1, failure.getMessage());
+        return Mono.error(failure);
+      }
 
-    // Remover BOM y caracteres de control problemáticos
-    return xmlContent.trim()
-        .replaceFirst("^\\uFEFF", "") // Remover BOM
-        .replaceAll("[\\x00-\\x08\\x0B\\x0C\\x0E-\\x1F\\x7F]", "") // Remover caracteres de control
-        .replaceAll("&(?!(?:amp|lt|gt|quot|apos);)", "&amp;"); // Escapar & no válidos
+      Duration espera = calcularBackoff(intento);
+      logger.warn("🔄 [{}] Retry #{} para consulta JCE en {}ms: {}",
+          requestId, intento + 1, espera.toMillis(), failure.getMessage());
+      return Mono.delay(espera);
+    }));
   }
 
   /**
-   * Crea la especificación de retry con backoff exponencial.
+   * Backoff exponencial acotado con jitter completo.
    */
-  private Retry createRetrySpec(String requestId) {
-    return Retry.backoff(maxRetries, Duration.ofMillis(retryDelayMs))
-        .filter(this::shouldRetry)
-        .doBeforeRetry(retrySignal -> logger.warn("🔄 [{}] Retry #{} para consulta JCE: {}",
-            requestId, retrySignal.totalRetries() + 1, retrySignal.failure().getMessage()))
-        .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> {
-          logger.error("❌ [{}] Máximo de reintentos ({}) alcanzado para consulta JCE",
-              requestId, maxRetries);
-          return new RuntimeException("Consulta JCE falló después de " + maxRetries + " reintentos",
-              retrySignal.failure());
-        });
+  private Duration calcularBackoff(long intento) {
+    double exponencial = retryDelayMs * Math.pow(retryMultiplier, intento);
+    long tope = (long) Math.min(retryMaxDelayMs, exponencial);
+    return Duration.ofMillis(ThreadLocalRandom.current().nextLong(tope + 1));
   }
 
   /**
@@ -274,7 +402,8 @@ public class JceHttpClient {
     return throwable instanceof TimeoutException ||
         throwable instanceof java.net.ConnectException ||
         throwable instanceof java.net.SocketTimeoutException ||
-        (throwable instanceof WebClientResponseException webEx &&
+        // handleWebClientError envuelve la respuesta HTTP original
+        (throwable.getCause() instanceof WebClientResponseException webEx &&
             webEx.getStatusCode().is5xxServerError());
   }
 
@@ -301,6 +430,11 @@ public class JceHttpClient {
    * Mapea excepciones técnicas a excepciones de negocio.
    */
   private Throwable mapToBusinessException(Throwable throwable) {
+    if (throwable instanceof CallNotPermittedException) {
+      logger.warn("🔴 Consulta JCE rechazada: circuit breaker '{}' abierto", circuitBreaker.getName());
+      return ApiException.jceNoDisponible();
+    }
+
     if (throwable instanceof TimeoutException) {
       return new RuntimeException("Timeout consultando el portal JCE - Intente nuevamente", throwable);
     }
@@ -336,6 +470,15 @@ public class JceHttpClient {
         requestId, duration, error.getMessage());
   }
 
+  /**
+   * Calcula la fracción de consultas que se unieron a una petición en curso.
+   */
+  private double calcularRatioCoalescencia() {
+    double coalescidas = consultasCoalescidasCounter.count();
+    double total = consultasLiderCounter.count() + coalescidas;
+    return total > 0 ? coalescidas / total : 0.0;
+  }
+
   /**
    * Genera un ID único para rastrear peticiones.
    */
@@ -0,0 +1,377 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.client;
+
+import java.nio.ByteBuffer;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import com.arojas.jce_consulta.model.DiccionarioValores;
+import com.arojas.jce_consulta.model.Individuo;
+import com.fasterxml.aalto.AsyncByteArrayFeeder;
+import com.fasterxml.aalto.AsyncXMLInputFactory;
+import com.fasterxml.aalto.AsyncXMLStreamReader;
+import com.fasterxml.aalto.stax.InputFactoryImpl;
+
+/**
+ * Parser incremental de la respuesta XML del portal JCE.
+ *
+ * Consume los {@link DataBuffer} de Netty a medida que llegan y los entrega
+ * a un lector StAX asíncrono (Aalto), sin construir nunca el cuerpo completo
+ * como String. Antes de alimentar al lector, los bytes se sanean en línea:
+ * se descarta lo previo al primer '&lt;' (BOM, espacios), se eliminan los
+ * caracteres de control no permitidos en XML y se escapan los '&amp;' que no
+ * forman parte de una entidad predefinida. Los valores de texto se asignan a
+ * {@link Individuo} mediante un switch por nombre de elemento; los campos de
+ * baja cardinalidad se guardan como instancias canónicas de
+ * {@link DiccionarioValores}.
+ *
+ * Cada instancia procesa una única respuesta y no es thread-safe.
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+public final class JceXmlParser {
+
+  private static final AsyncXMLInputFactory XML_INPUT_FACTORY = new InputFactoryImpl();
+
+  /**
+   * Entidades predefinidas que se respetan tras un '&amp;'.
+   */
+  private static final byte[][] ENTIDADES = {
+      "amp;".getBytes(), "lt;".getBytes(), "gt;".getBytes(), "quot;".getBytes(), "apos;".getBytes()
+  };
+
+  private static final byte[] AMP_ESCAPADO = "&amp;".getBytes();
+
+  private static final int LONGITUD_MAXIMA_ENTIDAD = 5;
+
+  /**
+   * Tamaño máximo aceptado para una respuesta (igual al buffer del WebClient).
+   */
+  public static final int TAMANO_MAXIMO_BYTES = 1024 * 1024;
+
+  // ========================================
+  // ESTADO DEL PARSER
+  // ========================================
+
+  private final AsyncXMLStreamReader<AsyncByteArrayFeeder> reader;
+  private final Individuo individuo = new Individuo();
+  private final StringBuilder texto = new StringBuilder(64);
+
+  // Buffer de salida del saneamiento (reutilizado entre chunks)
+  private byte[] salida = new byte[4096];
+  private int salidaLen;
+
+  // Estado del saneamiento de '&' entre chunks
+  private final byte[] pendiente = new byte[LONGITUD_MAXIMA_ENTIDAD];
+  private int pendienteLen = -1;
+
+  private boolean inicioDocumento = true;
+  private boolean raizEncontrada;
+  private boolean documentoTerminado;
+  private int profundidad;
+  private long bytesLeidos;
+
+  /**
+   * Crea un parser para una nueva respuesta.
+   */
+  public JceXmlParser() {
+    this.reader = XML_INPUT_FACTORY.createAsyncForByteArray();
+  }
+
+  // ========================================
+  // MÉTODOS PÚBLICOS
+  // ========================================
+
+  /**
+   * Procesa un chunk de la respuesta. No libera el buffer.
+   *
+   * @param dataBuffer chunk recibido del portal
+   */
+  public void alimentar(DataBuffer dataBuffer) {
+    try (DataBuffer.ByteBufferIterator iterator = dataBuffer.readableByteBuffers()) {
+      while (iterator.hasNext()) {
+        ByteBuffer byteBuffer = iterator.next();
+        sanear(byteBuffer);
+      }
+    }
+    entregarAlLector();
+  }
+
+  /**
+   * Procesa un chunk de la respuesta desde un arreglo de bytes.
+   *
+   * @param datos    bytes recibidos
+   * @param offset   posición inicial
+   * @param longitud cantidad de bytes a procesar
+   */
+  public void alimentar(byte[] datos, int offset, int longitud) {
+    sanear(ByteBuffer.wrap(datos, offset, longitud));
+    entregarAlLector();
+  }
+
+  /**
+   * Señala el fin de la respuesta y retorna el individuo parseado.
+   *
+   * @return individuo con los campos encontrados en el XML
+   */
+  public Individuo finalizar() {
+    if (pendienteLen >= 0) {
+      liberarPendienteComoTexto();
+    }
+    entregarAlLector();
+
+    if (!raizEncontrada) {
+      throw new RuntimeException("Respuesta XML vacía del portal JCE");
+    }
+
+    try {
+      reader.getInputFeeder().endOfInput();
+      procesarEventos();
+      reader.close();
+    } catch (XMLStreamException e) {
+      throw new RuntimeException("Error procesando respuesta del portal JCE", e);
+    }
+
+    return individuo;
+  }
+
+  /**
+   * Cantidad de bytes recibidos hasta el momento.
+   */
+  public long getBytesLeidos() {
+    return bytesLeidos;
+  }
+
+  // ========================================
+  // SANEAMIENTO EN LÍNEA
+  // ========================================
+
+  /**
+   * Copia los bytes saneados al buffer de salida.
+   */
+  private void sanear(ByteBuffer entrada) {
+    int restantes = entrada.remaining();
+    bytesLeidos += restantes;
+    if (bytesLeidos > TAMANO_MAXIMO_BYTES) {
+      throw new RuntimeException("Respuesta del portal JCE excede " + TAMANO_MAXIMO_BYTES + " bytes");
+    }
+
+    asegurarCapacidad(restantes + LONGITUD_MAXIMA_ENTIDAD + 1);
+    for (int i = entrada.position(), fin = entrada.limit(); i < fin; i++) {
+      procesarByte(entrada.get(i));
+    }
+  }
+
+  /**
+   * Aplica las reglas de saneamiento a un byte.
+   *
+   * En UTF-8 todos los bytes de caracteres multibyte son &gt;= 0x80, por lo
+   * que las comparaciones con caracteres ASCII son seguras a nivel de byte.
+   */
+  private void procesarByte(byte b) {
+    if (inicioDocumento) {
+      if (b != '<') {
+        return;
+      }
+      inicioDocumento = false;
+    }
+
+    if (pendienteLen >= 0) {
+      procesarPendiente(b);
+      return;
+    }
+
+    if (esControlInvalido(b)) {
+      return;
+    }
+
+    if (b == '&') {
+      pendienteLen = 0;
+      return;
+    }
+
+    escribir(b);
+  }
+
+  /**
+   * Acumula bytes tras un '&amp;' hasta decidir si forman una entidad.
+   */
+  private void procesarPendiente(byte b) {
+    pendiente[pendienteLen++] = b;
+
+    boolean esPrefijo = false;
+    for (byte[] entidad : ENTIDADES) {
+      if (pendienteLen <= entidad.length && coincidePrefijo(entidad)) {
+        if (pendienteLen == entidad.length) {
+          escribir((byte) '&');
+          for (int i = 0; i < pendienteLen; i++) {
+            escribir(pendiente[i]);
+          }
+          pendienteLen = -1;
+          return;
+        }
+        esPrefijo = true;
+      }
+    }
+
+    if (!esPrefijo) {
+      liberarPendienteComoTexto();
+    }
+  }
+
+  /**
+   * Escapa el '&amp;' pendiente y reprocesa los bytes acumulados.
+   */
+  private void liberarPendienteComoTexto() {
+    int longitud = pendienteLen;
+    pendienteLen = -1;
+
+    asegurarCapacidad(AMP_ESCAPADO.length + longitud * AMP_ESCAPADO.length);
+    for (byte escapado : AMP_ESCAPADO) {
+      escribir(escapado);
+    }
+
+    // Copia local: el reproceso puede volver a usar el arreglo pendiente
+    byte[] acumulados = new byte[longitud];
+    System.arraycopy(pendiente, 0, acumulados, 0, longitud);
+    for (byte acumulado : acumulados) {
+      procesarByte(acumulado);
+    }
+  }
+
+  private boolean coincidePrefijo(byte[] entidad) {
+    for (int i = 0; i < pendienteLen; i++) {
+      if (entidad[i] != pendiente[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean esControlInvalido(byte b) {
+    return (b >= 0x00 && b <= 0x08) || b == 0x0B || b == 0x0C || (b >= 0x0E && b <= 0x1F) || b == 0x7F;
+  }
+
+  private void escribir(byte b) {
+    if (salidaLen == salida.length) {
+      asegurarCapacidad(1);
+    }
+    salida[salidaLen++] = b;
+  }
+
+  private void asegurarCapacidad(int adicional) {
+    int requerida = salidaLen + adicional;
+    if (requerida > salida.length) {
+      byte[] nuevo = new byte[Math.max(requerida, salida.length * 2)];
+      System.arraycopy(salida, 0, nuevo, 0, salidaLen);
+      salida = nuevo;
+    }
+  }
+
+  // ========================================
+  // LECTURA STAX ASÍNCRONA
+  // ========================================
+
+  /**
+   * Entrega los bytes saneados al lector y consume los eventos disponibles.
+   */
+  private void entregarAlLector() {
+    if (salidaLen == 0 || documentoTerminado) {
+      salidaLen = 0;
+      return;
+    }
+
+    try {
+      reader.getInputFeeder().feedInput(salida, 0, salidaLen);
+      procesarEventos();
+    } catch (XMLStreamException e) {
+      throw new RuntimeException("Error procesando respuesta del portal JCE", e);
+    }
+
+    // El lector consumió todo el buffer; puede reutilizarse
+    salidaLen = 0;
+  }
+
+  /**
+   * Consume eventos hasta que el lector necesite más datos.
+   */
+  private void procesarEventos() throws XMLStreamException {
+    while (!documentoTerminado && reader.hasNext()) {
+      int evento = reader.next();
+
+      switch (evento) {
+        case AsyncXMLStreamReader.EVENT_INCOMPLETE -> {
+          return;
+        }
+        case XMLStreamConstants.START_ELEMENT -> {
+          profundidad++;
+          raizEncontrada = true;
+          texto.setLength(0);
+        }
+        case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+          if (profundidad == 2) {
+            texto.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+          }
+        }
+        case XMLStreamConstants.END_ELEMENT -> {
+          if (profundidad == 2) {
+            asignarCampo(reader.getLocalName(), texto.toString());
+          }
+          profundidad--;
+        }
+        case XMLStreamConstants.END_DOCUMENT -> documentoTerminado = true;
+        default -> {
+          // Declaración, comentarios e instrucciones de procesamiento se ignoran
+        }
+      }
+    }
+  }
+
+  /**
+   * Asigna el valor de un elemento hijo de la raíz al campo correspondiente.
+   */
+  private void asignarCampo(String elemento, String valor) {
+    switch (elemento) {
+      case "nombres" -> individuo.setNombres(valor);
+      case "apellido1" -> individuo.setApellido1(valor);
+      case "apellido2" -> individuo.setApellido2(valor);
+      case "fecha_nac" -> individuo.setFechaNacimiento(valor);
+      case "lugar_nac" -> individuo.setLugarNacimiento(DiccionarioValores.LUGAR_NACIMIENTO.canonico(valor));
+      case "fecha_expiracion" -> individuo.setFechaExpiracion(valor);
+      case "sexo" -> individuo.setSexo(DiccionarioValores.SEXO.canonico(valor));
+      case "est_civil" -> individuo.setEstadoCivil(DiccionarioValores.ESTADO_CIVIL.canonico(valor));
+      case "edad" -> individuo.setEdad(valor);
+      case "cod_nacion" -> individuo.setCodigoNacionalidad(DiccionarioValores.CODIGO_NACIONALIDAD.canonico(valor));
+      case "desc_nacionalidad" -> individuo.setDescripcionNacionalidad(DiccionarioValores.DESCRIPCION_NACIONALIDAD.canonico(valor));
+      case "mun_ced" -> individuo.setMunicipioCedula(DiccionarioValores.MUNICIPIO_CEDULA.canonico(valor));
+      case "seq_ced" -> individuo.setSecuenciaCedula(valor);
+      case "ocupacion" -> individuo.setOcupacion(valor);
+      case "conyugue" -> individuo.setConyugue(valor);
+      case "cedula_conyugue" -> individuo.setCedulaConyugue(valor);
+      case "padre" -> individuo.setPadre(valor);
+      case "madre" -> individuo.setMadre(valor);
+      case "cedula_vieja" -> individuo.setCedulaVieja(valor);
+      case "pasaporte" -> individuo.setPasaporte(valor);
+      case "fotourl" -> individuo.setFotoUrl(valor);
+      case "categoria" -> individuo.setCategoria(DiccionarioValores.CATEGORIA.canonico(valor));
+      case "desc_categoria" -> individuo.setDescripcionCategoria(DiccionarioValores.DESCRIPCION_CATEGORIA.canonico(valor));
+      case "estatus" -> individuo.setEstatus(DiccionarioValores.ESTATUS.canonico(valor));
+      case "cod_causa" -> individuo.setCodigoCausa(valor);
+      case "desc_causa_inhabilidad" -> individuo.setDescripcionCausaInhabilidad(valor);
+      case "desc_tipo_causa" -> individuo.setDescripcionTipoCausa(valor);
+      case "success" -> individuo.setSuccess(DiccionarioValores.SUCCESS.canonico(valor));
+      case "message" -> individuo.setMessage(DiccionarioValores.MESSAGE.canonico(valor));
+      case "responsetime" -> individuo.setResponseTime(valor);
+      default -> {
+        // Elemento desconocido: se ignora igual que con @JsonIgnoreProperties
+      }
+    }
+  }
+}
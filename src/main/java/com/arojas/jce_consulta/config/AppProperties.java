@@ -11,12 +11,16 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.annotation.Validated;
 
+import com.arojas.jce_consulta.config.AppProperties.Batch;
 import com.arojas.jce_consulta.config.AppProperties.Cache;
 import com.arojas.jce_consulta.config.AppProperties.Jce;
 import com.arojas.jce_consulta.config.AppProperties.Metrics;
 import com.arojas.jce_consulta.config.AppProperties.RateLimit;
 import com.arojas.jce_consulta.config.AppProperties.Resilience;
+import com.arojas.jce_consulta.config.AppProperties.Warmup;
 
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -64,6 +68,16 @@ public class AppProperties {
    */
   private Resilience resilience = new Resilience();
 
+  /**
+   * Configuración de consultas en lote.
+   */
+  private Batch batch = new Batch();
+
+  /**
+   * Configuración del precalentamiento del caché.
+   */
+  private Warmup warmup = new Warmup();
+
   /**
    * Configuración de métricas.
    */
@@ -105,6 +119,22 @@ public class AppProperties {
     this.resilience = resilience;
   }
 
+  public Batch getBatch() {
+    return batch;
+  }
+
+  public void setBatch(Batch batch) {
+    this.batch = batch;
+  }
+
+  public Warmup getWarmup() {
+    return warmup;
+  }
+
+  public void setWarmup(Warmup warmup) {
+    this.warmup = warmup;
+  }
+
   public Metrics getMetrics() {
     return metrics;
   }
@@ -166,6 +196,46 @@ public class AppProperties {
      */
     private boolean gzipEnabled = true;
 
+    /**
+     * Máximo de conexiones simultáneas al portal JCE.
+     */
+    @Min(value = 1, message = "El pool debe permitir al menos 1 conexión")
+    @Max(value = 1000, message = "El pool no debe exceder 1000 conexiones")
+    private int maxConnections = 50;
+
+    /**
+     * Máximo de peticiones en espera de una conexión libre.
+     */
+    @Min(value = 1, message = "La cola de espera debe admitir al menos 1 petición")
+    @Max(value = 10000, message = "La cola de espera no debe exceder 10000 peticiones")
+    private int pendingAcquireMaxCount = 500;
+
+    /**
+     * Tiempo máximo de espera por una conexión libre (en segundos).
+     */
+    @Min(value = 1, message = "La espera por conexión debe ser al menos 1 segundo")
+    @Max(value = 60, message = "La espera por conexión no debe exceder 60 segundos")
+    private int pendingAcquireTimeoutSeconds = 10;
+
+    /**
+     * Tiempo máximo que una conexión puede permanecer inactiva (en segundos).
+     */
+    @Min(value = 1, message = "El tiempo de inactividad debe ser al menos 1 segundo")
+    private int maxIdleTimeSeconds = 20;
+
+    /**
+     * Tiempo de vida máximo de una conexión (en segundos).
+     */
+    @Min(value = 1, message = "El tiempo de vida debe ser al menos 1 segundo")
+    private int maxLifeTimeSeconds = 60;
+
+    /**
+     * Intervalo de desalojo en segundo plano de conexiones vencidas
+     * (en segundos, 0 para deshabilitar).
+     */
+    @Min(value = 0, message = "El intervalo de desalojo no puede ser negativo")
+    private int evictionIntervalSeconds = 30;
+
     // Getters y Setters
     public String getBaseUrl() {
       return baseUrl;
@@ -222,6 +292,54 @@ public class AppProperties {
     public void setGzipEnabled(boolean gzipEnabled) {
       this.gzipEnabled = gzipEnabled;
     }
+
+    public int getMaxConnections() {
+      return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+      this.maxConnections = maxConnections;
+    }
+
+    public int getPendingAcquireMaxCount() {
+      return pendingAcquireMaxCount;
+    }
+
+    public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+      this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+    }
+
+    public int getPendingAcquireTimeoutSeconds() {
+      return pendingAcquireTimeoutSeconds;
+    }
+
+    public void setPendingAcquireTimeoutSeconds(int pendingAcquireTimeoutSeconds) {
+      this.pendingAcquireTimeoutSeconds = pendingAcquireTimeoutSeconds;
+    }
+
+    public int getMaxIdleTimeSeconds() {
+      return maxIdleTimeSeconds;
+    }
+
+    public void setMaxIdleTimeSeconds(int maxIdleTimeSeconds) {
+      this.maxIdleTimeSeconds = maxIdleTimeSeconds;
+    }
+
+    public int getMaxLifeTimeSeconds() {
+      return maxLifeTimeSeconds;
+    }
+
+    public void setMaxLifeTimeSeconds(int maxLifeTimeSeconds) {
+      this.maxLifeTimeSeconds = maxLifeTimeSeconds;
+    }
+
+    public int getEvictionIntervalSeconds() {
+      return evictionIntervalSeconds;
+    }
+
+    public void setEvictionIntervalSeconds(int evictionIntervalSeconds) {
+      this.evictionIntervalSeconds = evictionIntervalSeconds;
+    }
   }
 
   /**
@@ -333,6 +451,23 @@ public class AppProperties {
     @Max(value = 100000, message = "El tamaño del caché no debe exceder 100000")
     private int maxSize = 10000;
 
+    /**
+     * TTL duro (en minutos): pasado este tiempo la entrada ya no se sirve
+     * sin consultar al portal. Entre el TTL por defecto y este valor la
+     * entrada se sirve y se revalida en segundo plano.
+     */
+    @Min(value = 1, message = "El TTL duro del caché debe ser al menos 1 minuto")
+    @Max(value = 10080, message = "El TTL duro del caché no debe exceder 7 días")
+    private int hardTtlMinutes = 240;
+
+    /**
+     * Antigüedad máxima (en minutos) de los datos servidos como obsoletos
+     * cuando el portal falla.
+     */
+    @Min(value = 1, message = "La antigüedad máxima de datos obsoletos debe ser al menos 1 minuto")
+    @Max(value = 10080, message = "La antigüedad máxima de datos obsoletos no debe exceder 7 días")
+    private int maxStaleMinutes = 1440;
+
     /**
      * Habilitar caché distribuido con Redis.
      */
@@ -354,6 +489,83 @@ public class AppProperties {
      */
     private boolean statsEnabled = true;
 
+    /**
+     * Comprimir con deflate los registros guardados en Redis.
+     */
+    private boolean redisCompressionEnabled = true;
+
+    /**
+     * Tamaño mínimo (en bytes) de un registro para intentar comprimirlo.
+     */
+    @Min(value = 0, message = "El umbral de compresión no puede ser negativo")
+    private int redisCompressionThreshold = 384;
+
+    /**
+     * Habilitar caché negativo para ciudadanos no encontrados.
+     */
+    private boolean negativeEnabled = true;
+
+    /**
+     * TTL del caché negativo (en segundos).
+     */
+    @Min(value = 5, message = "El TTL del caché negativo debe ser al menos 5 segundos")
+    @Max(value = 3600, message = "El TTL del caché negativo no debe exceder 1 hora")
+    private int negativeTtlSeconds = 120;
+
+    /**
+     * Tamaño máximo del caché negativo (número de entradas).
+     */
+    @Min(value = 100, message = "El tamaño del caché negativo debe ser al menos 100")
+    @Max(value = 1000000, message = "El tamaño del caché negativo no debe exceder 1000000")
+    private int negativeMaxSize = 50000;
+
+    /**
+     * Tasa de falsos positivos de los filtros Bloom del caché negativo.
+     */
+    @DecimalMin(value = "0.0001", message = "La tasa de falsos positivos debe ser al menos 0.0001")
+    @DecimalMax(value = "0.1", message = "La tasa de falsos positivos no debe exceder 0.1")
+    private double negativeFalsePositiveRate = 0.01;
+
+    /**
+     * Habilitar el almacén local fuera del heap para registros de
+     * ciudadanos. Con él activo, el caché Caffeine ({@code maxSize}) queda
+     * como nivel caliente de pocas entradas.
+     */
+    private boolean offHeapEnabled = false;
+
+    /**
+     * Memoria reservada fuera del heap para el almacén local (en MB). Debe
+     * caber en {@code -XX:MaxDirectMemorySize}.
+     */
+    @Min(value = 16, message = "El almacén fuera del heap debe tener al menos 16 MB")
+    @Max(value = 65536, message = "El almacén fuera del heap no debe exceder 64 GB")
+    private int offHeapMaxMegabytes = 512;
+
+    /**
+     * Número de segmentos (con su propio lock) del almacén fuera del heap.
+     */
+    @Min(value = 1, message = "El almacén fuera del heap debe tener al menos 1 segmento")
+    @Max(value = 1024, message = "El almacén fuera del heap no debe exceder 1024 segmentos")
+    private int offHeapSegments = 64;
+
+    /**
+     * Guardar el caché local en un snapshot en disco y leerlo al arrancar.
+     */
+    private boolean snapshotEnabled = false;
+
+    /**
+     * Ruta del archivo de snapshot del caché local.
+     */
+    @NotBlank(message = "La ruta del snapshot es requerida")
+    private String snapshotPath = "data/cache-ciudadanos.snap";
+
+    /**
+     * Intervalo entre snapshots periódicos (en segundos).
+     */
+    @Min(value = 30, message = "El intervalo de snapshot debe ser al menos 30 segundos")
+    @Max(value = 86400, message = "El intervalo de snapshot no debe exceder 24 horas")
+    private int snapshotIntervalSeconds = 300;
+
     // Getters y Setters
     public int getDefaultTtlMinutes() {
       return defaultTtlMinutes;
@@ -371,6 +583,22 @@ public class AppProperties {
       this.maxSize = maxSize;
     }
 
+    public int getHardTtlMinutes() {
+      return hardTtlMinutes;
+    }
+
+    public void setHardTtlMinutes(int hardTtlMinutes) {
+      this.hardTtlMinutes = hardTtlMinutes;
+    }
+
+    public int getMaxStaleMinutes() {
+      return maxStaleMinutes;
+    }
+
+    public void setMaxStaleMinutes(int maxStaleMinutes) {
+      this.maxStaleMinutes = maxStaleMinutes;
+    }
+
     public boolean isDistributedEnabled() {
       return distributedEnabled;
     }
@@ -402,6 +630,102 @@ public class AppProperties {
     public void setStatsEnabled(boolean statsEnabled) {
       this.statsEnabled = statsEnabled;
     }
+
+    public boolean isRedisCompressionEnabled() {
+      return redisCompressionEnabled;
+    }
+
+    public void setRedisCompressionEnabled(boolean redisCompressionEnabled) {
+      this.redisCompressionEnabled = redisCompressionEnabled;
+    }
+
+    public int getRedisCompressionThreshold() {
+      return redisCompressionThreshold;
+    }
+
+    public void setRedisCompressionThreshold(int redisCompressionThreshold) {
+      this.redisCompressionThreshold = redisCompressionThreshold;
+    }
+
+    public boolean isNegativeEnabled() {
+      return negativeEnabled;
+    }
+
+    public void setNegativeEnabled(boolean negativeEnabled) {
+      this.negativeEnabled = negativeEnabled;
+    }
+
+    public int getNegativeTtlSeconds() {
+      return negativeTtlSeconds;
+    }
+
+    public void setNegativeTtlSeconds(int negativeTtlSeconds) {
+      this.negativeTtlSeconds = negativeTtlSeconds;
+    }
+
+    public int getNegativeMaxSize() {
+      return negativeMaxSize;
+    }
+
+    public void setNegativeMaxSize(int negativeMaxSize) {
+      this.negativeMaxSize = negativeMaxSize;
+    }
+
+    public double getNegativeFalsePositiveRate() {
+      return negativeFalsePositiveRate;
+    }
+
+    public void setNegativeFalsePositiveRate(double negativeFalsePositiveRate) {
+      this.negativeFalsePositiveRate = negativeFalsePositiveRate;
+    }
+
+    public boolean isOffHeapEnabled() {
+      return offHeapEnabled;
+    }
+
+    public void setOffHeapEnabled(boolean offHeapEnabled) {
+      this.offHeapEnabled = offHeapEnabled;
+    }
+
+    public int getOffHeapMaxMegabytes() {
+      return offHeapMaxMegabytes;
+    }
+
+    public void setOffHeapMaxMegabytes(int offHeapMaxMegabytes) {
+      this.offHeapMaxMegabytes = offHeapMaxMegabytes;
+    }
+
+    public int getOffHeapSegments() {
+      return offHeapSegments;
+    }
+
+    public void setOffHeapSegments(int offHeapSegments) {
+      this.offHeapSegments = offHeapSegments;
+    }
+
+    public boolean isSnapshotEnabled() {
+      return snapshotEnabled;
+    }
+
+    public void setSnapshotEnabled(boolean snapshotEnabled) {
+      this.snapshotEnabled = snapshotEnabled;
+    }
+
+    public String getSnapshotPath() {
+      return snapshotPath;
+    }
+
+    public void setSnapshotPath(String snapshotPath) {
+      this.snapshotPath = snapshotPath;
+    }
+
+    public int getSnapshotIntervalSeconds() {
+      return snapshotIntervalSeconds;
+    }
+
+    public void setSnapshotIntervalSeconds(int snapshotIntervalSeconds) {
+      this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+    }
   }
 
   /**
@@ -422,12 +746,41 @@ public class AppProperties {
     private boolean circuitBreakerEnabled = true;
 
     /**
-     * Número de fallos consecutivos para abrir el circuit breaker.
+     * Número mínimo de llamadas registradas en la ventana antes de que el
+     * circuit breaker evalúe las tasas de fallo y lentitud.
      */
     @Min(value = 3, message = "El umbral de fallos debe ser al menos 3")
     @Max(value = 20, message = "El umbral de fallos no debe exceder 20")
     private int circuitBreakerFailureThreshold = 5;
 
+    /**
+     * Tamaño de la ventana deslizante (en número de llamadas).
+     */
+    @Min(value = 5, message = "La ventana del circuit breaker debe ser al menos 5 llamadas")
+    @Max(value = 500, message = "La ventana del circuit breaker no debe exceder 500 llamadas")
+    private int circuitBreakerSlidingWindowSize = 20;
+
+    /**
+     * Porcentaje de llamadas fallidas en la ventana que abre el circuit breaker.
+     */
+    @Min(value = 1, message = "La tasa de fallos debe ser al menos 1%")
+    @Max(value = 100, message = "La tasa de fallos no debe exceder 100%")
+    private int circuitBreakerFailureRateThreshold = 50;
+
+    /**
+     * Duración a partir de la cual una llamada se considera lenta (en segundos).
+     */
+    @Min(value = 1, message = "El umbral de llamada lenta debe ser al menos 1 segundo")
+    @Max(value = 120, message = "El umbral de llamada lenta no debe exceder 120 segundos")
+    private int circuitBreakerSlowCallDurationSeconds = 10;
+
+    /**
+     * Llamadas de prueba permitidas en estado half-open.
+     */
+    @Min(value = 1, message = "Debe permitirse al menos 1 llamada en half-open")
+    @Max(value = 20, message = "No deben permitirse más de 20 llamadas en half-open")
+    private int circuitBreakerPermittedCallsInHalfOpen = 3;
+
     /**
      * Tiempo de espera antes de intentar cerrar el circuit breaker (en segundos).
      */
@@ -436,7 +789,7 @@ public class AppProperties {
     private int circuitBreakerWaitDurationSeconds = 60;
 
     /**
-     * Porcentaje de peticiones permitidas en estado half-open.
+     * Porcentaje de llamadas lentas en la ventana que abre el circuit breaker.
      */
     @Min(value = 10, message = "El porcentaje debe ser al menos 10%")
     @Max(value = 100, message = "El porcentaje no debe exceder 100%")
@@ -468,6 +821,108 @@ public class AppProperties {
     @Max(value = 5, message = "El multiplicador no debe exceder 5")
     private double retryMultiplier = 2.0;
 
+    /**
+     * Delay máximo entre reintentos (en milisegundos).
+     */
+    @Min(value = 1000, message = "El delay máximo debe ser al menos 1000ms")
+    @Max(value = 60000, message = "El delay máximo no debe exceder 60000ms")
+    private long retryMaxDelayMillis = 10000;
+
+    /**
+     * Porcentaje de reintentos permitidos respecto a las consultas primarias
+     * dentro de la ventana del presupuesto.
+     */
+    @Min(value = 0, message = "El presupuesto de reintentos no puede ser negativo")
+    @Max(value = 100, message = "El presupuesto de reintentos no debe exceder 100%")
+    private int retryBudgetPercent = 20;
+
+    /**
+     * Reintentos por segundo permitidos aunque haya poco tráfico primario.
+     */
+    @Min(value = 0, message = "La reserva de reintentos no puede ser negativa")
+    @Max(value = 100, message = "La reserva de reintentos no debe exceder 100 por segundo")
+    private int retryBudgetMinPerSecond = 1;
+
+    /**
+     * Ventana deslizante del presupuesto de reintentos (en segundos).
+     */
+    @Min(value = 1, message = "La ventana del presupuesto debe ser al menos 1 segundo")
+    @Max(value = 300, message = "La ventana del presupuesto no debe exceder 300 segundos")
+    private int retryBudgetWindowSeconds = 10;
+
+    /**
+     * Habilitar el límite adaptativo de concurrencia hacia el portal JCE.
+     */
+    private boolean concurrencyLimitEnabled = true;
+
+    /**
+     * Límite inicial de llamadas concurrentes al portal.
+     */
+    @Min(value = 1, message = "El límite inicial debe ser al menos 1")
+    @Max(value = 1000, message = "El límite inicial no debe exceder 1000")
+    private int concurrencyInitialLimit = 10;
+
+    /**
+     * Límite mínimo de llamadas concurrentes al portal.
+     */
+    @Min(value = 1, message = "El límite mínimo debe ser al menos 1")
+    @Max(value = 1000, message = "El límite mínimo no debe exceder 1000")
+    private int concurrencyMinLimit = 2;
+
+    /**
+     * Límite máximo de llamadas concurrentes al portal.
+     */
+    @Min(value = 1, message = "El límite máximo debe ser al menos 1")
+    @Max(value = 1000, message = "El límite máximo no debe exceder 1000")
+    private int concurrencyMaxLimit = 50;
+
+    /**
+     * Máximo de llamadas esperando permiso del limitador.
+     */
+    @Min(value = 0, message = "La cola del limitador no puede ser negativa")
+    @Max(value = 10000, message = "La cola del limitador no debe exceder 10000")
+    private int concurrencyMaxQueue = 100;
+
+    /**
+     * Tiempo máximo de espera en la cola del limitador (en milisegundos).
+     */
+    @Min(value = 0, message = "La espera en cola no puede ser negativa")
+    @Max(value = 30000, message = "La espera en cola no debe exceder 30000ms")
+    private long concurrencyQueueTimeoutMillis = 2000;
+
+    /**
+     * Habilitar peticiones de cobertura (hedging) hacia el portal JCE.
+     */
+    private boolean hedgingEnabled = false;
+
+    /**
+     * Percentil de latencia reciente tras el cual se lanza la cobertura.
+     */
+    @Min(value = 50, message = "El percentil de cobertura debe ser al menos 50")
+    @Max(value = 99, message = "El percentil de cobertura no debe exceder 99")
+    private int hedgingPercentile = 90;
+
+    /**
+     * Porcentaje máximo de consultas que pueden generar cobertura.
+     */
+    @Min(value = 1, message = "El presupuesto de cobertura debe ser al menos 1%")
+    @Max(value = 50, message = "El presupuesto de cobertura no debe exceder 50%")
+    private int hedgingBudgetPercent = 10;
+
+    /**
+     * Retraso mínimo antes de lanzar una cobertura (en milisegundos).
+     */
+    @Min(value = 10, message = "El retraso mínimo de cobertura debe ser al menos 10ms")
+    @Max(value = 10000, message = "El retraso mínimo de cobertura no debe exceder 10000ms")
+    private long hedgingMinDelayMillis = 100;
+
+    /**
+     * Latencias observadas necesarias antes de empezar a cubrir.
+     */
+    @Min(value = 10, message = "Se requieren al menos 10 muestras para cubrir")
+    @Max(value = 1024, message = "Las muestras mínimas no deben exceder 1024")
+    private int hedgingMinSamples = 50;
+
     // Getters y Setters
     public int getOperationTimeoutSeconds() {
       return operationTimeoutSeconds;
@@ -509,6 +964,38 @@ public class AppProperties {
       this.circuitBreakerSlowCallRateThreshold = circuitBreakerSlowCallRateThreshold;
     }
 
+    public int getCircuitBreakerSlidingWindowSize() {
+      return circuitBreakerSlidingWindowSize;
+    }
+
+    public void setCircuitBreakerSlidingWindowSize(int circuitBreakerSlidingWindowSize) {
+      this.circuitBreakerSlidingWindowSize = circuitBreakerSlidingWindowSize;
+    }
+
+    public int getCircuitBreakerFailureRateThreshold() {
+      return circuitBreakerFailureRateThreshold;
+    }
+
+    public void setCircuitBreakerFailureRateThreshold(int circuitBreakerFailureRateThreshold) {
+      this.circuitBreakerFailureRateThreshold = circuitBreakerFailureRateThreshold;
+    }
+
+    public int getCircuitBreakerSlowCallDurationSeconds() {
+      return circuitBreakerSlowCallDurationSeconds;
+    }
+
+    public void setCircuitBreakerSlowCallDurationSeconds(int circuitBreakerSlowCallDurationSeconds) {
+      this.circuitBreakerSlowCallDurationSeconds = circuitBreakerSlowCallDurationSeconds;
+    }
+
+    public int getCircuitBreakerPermittedCallsInHalfOpen() {
+      return circuitBreakerPermittedCallsInHalfOpen;
+    }
+
+    public void setCircuitBreakerPermittedCallsInHalfOpen(int circuitBreakerPermittedCallsInHalfOpen) {
+      this.circuitBreakerPermittedCallsInHalfOpen = circuitBreakerPermittedCallsInHalfOpen;
+    }
+
     public boolean isRetryEnabled() {
       return retryEnabled;
     }
@@ -540,6 +1027,317 @@ public class AppProperties {
     public void setRetryMultiplier(double retryMultiplier) {
       this.retryMultiplier = retryMultiplier;
     }
+
+    public long getRetryMaxDelayMillis() {
+      return retryMaxDelayMillis;
+    }
+
+    public void setRetryMaxDelayMillis(long retryMaxDelayMillis) {
+      this.retryMaxDelayMillis = retryMaxDelayMillis;
+    }
+
+    public int getRetryBudgetPercent() {
+      return retryBudgetPercent;
+    }
+
+    public void setRetryBudgetPercent(int retryBudgetPercent) {
+      this.retryBudgetPercent = retryBudgetPercent;
+    }
+
+    public int getRetryBudgetMinPerSecond() {
+      return retryBudgetMinPerSecond;
+    }
+
+    public void setRetryBudgetMinPerSecond(int retryBudgetMinPerSecond) {
+      this.retryBudgetMinPerSecond = retryBudgetMinPerSecond;
+    }
+
+    public int getRetryBudgetWindowSeconds() {
+      return retryBudgetWindowSeconds;
+    }
+
+    public void setRetryBudgetWindowSeconds(int retryBudgetWindowSeconds) {
+      this.retryBudgetWindowSeconds = retryBudgetWindowSeconds;
+    }
+
+    public boolean isConcurrencyLimitEnabled() {
+      return concurrencyLimitEnabled;
+    }
+
+    public void setConcurrencyLimitEnabled(boolean concurrencyLimitEnabled) {
+      this.concurrencyLimitEnabled = concurrencyLimitEnabled;
+    }
+
+    public int getConcurrencyInitialLimit() {
+      return concurrencyInitialLimit;
+    }
+
+    public void setConcurrencyInitialLimit(int concurrencyInitialLimit) {
+      this.concurrencyInitialLimit = concurrencyInitialLimit;
+    }
+
+    public int getConcurrencyMinLimit() {
+      return concurrencyMinLimit;
+    }
+
+    public void setConcurrencyMinLimit(int concurrencyMinLimit) {
+      this.concurrencyMinLimit = concurrencyMinLimit;
+    }
+
+    public int getConcurrencyMaxLimit() {
+      return concurrencyMaxLimit;
+    }
+
+    public void setConcurrencyMaxLimit(int concurrencyMaxLimit) {
+      this.concurrencyMaxLimit = concurrencyMaxLimit;
+    }
+
+    public int getConcurrencyMaxQueue() {
+      return concurrencyMaxQueue;
+    }
+
+    public void setConcurrencyMaxQueue(int concurrencyMaxQueue) {
+      this.concurrencyMaxQueue = concurrencyMaxQueue;
+    }
+
+    public long getConcurrencyQueueTimeoutMillis() {
+      return concurrencyQueueTimeoutMillis;
+    }
+
+    public void setConcurrencyQueueTimeoutMillis(long concurrencyQueueTimeoutMillis) {
+      this.concurrencyQueueTimeoutMillis = concurrencyQueueTimeoutMillis;
+    }
+
+    public boolean isHedgingEnabled() {
+      return hedgingEnabled;
+    }
+
+    public void setHedgingEnabled(boolean hedgingEnabled) {
+      this.hedgingEnabled = hedgingEnabled;
+    }
+
+    public int getHedgingPercentile() {
+      return hedgingPercentile;
+    }
+
+    public void setHedgingPercentile(int hedgingPercentile) {
+      this.hedgingPercentile = hedgingPercentile;
+    }
+
+    public int getHedgingBudgetPercent() {
+      return hedgingBudgetPercent;
+    }
+
+    public void setHedgingBudgetPercent(int hedgingBudgetPercent) {
+      this.hedgingBudgetPercent = hedgingBudgetPercent;
+    }
+
+    public long getHedgingMinDelayMillis() {
+      return hedgingMinDelayMillis;
+    }
+
+    public void setHedgingMinDelayMillis(long hedgingMinDelayMillis) {
+      this.hedgingMinDelayMillis = hedgingMinDelayMillis;
+    }
+
+    public int getHedgingMinSamples() {
+      return hedgingMinSamples;
+    }
+
+    public void setHedgingMinSamples(int hedgingMinSamples) {
+      this.hedgingMinSamples = hedgingMinSamples;
+    }
+  }
+
+  /**
+   * Configuración de consultas en lote.
+   */
+  public static class Batch {
+
+    /**
+     * Número máximo de consultas aceptadas en un lote.
+     */
+    @Min(value = 1, message = "El lote debe admitir al menos 1 consulta")
+    @Max(value = 1000, message = "El lote no debe exceder 1000 consultas")
+    private int maxItems = 100;
+
+    /**
+     * Consultas al portal JCE en paralelo por lote (los aciertos de caché no
+     * cuentan).
+     */
+    @Min(value = 1, message = "La concurrencia del lote debe ser al menos 1")
+    @Max(value = 64, message = "La concurrencia del lote no debe exceder 64")
+    private int maxConcurrency = 8;
+
+    /**
+     * Consultas leídas por adelantado en el endpoint de flujo NDJSON.
+     */
+    @Min(value = 1, message = "El prefetch del flujo debe ser al menos 1")
+    @Max(value = 4096, message = "El prefetch del flujo no debe exceder 4096")
+    private int streamPrefetch = 256;
+
+    /**
+     * Tiempo máximo de una petición de flujo NDJSON (en minutos).
+     */
+    @Min(value = 1, message = "El timeout del flujo debe ser al menos 1 minuto")
+    @Max(value = 1440, message = "El timeout del flujo no debe exceder 24 horas")
+    private int streamTimeoutMinutes = 120;
+
+    // Getters y Setters
+    public int getMaxItems() {
+      return maxItems;
+    }
+
+    public void setMaxItems(int maxItems) {
+      this.maxItems = maxItems;
+    }
+
+    public int getMaxConcurrency() {
+      return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+      this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getStreamPrefetch() {
+      return streamPrefetch;
+    }
+
+    public void setStreamPrefetch(int streamPrefetch) {
+      this.streamPrefetch = streamPrefetch;
+    }
+
+    public int getStreamTimeoutMinutes() {
+      return streamTimeoutMinutes;
+    }
+
+    public void setStreamTimeoutMinutes(int streamTimeoutMinutes) {
+      this.streamTimeoutMinutes = streamTimeoutMinutes;
+    }
+  }
+
+  /**
+   * Configuración del precalentamiento del caché con las cédulas más
+   * consultadas.
+   */
+  public static class Warmup {
+
+    /**
+     * Habilitar el precalentamiento.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Archivo con una cédula por línea (con o sin guiones); las líneas
+     * vacías o que empiezan con # se ignoran. Vacío para no usar lista.
+     */
+    private String file = "";
+
+    /**
+     * Log de auditoría del que se extraen las cédulas más consultadas.
+     * Vacío para no usarlo.
+     */
+    private String auditLogPath = "logs/jce-consulta-ms-audit.log";
+
+    /**
+     * Cantidad de cédulas más consultadas que se toman del log de
+     * auditoría.
+     */
+    @Min(value = 0, message = "El top de cédulas no puede ser negativo")
+    @Max(value = 1000000, message = "El top de cédulas no debe exceder 1000000")
+    private int topN = 5000;
+
+    /**
+     * Fracción del límite adaptativo de concurrencia hacia la JCE que puede
+     * usar el precalentamiento.
+     */
+    @DecimalMin(value = "0.01", message = "La fracción del presupuesto debe ser al menos 0.01")
+    @DecimalMax(value = "1.0", message = "La fracción del presupuesto no debe exceder 1.0")
+    private double budgetFraction = 0.2;
+
+    /**
+     * Consultas por segundo como máximo (0 = sin tope adicional).
+     */
+    @Min(value = 0, message = "La tasa del precalentamiento no puede ser negativa")
+    @Max(value = 1000, message = "La tasa del precalentamiento no debe exceder 1000 por segundo")
+    private int maxRatePerSecond = 10;
+
+    /**
+     * Ejecutar el precalentamiento al terminar de arrancar.
+     */
+    private boolean onStartup = true;
+
+    /**
+     * Expresión cron de las ejecuciones periódicas ("-" para desactivarlas).
+     */
+    @NotBlank(message = "La expresión cron del precalentamiento no puede estar vacía")
+    private String cron = "0 30 6 * * MON-FRI";
+
+    // Getters y Setters
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public String getFile() {
+      return file;
+    }
+
+    public void setFile(String file) {
+      this.file = file;
+    }
+
+    public String getAuditLogPath() {
+      return auditLogPath;
+    }
+
+    public void setAuditLogPath(String auditLogPath) {
+      this.auditLogPath = auditLogPath;
+    }
+
+    public int getTopN() {
+      return topN;
+    }
+
+    public void setTopN(int topN) {
+      this.topN = topN;
+    }
+
+    public double getBudgetFraction() {
+      return budgetFraction;
+    }
+
+    public void setBudgetFraction(double budgetFraction) {
+      this.budgetFraction = budgetFraction;
+    }
+
+    public int getMaxRatePerSecond() {
+      return maxRatePerSecond;
+    }
+
+    public void setMaxRatePerSecond(int maxRatePerSecond) {
+      this.maxRatePerSecond = maxRatePerSecond;
+    }
+
+    public boolean isOnStartup() {
+      return onStartup;
+    }
+
+    public void setOnStartup(boolean onStartup) {
+      this.onStartup = onStartup;
+    }
+
+    public String getCron() {
+      return cron;
+    }
+
+    public void setCron(String cron) {
+      this.cron = cron;
+    }
   }
 
   /**
@@ -0,0 +1,74 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import com.arojas.jce_consulta.cache.CiudadanoCacheado;
+import com.arojas.jce_consulta.cache.CodecCiudadano;
+
+/**
+ * Configuración del caché de consultas de ciudadanos.
+ *
+ * Expone el codec de registros y el template reactivo de Redis (Lettuce)
+ * usado como segundo nivel del caché de consultas. El primer nivel
+ * (Caffeine y, si está habilitado, el almacén fuera del heap) se construye
+ * dentro de {@link com.arojas.jce_consulta.cache.ConsultaCache} a partir de
+ * {@link AppProperties.Cache}.
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+@Configuration
+public class CacheConfig {
+
+  private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+
+  /**
+   * Codec binario de los registros de ciudadanos, compartido por Redis y el
+   * almacén local fuera del heap.
+   *
+   * @param appProperties propiedades con la configuración de compresión
+   * @return codec configurado
+   */
+  @Bean
+  public CodecCiudadano codecCiudadano(AppProperties appProperties) {
+    AppProperties.Cache config = appProperties.getCache();
+    return new CodecCiudadano(config.isRedisCompressionEnabled(), config.getRedisCompressionThreshold());
+  }
+
+  /**
+   * Template reactivo para el caché distribuido de consultas.
+   *
+   * Los valores se guardan con {@link CodecCiudadano} (binario compacto,
+   * opcionalmente comprimido) en lugar de JSON.
+   *
+   * @param connectionFactory fábrica de conexiones reactivas de Redis
+   * @param codecCiudadano    codec de los registros
+   * @return template con claves String (cédula) y valores
+   *         {@link CiudadanoCacheado}
+   */
+  @Bean
+  public ReactiveRedisTemplate<String, CiudadanoCacheado> ciudadanoRedisTemplate(
+      ReactiveRedisConnectionFactory connectionFactory,
+      CodecCiudadano codecCiudadano) {
+
+    RedisSerializationContext<String, CiudadanoCacheado> context = RedisSerializationContext
+        .<String, CiudadanoCacheado>newSerializationContext(new StringRedisSerializer())
+        .value(codecCiudadano)
+        .build();
+
+    logger.info("🗄️ Template reactivo de Redis configurado para caché de consultas (codec binario v{})",
+        CodecCiudadano.VERSION);
+    return new ReactiveRedisTemplate<>(connectionFactory, context);
+  }
+}
@@ -11,26 +11,35 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 
 import com.arojas.jce_consulta.config.RateLimitConfig.BucketResolver.RateLimitProperties;
+import com.arojas.jce_consulta.ratelimit.LeasedBucket;
+import com.arojas.jce_consulta.ratelimit.RateLimitModeTracker;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
 import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
 import io.github.bucket4j.Refill;
 import io.github.bucket4j.distributed.ExpirationAfterWriteStrategy;
 import io.github.bucket4j.distributed.proxy.ProxyManager;
 import io.github.bucket4j.redis.lettuce.cas.LettuceBasedProxyManager;
 import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * Configuración avanzada de Rate Limiting usando Bucket4j y Redis.
  * Implementa limitación de velocidad distribuida sin perfiles.
  * 
  * Características:
- * - Rate limiting por IP address
+ * - Rate limiting por IP address o por API key
  * - Contadores distribuidos en Redis
+ * - Arrendamiento local de tokens para evitar un viaje a Redis por petición
  * - Configuración flexible y granular
  * - Métricas y logging detallado
- * - Estrategias de fallback para alta disponibilidad
+ * - Fallback a buckets locales mientras Redis no está disponible
  * 
  * @author A. Rojas
  * @version 1.0.0
@@ -56,22 +65,67 @@ public class RateLimitConfig {
   @Value("${rate-limit.cache-expiration-minutes:60}")
   private int cacheExpirationMinutes;
 
+  @Value("${rate-limit.local-bucket-cache-size:10000}")
+  private long localBucketCacheSize;
+
+  @Value("${jce.consulta.rate-limit.redis-key-prefix:jce:ratelimit}")
+  private String redisKeyPrefix;
+
+  @Value("${rate-limit.lease.enabled:true}")
+  private boolean leaseEnabled;
+
+  @Value("${rate-limit.lease.min-size:1}")
+  private long leaseMinSize;
+
+  @Value("${rate-limit.lease.max-size:20}")
+  private long leaseMaxSize;
+
+  @Value("${rate-limit.lease.horizon-millis:250}")
+  private long leaseHorizonMillis;
+
+  @Value("${rate-limit.fallback.node-count:1}")
+  private int fallbackNodeCount;
+
+  @Value("${spring.data.redis.timeout:2000ms}")
+  private Duration redisTimeout;
+
   // ========================================
   // PROXY MANAGER REDIS DISTRIBUIDO
   // ========================================
   @Bean
-  @SuppressWarnings("unchecked")
-  public ProxyManager<String> proxyManager(LettuceConnectionFactory lettuceConnectionFactory) {
+  public RateLimitModeTracker rateLimitModeTracker(LettuceConnectionFactory lettuceConnectionFactory,
+      MeterRegistry meterRegistry) {
     logger.info("🔧 Configurando Rate Limit distribuido con Redis");
     logger.info("📊 Límites configurados: {} solicitudes/min, {} solicitudes/hora, {} burst, {} min cache",
         requestsPerMinute, requestsPerHour, burstCapacity, cacheExpirationMinutes);
 
-    try {
-      var conf = lettuceConnectionFactory.getStandaloneConfiguration();
-      String redisUri = "redis://" + (conf.getPassword() != null ? conf.getPassword() + "@" : "")
-          + conf.getHostName() + ":" + conf.getPort();
-      RedisClient redisClient = RedisClient.create(redisUri);
+    return new RateLimitModeTracker(
+        () -> crearProxyManager(lettuceConnectionFactory),
+        () -> {
+          try (var conexion = lettuceConnectionFactory.getConnection()) {
+            return "PONG".equalsIgnoreCase(conexion.ping());
+          }
+        },
+        meterRegistry);
+  }
+
+  /**
+   * Crea el ProxyManager de Bucket4j sobre Lettuce. Conecta de inmediato,
+   * por lo que lanza excepción si Redis no está disponible.
+   */
+  @SuppressWarnings("unchecked")
+  private ProxyManager<String> crearProxyManager(LettuceConnectionFactory lettuceConnectionFactory) {
+    var conf = lettuceConnectionFactory.getStandaloneConfiguration();
+    RedisURI.Builder uri = RedisURI.builder()
+        .withHost(conf.getHostName())
+        .withPort(conf.getPort())
+        .withTimeout(redisTimeout);
+    if (conf.getPassword().isPresent()) {
+      uri.withPassword(conf.getPassword().get());
+    }
+    RedisClient redisClient = RedisClient.create(uri.build());
 
+    try {
       ProxyManager proxyManager = LettuceBasedProxyManager.builderFor(redisClient)
           .withExpirationStrategy(
               ExpirationAfterWriteStrategy.basedOnTimeForRefillingBucketUpToMax(
@@ -80,11 +134,9 @@ public class RateLimitConfig {
 
       logger.info("✅ ProxyManager Redis configurado exitosamente");
       return (ProxyManager<String>) proxyManager;
-
-    } catch (Exception e) {
-      logger.error("❌ Error configurando ProxyManager Redis: {}", e.getMessage());
-      logger.warn("🔄 Fallback: Usando rate limiting en memoria local");
-      throw new RuntimeException("No se pudo configurar rate limiting distribuido", e);
+    } catch (RuntimeException e) {
+      redisClient.shutdownAsync();
+      throw e;
     }
   }
 
@@ -106,13 +158,34 @@ public class RateLimitConfig {
     return configuration;
   }
 
+  /**
+   * Límites de los buckets locales usados mientras Redis no está
+   * disponible: los globales repartidos entre los nodos conocidos.
+   */
+  private BucketConfiguration configuracionLocal() {
+    int nodos = Math.max(1, fallbackNodeCount);
+    return BucketConfiguration.builder()
+        .addLimit(Bandwidth.classic(Math.max(1, (requestsPerMinute + burstCapacity) / nodos),
+            Refill.greedy(Math.max(1, requestsPerMinute / nodos), Duration.ofMinutes(1))))
+        .addLimit(Bandwidth.classic(Math.max(1, requestsPerHour / nodos),
+            Refill.greedy(Math.max(1, requestsPerHour / nodos), Duration.ofHours(1))))
+        .build();
+  }
+
   // ========================================
-  // RESOLVER DE BUCKETS POR IP
+  // RESOLVER DE BUCKETS POR CLIENTE
   // ========================================
   @Bean
-  public BucketResolver bucketResolver(ProxyManager<String> proxyManager,
-      BucketConfiguration bucketConfiguration) {
-    return new BucketResolver(proxyManager, bucketConfiguration);
+  public BucketResolver bucketResolver(RateLimitModeTracker rateLimitModeTracker,
+      BucketConfiguration bucketConfiguration, MeterRegistry meterRegistry) {
+    long leaseMin = leaseEnabled ? leaseMinSize : 0;
+    long leaseMax = leaseEnabled ? leaseMaxSize : 0;
+    logger.info("🪣 Resolver de buckets por cliente - Prefijo: {}, Máx. locales: {}, Lease: {} ({}-{} tokens)",
+        redisKeyPrefix, localBucketCacheSize, leaseEnabled, leaseMin, leaseMax);
+    logger.info("🪣 Buckets locales de respaldo repartidos entre {} nodos", Math.max(1, fallbackNodeCount));
+    return new BucketResolver(rateLimitModeTracker, bucketConfiguration, configuracionLocal(), redisKeyPrefix + ":",
+        localBucketCacheSize, Duration.ofMinutes(cacheExpirationMinutes),
+        leaseMin, leaseMax, Duration.ofMillis(leaseHorizonMillis), meterRegistry);
   }
 
   // ========================================
@@ -134,26 +207,121 @@ public class RateLimitConfig {
   // ========================================
   // CLASES INTERNAS
   // ========================================
+
+  /**
+   * Resuelve el bucket de cada cliente (IP o API key).
+   *
+   * Los proxies de Bucket4j se guardan en un mapa Caffeine acotado para no
+   * reconstruirlos en cada petición; el estado de los tokens sigue en Redis,
+   * por lo que el límite es común a todos los nodos. Cada proxy se envuelve
+   * en un {@link LeasedBucket} que atiende la mayoría de consumos desde un
+   * lote local; al expulsar una clave sus tokens sin usar se devuelven.
+   *
+   * Si Redis falla, {@link RateLimitModeTracker} pasa a modo local y cada
+   * cliente se limita con un bucket en memoria con los límites repartidos
+   * entre los nodos. Al volver Redis se descarta el estado local y Redis
+   * vuelve a ser la única fuente de verdad.
+   */
   public static class BucketResolver {
-    private final ProxyManager<String> proxyManager;
+    private final RateLimitModeTracker modo;
     private final BucketConfiguration bucketConfiguration;
+    private final BucketConfiguration configuracionLocal;
+    private final String prefijo;
+    private final Cache<String, BucketCliente> buckets;
+    private final long leaseMinimo;
+    private final long leaseMaximo;
+    private final Duration horizonteLease;
+    private final MeterRegistry meterRegistry;
     private static final Logger logger = LoggerFactory.getLogger(BucketResolver.class);
 
-    public BucketResolver(ProxyManager<String> proxyManager, BucketConfiguration bucketConfiguration) {
-      this.proxyManager = proxyManager;
+    public BucketResolver(RateLimitModeTracker modo, BucketConfiguration bucketConfiguration,
+        BucketConfiguration configuracionLocal, String prefijo, long maxBuckets, Duration expiracion,
+        long leaseMinimo, long leaseMaximo, Duration horizonteLease, MeterRegistry meterRegistry) {
+      this.modo = modo;
       this.bucketConfiguration = bucketConfiguration;
+      this.configuracionLocal = configuracionLocal;
+      this.prefijo = prefijo;
+      this.leaseMinimo = leaseMinimo;
+      this.leaseMaximo = leaseMaximo;
+      this.horizonteLease = horizonteLease;
+      this.meterRegistry = meterRegistry;
+      this.buckets = Caffeine.newBuilder()
+          .maximumSize(maxBuckets)
+          .expireAfterAccess(expiracion)
+          .<String, BucketCliente>removalListener((key, bucket, causa) -> {
+            if (bucket != null && bucket.remoto != null) {
+              bucket.remoto.liberar();
+            }
+          })
+          .build();
+
+      modo.alRecuperar(() -> {
+        logger.info("🔁 Descartando {} buckets locales tras recuperar Redis", buckets.estimatedSize());
+        buckets.invalidateAll();
+      });
     }
 
-    public Bucket resolveBucket(String key) {
-      try {
-        Bucket bucket = proxyManager.builder().build(key, bucketConfiguration);
-        logger.debug("🪣 Bucket resuelto para clave: {}", key);
-        return bucket;
-      } catch (Exception e) {
-        logger.error("❌ Error resolviendo bucket para clave {}: {}", key, e.getMessage());
-        return Bucket.builder()
-            .addLimit(Bandwidth.classic(100, Refill.greedy(100, Duration.ofMinutes(1))))
-            .build();
+    /**
+     * Consume tokens del bucket del cliente, en Redis o en memoria local
+     * según el modo activo.
+     *
+     * @param key    clave del cliente
+     * @param tokens tokens a consumir
+     * @return resultado del consumo
+     */
+    public ConsumptionProbe consumir(String key, long tokens) {
+      BucketCliente bucket = buckets.get(key, BucketCliente::new);
+
+      if (modo.isDistribuido()) {
+        try {
+          LeasedBucket remoto = bucket.remoto();
+          if (remoto != null) {
+            return remoto.tryConsumeAndReturnRemaining(tokens);
+          }
+        } catch (Exception e) {
+          modo.registrarFallo(e);
+        }
+      }
+      return bucket.local.tryConsumeAndReturnRemaining(tokens);
+    }
+
+    /**
+     * Buckets remoto (creado bajo demanda) y local de un cliente.
+     */
+    private final class BucketCliente {
+      private final String key;
+      private final Bucket local;
+      private volatile LeasedBucket remoto;
+
+      private BucketCliente(String key) {
+        this.key = key;
+        var builder = Bucket.builder();
+        for (Bandwidth limite : configuracionLocal.getBandwidths()) {
+          builder.addLimit(limite);
+        }
+        this.local = builder.build();
+      }
+
+      private LeasedBucket remoto() {
+        LeasedBucket actual = remoto;
+        if (actual == null) {
+          ProxyManager<String> proxyManager = modo.getProxyManager().orElse(null);
+          if (proxyManager == null) {
+            return null;
+          }
+          synchronized (this) {
+            actual = remoto;
+            if (actual == null) {
+              Bucket bucket = proxyManager.builder().build(prefijo + key, bucketConfiguration);
+              logger.debug("🪣 Bucket resuelto para clave: {}", key);
+              actual = new LeasedBucket(key, bucket,
+                  tarea -> Schedulers.boundedElastic().schedule(tarea),
+                  leaseMinimo, leaseMaximo, horizonteLease, meterRegistry);
+              remoto = actual;
+            }
+          }
+        }
+        return actual;
       }
     }
 
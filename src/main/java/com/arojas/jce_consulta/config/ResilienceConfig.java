@@ -0,0 +1,284 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.config;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.arojas.jce_consulta.exceptions.ApiException;
+import com.arojas.jce_consulta.resilience.AdaptiveConcurrencyLimiter;
+import com.arojas.jce_consulta.resilience.HedgingPolicy;
+import com.arojas.jce_consulta.resilience.TokenRatioBudget;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig.SlidingWindowType;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configuración de resiliencia para las llamadas al portal JCE.
+ *
+ * Construye el circuit breaker del portal a partir de
+ * {@link AppProperties.Resilience}: ventana deslizante por número de
+ * llamadas, apertura por tasa de fallos o de llamadas lentas, espera en
+ * estado abierto y sondeo en half-open con un número limitado de llamadas.
+ *
+ * Mientras está abierto, las consultas fallan de inmediato con
+ * {@code CallNotPermittedException} sin ocupar conexiones ni hilos.
+ * Las métricas {@code resilience4j.circuitbreaker.*} y el contador
+ * {@code jce.circuitbreaker.transiciones} se publican en Micrometer.
+ *
+ * También expone el presupuesto global de reintentos, que limita los
+ * reintentos de todo el proceso a un porcentaje de las consultas primarias,
+ * el limitador adaptativo de concurrencia hacia el portal y la política de
+ * peticiones de cobertura (hedging).
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+@Configuration
+public class ResilienceConfig {
+
+  private static final Logger logger = LoggerFactory.getLogger(ResilienceConfig.class);
+
+  /**
+   * Nombre del circuit breaker del portal, usado como etiqueta en métricas.
+   */
+  public static final String CIRCUIT_BREAKER_JCE = "jce-portal";
+
+  // ========================================
+  // CIRCUIT BREAKER
+  // ========================================
+
+  /**
+   * Registro de circuit breakers con la configuración del portal JCE.
+   *
+   * @param appProperties propiedades de la aplicación
+   * @param meterRegistry registro de métricas
+   * @return registro con métricas enlazadas a Micrometer
+   */
+  @Bean
+  public CircuitBreakerRegistry circuitBreakerRegistry(AppProperties appProperties, MeterRegistry meterRegistry) {
+    AppProperties.Resilience resilience = appProperties.getResilience();
+
+    CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+        .slidingWindowType(SlidingWindowType.COUNT_BASED)
+        .slidingWindowSize(resilience.getCircuitBreakerSlidingWindowSize())
+        .minimumNumberOfCalls(resilience.getCircuitBreakerFailureThreshold())
+        .failureRateThreshold(resilience.getCircuitBreakerFailureRateThreshold())
+        .slowCallRateThreshold(resilience.getCircuitBreakerSlowCallRateThreshold())
+        .slowCallDurationThreshold(Duration.ofSeconds(resilience.getCircuitBreakerSlowCallDurationSeconds()))
+        .waitDurationInOpenState(Duration.ofSeconds(resilience.getCircuitBreakerWaitDurationSeconds()))
+        .permittedNumberOfCallsInHalfOpenState(resilience.getCircuitBreakerPermittedCallsInHalfOpen())
+        .recordException(ResilienceConfig::esFalloDelPortal)
+        .ignoreExceptions(ApiException.class)
+        .build();
+
+    CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+    TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+    return registry;
+  }
+
+  /**
+   * Circuit breaker para las consultas al portal JCE.
+   *
+   * @param circuitBreakerRegistry registro de circuit breakers
+   * @param appProperties          propiedades de la aplicación
+   * @param meterRegistry          registro de métricas
+   * @return circuit breaker del portal (deshabilitado si así se configura)
+   */
+  @Bean
+  public CircuitBreaker jceCircuitBreaker(
+      CircuitBreakerRegistry circuitBreakerRegistry,
+      AppProperties appProperties,
+      MeterRegistry meterRegistry) {
+
+    CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER_JCE);
+    AppProperties.Resilience resilience = appProperties.getResilience();
+
+    circuitBreaker.getEventPublisher().onStateTransition(evento -> {
+      var transicion = evento.getStateTransition();
+      Counter.builder("jce.circuitbreaker.transiciones")
+          .description("Transiciones de estado del circuit breaker del portal JCE")
+          .tag("nombre", evento.getCircuitBreakerName())
+          .tag("desde", transicion.getFromState().name())
+          .tag("hacia", transicion.getToState().name())
+          .register(meterRegistry)
+          .increment();
+
+      if (transicion.getToState() == CircuitBreaker.State.OPEN) {
+        logger.warn("🔴 Circuit breaker '{}' abierto ({}): fallos {}%, lentas {}%",
+            evento.getCircuitBreakerName(), transicion,
+            circuitBreaker.getMetrics().getFailureRate(), circuitBreaker.getMetrics().getSlowCallRate());
+      } else {
+        logger.info("🔁 Circuit breaker '{}': {}", evento.getCircuitBreakerName(), transicion);
+      }
+    });
+
+    if (!resilience.isCircuitBreakerEnabled()) {
+      circuitBreaker.transitionToDisabledState();
+    }
+
+    logger.info("⚡ Circuit breaker '{}' configurado:", CIRCUIT_BREAKER_JCE);
+    logger.info("   • Habilitado: {}", resilience.isCircuitBreakerEnabled());
+    logger.info("   • Ventana: {} llamadas (mínimo {})",
+        resilience.getCircuitBreakerSlidingWindowSize(), resilience.getCircuitBreakerFailureThreshold());
+    logger.info("   • Umbrales: fallos {}%, lentas {}% (> {}s)",
+        resilience.getCircuitBreakerFailureRateThreshold(), resilience.getCircuitBreakerSlowCallRateThreshold(),
+        resilience.getCircuitBreakerSlowCallDurationSeconds());
+    logger.info("   • Abierto: {}s, llamadas half-open: {}",
+        resilience.getCircuitBreakerWaitDurationSeconds(), resilience.getCircuitBreakerPermittedCallsInHalfOpen());
+
+    return circuitBreaker;
+  }
+
+  // ========================================
+  // PRESUPUESTO DE REINTENTOS
+  // ========================================
+
+  /**
+   * Presupuesto de reintentos compartido por todas las consultas al portal.
+   *
+   * @param appProperties propiedades de la aplicación
+   * @param meterRegistry registro de métricas
+   * @return presupuesto de reintentos
+   */
+  @Bean
+  public TokenRatioBudget presupuestoReintentos(AppProperties appProperties, MeterRegistry meterRegistry) {
+    AppProperties.Resilience resilience = appProperties.getResilience();
+
+    logger.info("🎫 Presupuesto de reintentos: {}% de consultas primarias + {}/s en ventana de {}s",
+        resilience.getRetryBudgetPercent(), resilience.getRetryBudgetMinPerSecond(),
+        resilience.getRetryBudgetWindowSeconds());
+
+    return new TokenRatioBudget(
+        "reintentos",
+        resilience.getRetryBudgetPercent() / 100.0,
+        resilience.getRetryBudgetMinPerSecond(),
+        Duration.ofSeconds(resilience.getRetryBudgetWindowSeconds()),
+        meterRegistry);
+  }
+
+  // ========================================
+  // LÍMITE ADAPTATIVO DE CONCURRENCIA
+  // ========================================
+
+  /**
+   * Limitador adaptativo de llamadas concurrentes al portal JCE.
+   *
+   * @param appProperties propiedades de la aplicación
+   * @param meterRegistry registro de métricas
+   * @return limitador de concurrencia
+   */
+  @Bean
+  public AdaptiveConcurrencyLimiter limitadorConcurrenciaJce(AppProperties appProperties,
+      MeterRegistry meterRegistry) {
+    AppProperties.Resilience resilience = appProperties.getResilience();
+
+    logger.info("🚦 Limitador adaptativo '{}': inicial {}, rango [{}, {}], cola {} ({}ms), habilitado: {}",
+        CIRCUIT_BREAKER_JCE, resilience.getConcurrencyInitialLimit(), resilience.getConcurrencyMinLimit(),
+        resilience.getConcurrencyMaxLimit(), resilience.getConcurrencyMaxQueue(),
+        resilience.getConcurrencyQueueTimeoutMillis(), resilience.isConcurrencyLimitEnabled());
+
+    return new AdaptiveConcurrencyLimiter(
+        CIRCUIT_BREAKER_JCE,
+        resilience.getConcurrencyInitialLimit(),
+        resilience.getConcurrencyMinLimit(),
+        resilience.getConcurrencyMaxLimit(),
+        resilience.getConcurrencyMaxQueue(),
+        Duration.ofMillis(resilience.getConcurrencyQueueTimeoutMillis()),
+        ResilienceConfig::esSobrecargaDelPortal,
+        meterRegistry);
+  }
+
+  // ========================================
+  // PETICIONES DE COBERTURA
+  // ========================================
+
+  /**
+   * Política de cobertura para las consultas al portal JCE.
+   *
+   * Usa un presupuesto propio con la misma ventana que el de reintentos y
+   * sin reserva mínima: solo cubre una fracción del tráfico real.
+   *
+   * @param appProperties propiedades de la aplicación
+   * @param meterRegistry registro de métricas
+   * @return política de cobertura
+   */
+  @Bean
+  public HedgingPolicy politicaCoberturaJce(AppProperties appProperties, MeterRegistry meterRegistry) {
+    AppProperties.Resilience resilience = appProperties.getResilience();
+
+    TokenRatioBudget presupuestoCobertura = new TokenRatioBudget(
+        "cobertura",
+        resilience.getHedgingBudgetPercent() / 100.0,
+        0,
+        Duration.ofSeconds(resilience.getRetryBudgetWindowSeconds()),
+        meterRegistry);
+
+    logger.info("🪂 Cobertura de peticiones: {} (p{}, máx {}% del tráfico, retraso mínimo {}ms)",
+        resilience.isHedgingEnabled() ? "habilitada" : "deshabilitada", resilience.getHedgingPercentile(),
+        resilience.getHedgingBudgetPercent(), resilience.getHedgingMinDelayMillis());
+
+    return new HedgingPolicy(
+        resilience.isHedgingEnabled(),
+        resilience.getHedgingPercentile(),
+        resilience.getHedgingMinSamples(),
+        Duration.ofMillis(resilience.getHedgingMinDelayMillis()),
+        presupuestoCobertura,
+        meterRegistry);
+  }
+
+  // ========================================
+  // MÉTODOS PRIVADOS
+  // ========================================
+
+  /**
+   * Determina si un error cuenta como fallo del portal.
+   *
+   * Los errores 4xx y los argumentos inválidos se deben a la petición, no a
+   * la salud del portal, y no abren el circuito.
+   */
+  private static boolean esFalloDelPortal(Throwable throwable) {
+    if (respuestaHttp(throwable) instanceof WebClientResponseException webEx) {
+      return !webEx.getStatusCode().is4xxClientError();
+    }
+    return !(throwable instanceof IllegalArgumentException);
+  }
+
+  /**
+   * Determina si un error indica que el portal está sobrecargado: timeouts,
+   * fallos de conexión, 429 o 5xx.
+   */
+  private static boolean esSobrecargaDelPortal(Throwable throwable) {
+    if (respuestaHttp(throwable) instanceof WebClientResponseException webEx) {
+      return webEx.getStatusCode().is5xxServerError()
+          || webEx.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+    return throwable instanceof TimeoutException
+        || throwable instanceof ConnectException
+        || throwable instanceof WebClientRequestException;
+  }
+
+  /**
+   * Obtiene el error HTTP original; el cliente lo envuelve con un mensaje
+   * descriptivo.
+   */
+  private static Throwable respuestaHttp(Throwable throwable) {
+    return throwable.getCause() instanceof WebClientResponseException ? throwable.getCause() : throwable;
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.config;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Configuración del cliente HTTP hacia el portal JCE.
+ *
+ * Define un pool de conexiones Reactor Netty exclusivo para el portal, de
+ * modo que su tamaño, cola de espera y política de desalojo se ajusten a la
+ * capacidad real del servicio externo y no compitan con otros clientes
+ * WebClient de la aplicación. Los valores provienen de
+ * {@link AppProperties.Jce}.
+ *
+ * El pool publica en Micrometer (registro global, al que Spring Boot enlaza
+ * su registro) las métricas {@code reactor.netty.connection.provider.*}:
+ * conexiones activas, inactivas, totales y peticiones pendientes, etiquetadas
+ * con el nombre {@value #NOMBRE_POOL}.
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+@Configuration
+public class WebClientConfig {
+
+  private static final Logger logger = LoggerFactory.getLogger(WebClientConfig.class);
+
+  /**
+   * Nombre del pool, usado como etiqueta en las métricas.
+   */
+  public static final String NOMBRE_POOL = "jce-portal";
+
+  // ========================================
+  // POOL DE CONEXIONES
+  // ========================================
+
+  /**
+   * Pool de conexiones dedicado al portal JCE.
+   *
+   * @param appProperties propiedades de la aplicación
+   * @return proveedor de conexiones instrumentado
+   */
+  @Bean(destroyMethod = "dispose")
+  public ConnectionProvider jceConnectionProvider(AppProperties appProperties) {
+    AppProperties.Jce jce = appProperties.getJce();
+
+    ConnectionProvider.Builder builder = ConnectionProvider.builder(NOMBRE_POOL)
+        .maxConnections(jce.getMaxConnections())
+        .pendingAcquireMaxCount(jce.getPendingAcquireMaxCount())
+        .pendingAcquireTimeout(Duration.ofSeconds(jce.getPendingAcquireTimeoutSeconds()))
+        .maxIdleTime(Duration.ofSeconds(jce.getMaxIdleTimeSeconds()))
+        .maxLifeTime(Duration.ofSeconds(jce.getMaxLifeTimeSeconds()))
+        .metrics(true);
+
+    if (jce.getEvictionIntervalSeconds() > 0) {
+      builder.evictInBackground(Duration.ofSeconds(jce.getEvictionIntervalSeconds()));
+    }
+
+    logger.info("🔌 Pool de conexiones '{}' configurado:", NOMBRE_POOL);
+    logger.info("   • Max conexiones: {}", jce.getMaxConnections());
+    logger.info("   • Cola de espera: {} (timeout {}s)",
+        jce.getPendingAcquireMaxCount(), jce.getPendingAcquireTimeoutSeconds());
+    logger.info("   • Inactividad máx: {}s, vida máx: {}s, desalojo cada: {}s",
+        jce.getMaxIdleTimeSeconds(), jce.getMaxLifeTimeSeconds(), jce.getEvictionIntervalSeconds());
+
+    return builder.build();
+  }
+
+  // ========================================
+  // CLIENTE HTTP
+  // ========================================
+
+  /**
+   * Cliente Reactor Netty sobre el pool dedicado, con los timeouts de
+   * conexión y respuesta y la compresión configurados para el portal JCE.
+   *
+   * @param jceConnectionProvider pool de conexiones del portal
+   * @param appProperties         propiedades de la aplicación
+   * @return cliente HTTP para construir el WebClient del portal
+   */
+  @Bean
+  public HttpClient jcePortalHttpClient(ConnectionProvider jceConnectionProvider, AppProperties appProperties) {
+    AppProperties.Jce jce = appProperties.getJce();
+
+    return HttpClient.create(jceConnectionProvider)
+        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) appProperties.getConnectionTimeoutDuration().toMillis())
+        .responseTimeout(appProperties.getReadTimeoutDuration())
+        .compress(jce.isGzipEnabled());
+  }
+}
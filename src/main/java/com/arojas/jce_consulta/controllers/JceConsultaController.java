@@ -5,11 +5,21 @@
 
 package com.arojas.jce_consulta.controllers;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -21,12 +31,20 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import com.arojas.jce_consulta.DTOs.ConsultaLoteRequest;
+import com.arojas.jce_consulta.DTOs.ConsultaLoteResponse;
 import com.arojas.jce_consulta.DTOs.ConsultaRequest;
 import com.arojas.jce_consulta.DTOs.ConsultaResponse;
+import com.arojas.jce_consulta.cache.PlantillaRespuesta;
+import com.arojas.jce_consulta.config.AppProperties;
+import com.arojas.jce_consulta.config.RateLimitConfig.BucketResolver;
 import com.arojas.jce_consulta.service.JceConsultaService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
 
-import io.github.bucket4j.Bucket;
 import io.github.bucket4j.ConsumptionProbe;
 import io.micrometer.core.annotation.Timed;
 import io.swagger.v3.oas.annotations.Operation;
@@ -41,7 +59,11 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * Controlador REST para consultas de ciudadanos en el portal JCE.
@@ -50,7 +72,7 @@ import reactor.core.publisher.Mono;
  * de ciudadanos dominicanos utilizando su número de cédula.
  * 
  * Características implementadas:
- * - Rate limiting por IP con bucket token
+ * - Rate limiting distribuido por IP o API key con bucket token
  * - Validación robusta de parámetros
  * - Documentación OpenAPI/Swagger completa
  * - Métricas de rendimiento con Micrometer
@@ -58,6 +80,7 @@ import reactor.core.publisher.Mono;
  * - Soporte para consultas reactivas
  * - Múltiples formatos de respuesta
  * - Headers de control de caché
+ * - Aciertos de caché servidos como JSON ya serializado
  * 
  * @author A. Rojas
  * @version 1.0.0
@@ -71,13 +94,31 @@ public class JceConsultaController {
   private static final Logger logger = LoggerFactory.getLogger(JceConsultaController.class);
 
   private final JceConsultaService jceConsultaService;
-  private final Bucket rateLimitBucket;
+  private final BucketResolver bucketResolver;
+  private final ObjectMapper objectMapper;
+  private final long timeoutFlujoMillis;
+  private final int prefetchFlujo;
+  private final String apiKeyHeader;
+  private final Set<String> clavesApiConocidas;
 
   public JceConsultaController(
       JceConsultaService jceConsultaService,
-      @Qualifier("globalRateLimitBucket") Bucket rateLimitBucket) {
+      BucketResolver bucketResolver,
+      ObjectMapper objectMapper,
+      AppProperties appProperties,
+      @Value("${rate-limit.api-key-header:X-API-Key}") String apiKeyHeader,
+      @Value("${rate-limit.api-keys:}") String[] apiKeys) {
     this.jceConsultaService = jceConsultaService;
-    this.rateLimitBucket = rateLimitBucket;
+    this.bucketResolver = bucketResolver;
+    this.apiKeyHeader = apiKeyHeader;
+    this.clavesApiConocidas = Arrays.stream(apiKeys)
+        .map(String::trim)
+        .filter(apiKey -> !apiKey.isEmpty())
+        .map(JceConsultaController::claveApi)
+        .collect(Collectors.toUnmodifiableSet());
+    this.objectMapper = objectMapper;
+    this.timeoutFlujoMillis = Duration.ofMinutes(appProperties.getBatch().getStreamTimeoutMinutes()).toMillis();
+    this.prefetchFlujo = appProperties.getBatch().getStreamPrefetch();
     logger.info("🎯 JceConsultaController inicializado correctamente");
   }
 
@@ -109,15 +150,17 @@ public class JceConsultaController {
             }
           }
           """))),
+      @ApiResponse(responseCode = "304", description = "Sin cambios respecto al ETag enviado en If-None-Match"),
       @ApiResponse(responseCode = "400", description = "Parámetros de entrada inválidos"),
       @ApiResponse(responseCode = "429", description = "Límite de peticiones excedido"),
       @ApiResponse(responseCode = "500", description = "Error interno del servidor")
   })
   @Timed(value = "jce.consulta.request", description = "Tiempo de procesamiento de consultas POST")
-  public Mono<ResponseEntity<ConsultaResponse>> consultarCiudadano(
+  public Mono<ResponseEntity<?>> consultarCiudadano(
       @Valid @RequestBody ConsultaRequest request,
       HttpServletRequest httpRequest) {
 
+    long inicio = System.currentTimeMillis();
     String clientIp = obtenerIpCliente(httpRequest);
     String requestId = generarRequestId();
 
@@ -125,18 +168,18 @@ public class JceConsultaController {
         requestId, clientIp, request.getCedulaFormateada());
 
     // Verificar rate limit
-    if (!verificarRateLimit(clientIp)) {
-      return Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
-          .header("X-Rate-Limit-Retry-After", "60")
-          .body(ConsultaResponse.error(
-              "Límite de peticiones excedido. Intente nuevamente en 1 minuto.",
-              "RATE_LIMIT_EXCEEDED",
-              request.getCedulaFormateada(),
-              0L)));
+    ConsumptionProbe probe = consumirTokens(claveCliente(httpRequest, clientIp), 1);
+    if (!probe.isConsumed()) {
+      return Mono.just(respuestaLimiteExcedido(probe, request.getCedulaFormateada(), requestId));
+    }
+
+    PlantillaRespuesta plantilla = jceConsultaService.buscarRespuestaSerializada(request);
+    if (plantilla != null) {
+      return Mono.just(crearRespuestaSerializada(plantilla, inicio, requestId, probe, httpRequest));
     }
 
     return jceConsultaService.consultarCiudadano(request)
-        .map(response -> crearRespuestaHttp(response, requestId))
+        .<ResponseEntity<?>>map(response -> crearRespuestaHttp(response, requestId, probe))
         .doOnTerminate(() -> logger.debug("🏁 [{}] Consulta POST finalizada", requestId));
   }
 
@@ -150,11 +193,12 @@ public class JceConsultaController {
       """)
   @ApiResponses({
       @ApiResponse(responseCode = "200", description = "Consulta exitosa"),
+      @ApiResponse(responseCode = "304", description = "Sin cambios respecto al ETag enviado en If-None-Match"),
       @ApiResponse(responseCode = "400", description = "Formato de cédula inválido"),
       @ApiResponse(responseCode = "429", description = "Límite de peticiones excedido")
   })
   @Timed(value = "jce.consulta.get", description = "Tiempo de procesamiento de consultas GET")
-  public Mono<ResponseEntity<ConsultaResponse>> consultarCiudadanoPorCedula(
+  public Mono<ResponseEntity<?>> consultarCiudadanoPorCedula(
       @PathVariable @Parameter(description = "Número de cédula dominicana (con o sin guiones)", example = "001-1234567-1") @NotBlank(message = "La cédula no puede estar vacía") @Pattern(regexp = "^\\d{3}-?\\d{7}-?\\d{1}$", message = "Formato de cédula inválido. Use XXX-XXXXXXX-X o XXXXXXXXXXX") String cedula,
 
       @RequestParam(defaultValue = "completo") @Parameter(description = "Formato de respuesta", example = "completo", schema = @Schema(allowableValues = {
@@ -164,6 +208,7 @@ public class JceConsultaController {
 
       HttpServletRequest httpRequest) {
 
+    long inicio = System.currentTimeMillis();
     String clientIp = obtenerIpCliente(httpRequest);
     String requestId = generarRequestId();
 
@@ -171,23 +216,134 @@ public class JceConsultaController {
         requestId, cedula, clientIp, formato, incluirFoto);
 
     // Verificar rate limit
-    if (!verificarRateLimit(clientIp)) {
-      return Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
-          .header("X-Rate-Limit-Retry-After", "60")
-          .body(ConsultaResponse.error(
-              "Límite de peticiones excedido. Intente nuevamente en 1 minuto.",
-              "RATE_LIMIT_EXCEEDED",
-              cedula,
-              0L)));
+    ConsumptionProbe probe = consumirTokens(claveCliente(httpRequest, clientIp), 1);
+    if (!probe.isConsumed()) {
+      return Mono.just(respuestaLimiteExcedido(probe, cedula, requestId));
     }
 
     ConsultaRequest request = new ConsultaRequest(cedula, incluirFoto, formato);
 
+    PlantillaRespuesta plantilla = jceConsultaService.buscarRespuestaSerializada(request);
+    if (plantilla != null) {
+      return Mono.just(crearRespuestaSerializada(plantilla, inicio, requestId, probe, httpRequest));
+    }
+
     return jceConsultaService.consultarCiudadano(request)
-        .map(response -> crearRespuestaHttp(response, requestId))
+        .<ResponseEntity<?>>map(response -> crearRespuestaHttp(response, requestId, probe))
         .doOnTerminate(() -> logger.debug("🏁 [{}] Consulta GET finalizada", requestId));
   }
 
+  /**
+   * Consulta en lote de varios ciudadanos.
+   */
+  @PostMapping(value = "/consultar/lote", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+  @Operation(summary = "Consultar varios ciudadanos en lote", description = """
+      Consulta varias cédulas en una sola petición. Las consultas repetidas
+      se resuelven una vez, los aciertos de caché se responden de inmediato
+      y el resto se consulta en paralelo con concurrencia limitada. Los
+      resultados se devuelven en el mismo orden de la petición. El lote
+      consume un token de rate limit por consulta.
+      """)
+  @ApiResponses({
+      @ApiResponse(responseCode = "200", description = "Lote procesado; cada resultado indica su propio estado", content = @Content(schema = @Schema(implementation = ConsultaLoteResponse.class))),
+      @ApiResponse(responseCode = "400", description = "Lote vacío, demasiado grande o con parámetros inválidos"),
+      @ApiResponse(responseCode = "429", description = "Límite de peticiones excedido")
+  })
+  @Timed(value = "jce.consulta.lote", description = "Tiempo de procesamiento de consultas en lote")
+  public Mono<ResponseEntity<?>> consultarLote(
+      @Valid @RequestBody ConsultaLoteRequest lote,
+      HttpServletRequest httpRequest) {
+
+    String clientIp = obtenerIpCliente(httpRequest);
+    String requestId = generarRequestId();
+
+    logger.info("📦 [{}] POST /consultar/lote - IP: {} - Consultas: {}",
+        requestId, clientIp, lote.getTamano());
+
+    // El tamaño se valida antes de cobrar: un lote rechazado no gasta tokens
+    jceConsultaService.validarTamanoLote(lote.getTamano());
+
+    // Un token por consulta del lote
+    ConsumptionProbe probe = consumirTokens(claveCliente(httpRequest, clientIp), lote.getTamano());
+    if (!probe.isConsumed()) {
+      return Mono.just(respuestaLimiteExcedido(probe, null, requestId));
+    }
+
+    return jceConsultaService.consultarLote(lote.consultas())
+        .<ResponseEntity<?>>map(respuesta -> ResponseEntity.ok()
+            .header("Cache-Control", "no-cache")
+            .header("X-RateLimit-Remaining", String.valueOf(probe.getRemainingTokens()))
+            .header("X-Request-ID", requestId)
+            .header("X-Response-Time", respuesta.tiempoRespuesta() + "ms")
+            .body(respuesta))
+        .doOnTerminate(() -> logger.debug("🏁 [{}] Consulta en lote finalizada", requestId));
+  }
+
+  /**
+   * Consulta en flujo NDJSON para listas muy grandes de cédulas.
+   */
+  @PostMapping(value = "/consultar/flujo", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @Operation(summary = "Consultar ciudadanos en flujo NDJSON", description = """
+      Recibe una consulta por línea (un objeto ConsultaRequest o solo la
+      cédula) y devuelve una ConsultaResponse por línea a medida que se
+      completan, sin conservar el orden de entrada. La entrada se lee bajo
+      demanda, por lo que la memoria no depende del tamaño de la lista.
+      Cada consulta consume un token de rate limit; si no hay tokens el
+      flujo espera en lugar de fallar.
+      """)
+  @ApiResponses({
+      @ApiResponse(responseCode = "200", description = "Flujo de resultados; cada línea indica su propio estado")
+  })
+  public ResponseBodyEmitter consultarFlujo(HttpServletRequest httpRequest) {
+    String clientIp = obtenerIpCliente(httpRequest);
+    String requestId = generarRequestId();
+
+    String claveCliente = claveCliente(httpRequest, clientIp);
+
+    logger.info("🌊 [{}] POST /consultar/flujo - IP: {}", requestId, clientIp);
+
+    Flux<ConsultaRequest> consultas = Flux.using(
+        () -> new BufferedReader(new InputStreamReader(httpRequest.getInputStream(), StandardCharsets.UTF_8)),
+        lector -> Flux.fromStream(lector.lines()),
+        this::cerrarSilenciosamente)
+        .subscribeOn(Schedulers.boundedElastic())
+        .filter(linea -> !linea.isBlank())
+        .map(this::leerLineaNdjson)
+        .concatMap(request -> esperarToken(claveCliente).thenReturn(request));
+
+    ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeoutFlujoMillis);
+    long[] emitidas = new long[1];
+
+    // send() escribe de forma síncrona: se ejecuta en boundedElastic y no en
+    // los event loops de Netty/Lettuce que entregan las respuestas, así un
+    // cliente lento solo frena la demanda de su propio flujo
+    Disposable suscripcion = jceConsultaService.consultarFlujo(consultas)
+        .publishOn(Schedulers.boundedElastic(), prefetchFlujo)
+        .subscribe(
+            respuesta -> {
+              try {
+                emitter.send(respuesta, MediaType.APPLICATION_JSON);
+                emitter.send("\n", MediaType.TEXT_PLAIN);
+                emitidas[0]++;
+              } catch (IOException e) {
+                throw Exceptions.propagate(e);
+              }
+            },
+            error -> {
+              logger.warn("⚠️ [{}] Flujo interrumpido tras {} respuestas: {}",
+                  requestId, emitidas[0], error.getMessage());
+              emitter.completeWithError(error);
+            },
+            () -> {
+              logger.info("🏁 [{}] Flujo completado - {} respuestas", requestId, emitidas[0]);
+              emitter.complete();
+            });
+
+    emitter.onTimeout(suscripcion::dispose);
+    emitter.onError(error -> suscripcion.dispose());
+    return emitter;
+  }
+
   /**
    * Endpoint de salud del microservicio.
    */
@@ -249,33 +405,138 @@ public class JceConsultaController {
   // ========================================
 
   /**
-   * Verifica el rate limit para el cliente.
+   * Identifica al cliente para rate limiting: por API key si la petición
+   * incluye una de las configuradas en {@code rate-limit.api-keys}, o por
+   * IP en caso contrario. Las claves desconocidas se ignoran; si no, un
+   * cliente podría estrenar un bucket lleno en cada petición enviando una
+   * clave distinta. La API key se guarda como hash para no exponerla en las
+   * claves de Redis.
    */
-  private boolean verificarRateLimit(String clientIp) {
-    ConsumptionProbe probe = rateLimitBucket.tryConsumeAndReturnRemaining(1);
+  private String claveCliente(HttpServletRequest request, String clientIp) {
+    String apiKey = request.getHeader(apiKeyHeader);
+    if (apiKey != null && !apiKey.isBlank()) {
+      String clave = claveApi(apiKey.trim());
+      if (clavesApiConocidas.contains(clave)) {
+        return clave;
+      }
+    }
+    return "ip:" + clientIp;
+  }
+
+  private static String claveApi(String apiKey) {
+    return "api:" + Hashing.sha256().hashString(apiKey, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Consume tokens del bucket del cliente.
+   */
+  private ConsumptionProbe consumirTokens(String claveCliente, long tokens) {
+    ConsumptionProbe probe = bucketResolver.consumir(claveCliente, tokens);
 
     if (probe.isConsumed()) {
-      logger.debug("✅ Rate limit OK para IP: {} - Tokens restantes: {}",
-          clientIp, probe.getRemainingTokens());
-      return true;
+      logger.debug("✅ Rate limit OK para cliente: {} - Tokens restantes: {}",
+          claveCliente, probe.getRemainingTokens());
     } else {
-      logger.warn("🚫 Rate limit excedido para IP: {} - Reintentar en: {}s",
-          clientIp, probe.getNanosToWaitForRefill() / 1_000_000_000);
-      return false;
+      logger.warn("🚫 Rate limit excedido para cliente: {} - Reintentar en: {}s",
+          claveCliente, segundosParaReintentar(probe));
+    }
+    return probe;
+  }
+
+  /**
+   * Segundos hasta que el bucket tenga tokens suficientes (mínimo 1),
+   * redondeando hacia arriba sin desbordar: si se piden más tokens que la
+   * capacidad, Bucket4j devuelve {@code Long.MAX_VALUE} nanosegundos.
+   */
+  private static long segundosParaReintentar(ConsumptionProbe probe) {
+    long nanos = probe.getNanosToWaitForRefill();
+    long segundos = TimeUnit.NANOSECONDS.toSeconds(nanos);
+    if (nanos % TimeUnit.SECONDS.toNanos(1) != 0) {
+      segundos++;
+    }
+    return Math.max(1, segundos);
+  }
+
+  /**
+   * Crea la respuesta 429 con los headers calculados a partir del probe.
+   */
+  private ResponseEntity<ConsultaResponse> respuestaLimiteExcedido(ConsumptionProbe probe, String cedula,
+      String requestId) {
+    long segundos = segundosParaReintentar(probe);
+    return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+        .header("X-RateLimit-Remaining", String.valueOf(probe.getRemainingTokens()))
+        .header("Retry-After", String.valueOf(segundos))
+        .header("X-Request-ID", requestId)
+        .body(ConsultaResponse.error(
+            "Límite de peticiones excedido. Intente nuevamente en " + segundos + " segundos.",
+            "RATE_LIMIT_EXCEEDED",
+            cedula,
+            0L));
+  }
+
+  /**
+   * Espera hasta obtener un token de rate limit sin bloquear hilos del
+   * event loop ni del scheduler parallel: el consumo puede llamar a Redis de
+   * forma síncrona, por eso se ejecuta en boundedElastic.
+   */
+  private Mono<Void> esperarToken(String claveCliente) {
+    return Mono.fromCallable(() -> bucketResolver.consumir(claveCliente, 1))
+        .subscribeOn(Schedulers.boundedElastic())
+        .flatMap(probe -> {
+          if (probe.isConsumed()) {
+            return Mono.<Void>empty();
+          }
+          logger.debug("⏳ Flujo de cliente {} esperando {}ms por rate limit",
+              claveCliente, probe.getNanosToWaitForRefill() / 1_000_000);
+          return Mono.delay(Duration.ofNanos(probe.getNanosToWaitForRefill()))
+              .then(Mono.defer(() -> esperarToken(claveCliente)));
+        });
+  }
+
+  /**
+   * Convierte una línea NDJSON en petición. Acepta un objeto ConsultaRequest
+   * o solo la cédula (con o sin comillas); las líneas ilegibles se
+   * conservan como cédula para que la validación las reporte como inválidas.
+   */
+  private ConsultaRequest leerLineaNdjson(String linea) {
+    String contenido = linea.trim();
+    if (contenido.startsWith("{")) {
+      try {
+        return objectMapper.readValue(contenido, ConsultaRequest.class);
+      } catch (JsonProcessingException e) {
+        return new ConsultaRequest(contenido, false);
+      }
+    }
+    if (contenido.length() >= 2 && contenido.startsWith("\"") && contenido.endsWith("\"")) {
+      contenido = contenido.substring(1, contenido.length() - 1);
+    }
+    return new ConsultaRequest(contenido, false);
+  }
+
+  private void cerrarSilenciosamente(BufferedReader lector) {
+    try {
+      lector.close();
+    } catch (IOException e) {
+      logger.debug("Error cerrando la entrada del flujo: {}", e.getMessage());
     }
   }
 
   /**
    * Crea la respuesta HTTP apropiada según el resultado.
    */
-  private ResponseEntity<ConsultaResponse> crearRespuestaHttp(ConsultaResponse response, String requestId) {
+  private ResponseEntity<ConsultaResponse> crearRespuestaHttp(ConsultaResponse response, String requestId,
+      ConsumptionProbe probe) {
     HttpStatus status;
     String cacheControl;
 
+    boolean obsoleta = Boolean.TRUE.equals(response.datosObsoletos());
+
     if (response.exitosa()) {
       status = HttpStatus.OK;
-      cacheControl = "public, max-age=300"; // 5 minutos
-      logger.info("✅ [{}] Respuesta exitosa - Tiempo: {}ms", requestId, response.tiempoRespuesta());
+      // Los datos obsoletos no deben quedar en cachés intermedios
+      cacheControl = obsoleta ? "no-cache" : "public, max-age=300"; // 5 minutos
+      logger.info("✅ [{}] Respuesta exitosa{} - Tiempo: {}ms",
+          requestId, obsoleta ? " (datos obsoletos)" : "", response.tiempoRespuesta());
     } else {
       // Determinar status según el código de error
       status = switch (response.codigo()) {
@@ -289,11 +550,94 @@ public class JceConsultaController {
       logger.warn("⚠️ [{}] Respuesta con error: {} - {}", requestId, response.codigo(), response.mensaje());
     }
 
-    return ResponseEntity.status(status)
+    ResponseEntity.BodyBuilder builder = ResponseEntity.status(status)
         .header("Cache-Control", cacheControl)
         .header("X-Request-ID", requestId)
         .header("X-Response-Time", response.tiempoRespuesta() + "ms")
-        .body(response);
+        .header("X-RateLimit-Remaining", String.valueOf(probe.getRemainingTokens()));
+    if (obsoleta) {
+      builder.header("X-Datos-Obsoletos", "true");
+    }
+    return builder.body(response);
+  }
+
+  /**
+   * Crea la respuesta HTTP de un acierto de caché a partir de la plantilla
+   * serializada, con los mismos headers que una respuesta exitosa. Si el
+   * cliente acepta gzip se envía la forma precomprimida de la plantilla y
+   * el servidor no vuelve a comprimirla. Si el If-None-Match del cliente
+   * coincide con el ETag de la plantilla se responde 304 sin generar el
+   * cuerpo.
+   */
+  private ResponseEntity<byte[]> crearRespuestaSerializada(PlantillaRespuesta plantilla, long inicio,
+      String requestId, ConsumptionProbe probe, HttpServletRequest httpRequest) {
+    boolean gzip = aceptaGzip(httpRequest.getHeader("Accept-Encoding"));
+
+    if (plantilla.coincide(httpRequest.getHeader("If-None-Match"))) {
+      long tiempoRespuesta = System.currentTimeMillis() - inicio;
+      logger.info("↩️ [{}] Sin cambios desde caché (304) - Tiempo: {}ms", requestId, tiempoRespuesta);
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .eTag(plantilla.getEtag(gzip))
+          .varyBy("Accept-Encoding")
+          .header("Cache-Control", "public, max-age=300")
+          .header("X-Request-ID", requestId)
+          .header("X-Response-Time", tiempoRespuesta + "ms")
+          .header("X-RateLimit-Remaining", String.valueOf(probe.getRemainingTokens()))
+          .build();
+    }
+
+    long tiempoRespuesta = System.currentTimeMillis() - inicio;
+    byte[] cuerpo = gzip
+        ? plantilla.renderizarGzip(LocalDateTime.now(), tiempoRespuesta)
+        : plantilla.renderizar(LocalDateTime.now(), tiempoRespuesta);
+    logger.info("✅ [{}] Respuesta exitosa desde caché{} - Tiempo: {}ms", requestId, gzip ? " (gzip)" : "",
+        tiempoRespuesta);
+
+    ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .eTag(plantilla.getEtag(gzip))
+        .varyBy("Accept-Encoding")
+        .header("Cache-Control", "public, max-age=300")
+        .header("X-Request-ID", requestId)
+        .header("X-Response-Time", tiempoRespuesta + "ms")
+        .header("X-RateLimit-Remaining", String.valueOf(probe.getRemainingTokens()));
+    if (gzip) {
+      builder.header("Content-Encoding", "gzip");
+    }
+    return builder.body(cuerpo);
+  }
+
+  /**
+   * Indica si el header Accept-Encoding admite gzip (explícito o por
+   * comodín) con calidad distinta de cero.
+   */
+  private static boolean aceptaGzip(String acceptEncoding) {
+    if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+      return false;
+    }
+    boolean comodin = false;
+    for (String opcion : acceptEncoding.split(",")) {
+      String[] partes = opcion.split(";");
+      String codificacion = partes[0].trim();
+      boolean admitida = true;
+      for (int i = 1; i < partes.length; i++) {
+        String parametro = partes[i].trim();
+        if (parametro.startsWith("q=") || parametro.startsWith("Q=")) {
+          try {
+            admitida = Double.parseDouble(parametro.substring(2)) > 0;
+          } catch (NumberFormatException e) {
+            admitida = false;
+          }
+        }
+      }
+      if (codificacion.equalsIgnoreCase("gzip") || codificacion.equalsIgnoreCase("x-gzip")) {
+        return admitida;
+      }
+      if (codificacion.equals("*")) {
+        comodin = admitida;
+      }
+    }
+    return comodin;
   }
 
   /**
@@ -0,0 +1,268 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.model;
+
+import com.arojas.jce_consulta.exceptions.ApiException;
+
+/**
+ * Cédula de identidad dominicana como valor inmutable.
+ *
+ * La cédula se analiza una sola vez a un {@code long} de 11 dígitos
+ * (XXX-YYYYYYY-Z) sin expresiones regulares ni copias intermedias, y se
+ * valida que el municipio no sea 000 y que el dígito verificador cumpla el
+ * algoritmo de Luhn con pesos 1,2 sobre los 10 primeros dígitos. Las formas
+ * en texto (limpia y con guiones) se generan solo cuando se piden.
+ *
+ * Los métodos estáticos {@link #valorDe(CharSequence)} y
+ * {@link #esValida(long)} no reservan memoria, para filtrar entradas
+ * inválidas antes de crear objetos.
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+public final class Cedula {
+
+  /**
+   * Valor devuelto por {@link #valorDe(CharSequence)} si el texto no tiene
+   * la forma de una cédula.
+   */
+  public static final long SIN_VALOR = -1L;
+
+  private static final int DIGITOS = 11;
+  private static final long DIVISOR_MUNICIPIO = 100_000_000L;
+
+  private final long valor;
+
+  // Formas en texto, calculadas bajo demanda
+  private String limpia;
+  private String formateada;
+
+  private Cedula(long valor) {
+    this.valor = valor;
+  }
+
+  // ========================================
+  // CONSTRUCCIÓN
+  // ========================================
+
+  /**
+   * Analiza y valida una cédula.
+   *
+   * @param texto cédula con o sin guiones
+   * @return la cédula, o null si el formato o el dígito verificador no son
+   *         válidos
+   */
+  public static Cedula de(CharSequence texto) {
+    long valor = valorDe(texto);
+    return esValida(valor) ? new Cedula(valor) : null;
+  }
+
+  /**
+   * Analiza y valida una cédula, lanzando una excepción de dominio si no es
+   * válida.
+   *
+   * @param texto cédula con o sin guiones
+   * @return la cédula analizada
+   * @throws ApiException con código CEDULA_INVALIDA
+   */
+  public static Cedula parsear(CharSequence texto) {
+    Cedula cedula = de(texto);
+    if (cedula == null) {
+      throw ApiException.cedulaInvalida(texto == null ? null : soloDigitos(texto));
+    }
+    return cedula;
+  }
+
+  /**
+   * Convierte el texto a su valor numérico sin validar el dígito
+   * verificador. Se ignoran guiones y espacios; cualquier otro carácter o
+   * una cantidad de dígitos distinta de 11 invalida el texto.
+   *
+   * @param texto cédula con o sin guiones
+   * @return valor de 11 dígitos o {@link #SIN_VALOR}
+   */
+  public static long valorDe(CharSequence texto) {
+    if (texto == null) {
+      return SIN_VALOR;
+    }
+
+    long valor = 0;
+    int digitos = 0;
+    for (int i = 0, n = texto.length(); i < n; i++) {
+      char c = texto.charAt(i);
+      if (c >= '0' && c <= '9') {
+        if (++digitos > DIGITOS) {
+          return SIN_VALOR;
+        }
+        valor = valor * 10 + (c - '0');
+      } else if (c != '-' && c != ' ') {
+        return SIN_VALOR;
+      }
+    }
+    return digitos == DIGITOS ? valor : SIN_VALOR;
+  }
+
+  /**
+   * Indica si el valor es una cédula válida: municipio distinto de 000 y
+   * dígito verificador correcto.
+   *
+   * @param valor valor de 11 dígitos
+   * @return true si la cédula es válida
+   */
+  public static boolean esValida(long valor) {
+    if (valor < 0 || valor / DIVISOR_MUNICIPIO == 0) {
+      return false;
+    }
+    return calcularDigitoVerificador(valor / 10) == (int) (valor % 10);
+  }
+
+  /**
+   * Calcula el dígito verificador de los 10 primeros dígitos (Luhn con
+   * pesos 1,2 empezando por el dígito más significativo).
+   *
+   * @param diezDigitos municipio y secuencia como un solo número
+   * @return dígito verificador (0-9)
+   */
+  static int calcularDigitoVerificador(long diezDigitos) {
+    int suma = 0;
+    long resto = diezDigitos;
+    // Se recorre desde el dígito menos significativo, que lleva peso 2
+    for (int i = 0; i < DIGITOS - 1; i++) {
+      int digito = (int) (resto % 10);
+      resto /= 10;
+      int producto = (i % 2 == 0) ? digito * 2 : digito;
+      suma += producto > 9 ? producto - 9 : producto;
+    }
+    return (10 - suma % 10) % 10;
+  }
+
+  // ========================================
+  // ACCESO A LAS PARTES
+  // ========================================
+
+  /**
+   * @return valor numérico de 11 dígitos
+   */
+  public long getValor() {
+    return valor;
+  }
+
+  /**
+   * @return código del municipio (primeros 3 dígitos)
+   */
+  public int getMunicipio() {
+    return (int) (valor / DIVISOR_MUNICIPIO);
+  }
+
+  /**
+   * @return número secuencial (dígitos 4-10)
+   */
+  public int getSecuencia() {
+    return (int) (valor / 10 % 10_000_000L);
+  }
+
+  /**
+   * @return dígito verificador (último dígito)
+   */
+  public int getDigitoVerificador() {
+    return (int) (valor % 10);
+  }
+
+  /**
+   * @return cédula de 11 dígitos sin guiones
+   */
+  public String limpia() {
+    String resultado = limpia;
+    if (resultado == null) {
+      resultado = aTextoLimpio(valor);
+      limpia = resultado;
+    }
+    return resultado;
+  }
+
+  /**
+   * @return cédula en formato XXX-XXXXXXX-X
+   */
+  public String formateada() {
+    String resultado = formateada;
+    if (resultado == null) {
+      resultado = aTextoFormateado(valor);
+      formateada = resultado;
+    }
+    return resultado;
+  }
+
+  // ========================================
+  // UTILIDADES
+  // ========================================
+
+  /**
+   * Extrae solo los dígitos de un texto. Se usa para mensajes de error y
+   * compatibilidad con entradas que no son una cédula válida.
+   *
+   * @param texto texto de entrada
+   * @return los dígitos del texto en orden
+   */
+  public static String soloDigitos(CharSequence texto) {
+    StringBuilder sb = new StringBuilder(texto.length());
+    for (int i = 0, n = texto.length(); i < n; i++) {
+      char c = texto.charAt(i);
+      if (c >= '0' && c <= '9') {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Representa un valor de 11 dígitos sin guiones, con ceros a la izquierda.
+   *
+   * @param valor valor numérico de la cédula
+   * @return texto de 11 dígitos
+   */
+  public static String aTextoLimpio(long valor) {
+    return new String(renderizar(valor, false));
+  }
+
+  /**
+   * Representa un valor de 11 dígitos en formato XXX-XXXXXXX-X.
+   *
+   * @param valor valor numérico de la cédula
+   * @return texto con guiones
+   */
+  public static String aTextoFormateado(long valor) {
+    return new String(renderizar(valor, true));
+  }
+
+  private static char[] renderizar(long valor, boolean conGuiones) {
+    char[] chars = new char[conGuiones ? DIGITOS + 2 : DIGITOS];
+    long resto = valor;
+    for (int i = DIGITOS - 1; i >= 0; i--) {
+      int posicion = conGuiones ? i + (i >= 3 ? 1 : 0) + (i >= 10 ? 1 : 0) : i;
+      chars[posicion] = (char) ('0' + resto % 10);
+      resto /= 10;
+    }
+    if (conGuiones) {
+      chars[3] = '-';
+      chars[11] = '-';
+    }
+    return chars;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return this == o || (o instanceof Cedula otra && otra.valor == valor);
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(valor);
+  }
+
+  @Override
+  public String toString() {
+    return formateada();
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Diccionario compartido de valores para un campo de baja cardinalidad de
+ * {@link Individuo}.
+ *
+ * Cada valor distinto recibe un código entero pequeño y una única instancia
+ * canónica de {@link String}, de modo que millones de registros en caché
+ * comparten las mismas cadenas para sexo, estado civil, nacionalidad,
+ * categoría o estatus en lugar de guardar una copia por registro.
+ *
+ * Los códigos tienen dos tramos:
+ * - Fijos: las semillas declaradas aquí, en orden. Son estables entre
+ *   procesos y versiones, por lo que el codec binario los escribe en Redis;
+ *   solo se pueden añadir semillas al final.
+ * - Dinámicos: valores nuevos vistos en este proceso, hasta un máximo por
+ *   campo. Solo tienen sentido en memoria local; por encima del máximo los
+ *   valores se devuelven sin internar.
+ *
+ * Las lecturas no bloquean: el mapa de códigos es concurrente y la tabla de
+ * valores se reemplaza completa (copia en escritura) al añadir un valor.
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+public final class DiccionarioValores {
+
+  // ========================================
+  // DICCIONARIOS POR CAMPO
+  // ========================================
+
+  public static final DiccionarioValores LUGAR_NACIMIENTO = new DiccionarioValores("lugar_nac",
+      List.of("SANTO DOMINGO", "DISTRITO NACIONAL", "SANTIAGO", "LA VEGA", "SAN CRISTOBAL",
+          "PUERTO PLATA", "SAN PEDRO DE MACORIS", "LA ROMANA", "SAN FRANCISCO DE MACORIS", "SAN JUAN"),
+      List.of(), 4096);
+
+  public static final DiccionarioValores SEXO = new DiccionarioValores("sexo",
+      List.of("M", "F"), List.of(), 16);
+
+  public static final DiccionarioValores ESTADO_CIVIL = new DiccionarioValores("est_civil",
+      List.of("S", "C", "D", "V", "U", "SE"),
+      List.of("SOLTERO", "CASADO", "DIVORCIADO", "VIUDO", "UNION LIBRE", "SEPARADO"), 64);
+
+  public static final DiccionarioValores CODIGO_NACIONALIDAD = new DiccionarioValores("cod_nacion",
+      List.of("1"), List.of(), 512);
+
+  public static final DiccionarioValores DESCRIPCION_NACIONALIDAD = new DiccionarioValores("desc_nacionalidad",
+      List.of("DOMINICANA", "DOMINICANO"), List.of(), 512);
+
+  public static final DiccionarioValores MUNICIPIO_CEDULA = new DiccionarioValores("mun_ced",
+      List.of(), List.of(), 1024);
+
+  public static final DiccionarioValores CATEGORIA = new DiccionarioValores("categoria",
+      List.of("1", "2", "3"), List.of(), 64);
+
+  public static final DiccionarioValores DESCRIPCION_CATEGORIA = new DiccionarioValores("desc_categoria",
+      List.of("CEDULA PRIMERA VEZ", "RENOVACION", "DUPLICADO"), List.of(), 64);
+
+  // Las formas largas no tienen descripción propia: se describen a sí mismas
+  public static final DiccionarioValores ESTATUS = new DiccionarioValores("estatus",
+      List.of("N", "P", "T", "A", "R", "TERMINADO", "EN PROCESO", "APROBADO"),
+      List.of("NO ATENDIDO", "EN PROCESO", "TERMINADO", "APROBADO", "RECHAZADO"), 64);
+
+  public static final DiccionarioValores SUCCESS = new DiccionarioValores("success",
+      List.of("true", "false", "1", "0"), List.of(), 16);
+
+  public static final DiccionarioValores MESSAGE = new DiccionarioValores("message",
+      List.of("OK"), List.of(), 256);
+
+  // ========================================
+  // ESTADO
+  // ========================================
+
+  private final String campo;
+  private final int semillas;
+  private final String[] descripciones;
+  private final int maximo;
+  private final Map<String, Integer> codigos = new ConcurrentHashMap<>();
+  private volatile String[] valores;
+
+  private DiccionarioValores(String campo, List<String> semillas, List<String> descripciones,
+      int maximoDinamicos) {
+    this.campo = campo;
+    this.semillas = semillas.size();
+    this.descripciones = descripciones.toArray(String[]::new);
+    this.maximo = semillas.size() + maximoDinamicos;
+    this.valores = semillas.toArray(String[]::new);
+    for (int i = 0; i < this.valores.length; i++) {
+      codigos.put(this.valores[i], i);
+    }
+  }
+
+  // ========================================
+  // INTERNADO
+  // ========================================
+
+  /**
+   * Devuelve la instancia canónica de un valor, registrándolo si es nuevo y
+   * queda espacio en el diccionario.
+   *
+   * @param valor valor leído del portal o del caché
+   * @return instancia compartida, o el mismo valor si no se pudo internar
+   */
+  public String canonico(String valor) {
+    if (valor == null) {
+      return null;
+    }
+    int codigo = codigo(valor);
+    return codigo >= 0 ? valores[codigo] : valor;
+  }
+
+  /**
+   * Código de un valor, registrándolo si es nuevo y queda espacio.
+   *
+   * @param valor valor a codificar
+   * @return código local, o -1 si el diccionario está lleno
+   */
+  public int codigo(String valor) {
+    Integer codigo = codigos.get(valor);
+    if (codigo != null) {
+      return codigo;
+    }
+    return registrar(valor);
+  }
+
+  /**
+   * Valor de un código devuelto por {@link #codigo(String)}.
+   *
+   * @param codigo código local
+   * @return instancia canónica
+   * @throws IndexOutOfBoundsException si el código no existe
+   */
+  public String valor(int codigo) {
+    return valores[codigo];
+  }
+
+  // ========================================
+  // CÓDIGOS FIJOS (FORMATO PERSISTENTE)
+  // ========================================
+
+  /**
+   * Código estable de un valor, sin registrar valores nuevos.
+   *
+   * @param valor valor a codificar
+   * @return código fijo, o -1 si el valor no es una semilla
+   */
+  public int codigoFijo(String valor) {
+    Integer codigo = codigos.get(valor);
+    return codigo != null && codigo < semillas ? codigo : -1;
+  }
+
+  /**
+   * Valor de un código fijo.
+   *
+   * @param codigo código devuelto por {@link #codigoFijo(String)}
+   * @return instancia canónica
+   * @throws IndexOutOfBoundsException si el código no es fijo
+   */
+  public String valorFijo(int codigo) {
+    if (codigo < 0 || codigo >= semillas) {
+      throw new IndexOutOfBoundsException("Código fijo desconocido para " + campo + ": " + codigo);
+    }
+    return valores[codigo];
+  }
+
+  // ========================================
+  // DESCRIPCIONES
+  // ========================================
+
+  /**
+   * Descripción legible de un código del portal, sin distinguir mayúsculas.
+   *
+   * @param valor código tal como lo devolvió el portal (no vacío)
+   * @return descripción, o el propio valor si no tiene una
+   */
+  public String descripcion(String valor) {
+    Integer codigo = codigos.get(valor);
+    if (codigo == null || codigo >= descripciones.length) {
+      codigo = codigos.get(valor.toUpperCase());
+    }
+    return codigo != null && codigo < descripciones.length ? descripciones[codigo] : valor;
+  }
+
+  // ========================================
+  // INDIVIDUOS
+  // ========================================
+
+  /**
+   * Reemplaza los campos de baja cardinalidad de un individuo por sus
+   * instancias canónicas.
+   *
+   * @param individuo registro a internar; se modifica en el sitio
+   * @return el mismo individuo
+   */
+  public static Individuo internar(Individuo individuo) {
+    individuo.setLugarNacimiento(LUGAR_NACIMIENTO.canonico(individuo.getLugarNacimiento()));
+    individuo.setSexo(SEXO.canonico(individuo.getSexo()));
+    individuo.setEstadoCivil(ESTADO_CIVIL.canonico(individuo.getEstadoCivil()));
+    individuo.setCodigoNacionalidad(CODIGO_NACIONALIDAD.canonico(individuo.getCodigoNacionalidad()));
+    individuo.setDescripcionNacionalidad(
+        DESCRIPCION_NACIONALIDAD.canonico(individuo.getDescripcionNacionalidad()));
+    individuo.setMunicipioCedula(MUNICIPIO_CEDULA.canonico(individuo.getMunicipioCedula()));
+    individuo.setCategoria(CATEGORIA.canonico(individuo.getCategoria()));
+    individuo.setDescripcionCategoria(DESCRIPCION_CATEGORIA.canonico(individuo.getDescripcionCategoria()));
+    individuo.setEstatus(ESTATUS.canonico(individuo.getEstatus()));
+    individuo.setSuccess(SUCCESS.canonico(individuo.getSuccess()));
+    individuo.setMessage(MESSAGE.canonico(individuo.getMessage()));
+    return individuo;
+  }
+
+  // ========================================
+  // MÉTODOS PRIVADOS
+  // ========================================
+
+  private synchronized int registrar(String valor) {
+    Integer existente = codigos.get(valor);
+    if (existente != null) {
+      return existente;
+    }
+
+    String[] actuales = valores;
+    if (actuales.length >= maximo) {
+      return -1;
+    }
+
+    // Se publica la tabla antes que el código para que ningún lector vea un código sin valor
+    String[] nuevos = Arrays.copyOf(actuales, actuales.length + 1);
+    nuevos[actuales.length] = valor;
+    valores = nuevos;
+    codigos.put(valor, actuales.length);
+    return actuales.length;
+  }
+}
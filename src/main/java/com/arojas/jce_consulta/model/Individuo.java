@@ -234,15 +234,7 @@ public class Individuo {
       return "Dato no disponible";
     }
 
-    return switch (estadoCivil.toUpperCase()) {
-      case "C" -> "CASADO";
-      case "D" -> "DIVORCIADO";
-      case "S" -> "SOLTERO";
-      case "V" -> "VIUDO";
-      case "U" -> "UNION LIBRE";
-      case "SE" -> "SEPARADO";
-      default -> estadoCivil;
-    };
+    return DiccionarioValores.ESTADO_CIVIL.descripcion(estadoCivil);
   }
 
   /**
@@ -255,14 +247,7 @@ public class Individuo {
       return "Dato no disponible";
     }
 
-    return switch (estatus.toUpperCase()) {
-      case "N" -> "NO ATENDIDO";
-      case "P" -> "EN PROCESO";
-      case "T" -> "TERMINADO";
-      case "A" -> "APROBADO";
-      case "R" -> "RECHAZADO";
-      default -> estatus;
-    };
+    return DiccionarioValores.ESTATUS.descripcion(estatus);
   }
 
   /**
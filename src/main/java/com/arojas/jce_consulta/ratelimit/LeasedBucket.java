@@ -0,0 +1,257 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bucket con arrendamiento (leasing) local de tokens sobre un bucket remoto.
+ *
+ * Cada nodo reserva en Redis un lote pequeño de tokens por clave y atiende
+ * las peticiones desde ese lote con un contador atómico, sin ir a Redis.
+ * Cuando el lote baja de una cuarta parte se recarga de forma asíncrona; si
+ * se agota, la petición consulta el bucket remoto directamente.
+ *
+ * El tamaño del lote se adapta a la tasa de peticiones de la clave (media
+ * móvil exponencial) para cubrir el horizonte configurado, acotado entre un
+ * mínimo y un máximo. Como los tokens arrendados ya están descontados en
+ * Redis, el límite global nunca se supera; como mucho un nodo retiene un
+ * lote sin usar, que se devuelve con {@link #liberar()}.
+ *
+ * Métricas publicadas:
+ * - {@code jce.ratelimit.consumos{origen=local|remoto}}
+ * - {@code jce.ratelimit.recargas}
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+public class LeasedBucket {
+
+  private static final Logger logger = LoggerFactory.getLogger(LeasedBucket.class);
+
+  private static final double ALFA_EWMA = 0.3;
+
+  private final String clave;
+  private final Bucket remoto;
+  private final Executor executor;
+  private final long leaseMinimo;
+  private final long leaseMaximo;
+  private final long horizonteNanos;
+  private final LongSupplier reloj;
+
+  // Estado del arrendamiento
+  private final AtomicLong locales = new AtomicLong();
+  private final AtomicLong consumidosDesdeRecarga = new AtomicLong();
+  private final AtomicBoolean recargando = new AtomicBoolean();
+  private volatile long ultimaRecarga;
+  private volatile double tasaEwma;
+  private volatile long tamanoLease;
+  private volatile long restanteRemoto;
+
+  // Métricas
+  private final Counter consumosLocalesCounter;
+  private final Counter consumosRemotosCounter;
+  private final Counter recargasCounter;
+
+  /**
+   * Crea el bucket arrendado.
+   *
+   * @param clave         clave del cliente (solo para logs)
+   * @param remoto        bucket compartido, normalmente un proxy de Redis
+   * @param executor      ejecutor de las recargas y devoluciones
+   * @param leaseMinimo   tamaño mínimo del lote; 0 desactiva el arrendamiento
+   * @param leaseMaximo   tamaño máximo del lote
+   * @param horizonte     tiempo de tráfico que debe cubrir un lote
+   * @param meterRegistry registro de métricas
+   */
+  public LeasedBucket(String clave, Bucket remoto, Executor executor, long leaseMinimo, long leaseMaximo,
+      Duration horizonte, MeterRegistry meterRegistry) {
+    this(clave, remoto, executor, leaseMinimo, leaseMaximo, horizonte, meterRegistry, System::nanoTime);
+  }
+
+  LeasedBucket(String clave, Bucket remoto, Executor executor, long leaseMinimo, long leaseMaximo,
+      Duration horizonte, MeterRegistry meterRegistry, LongSupplier reloj) {
+    if (leaseMinimo < 0 || leaseMaximo < leaseMinimo) {
+      throw new IllegalArgumentException("Tamaños de lease inválidos");
+    }
+
+    this.clave = clave;
+    this.remoto = remoto;
+    this.executor = executor;
+    this.leaseMinimo = leaseMinimo;
+    this.leaseMaximo = leaseMaximo;
+    this.horizonteNanos = horizonte.toNanos();
+    this.reloj = reloj;
+    this.tamanoLease = leaseMinimo;
+    this.ultimaRecarga = reloj.getAsLong();
+
+    this.consumosLocalesCounter = Counter.builder("jce.ratelimit.consumos")
+        .description("Consumos de rate limit según dónde se resolvieron")
+        .tag("origen", "local")
+        .register(meterRegistry);
+
+    this.consumosRemotosCounter = Counter.builder("jce.ratelimit.consumos")
+        .description("Consumos de rate limit según dónde se resolvieron")
+        .tag("origen", "remoto")
+        .register(meterRegistry);
+
+    this.recargasCounter = Counter.builder("jce.ratelimit.recargas")
+        .description("Recargas de lotes de tokens arrendados")
+        .register(meterRegistry);
+  }
+
+  // ========================================
+  // MÉTODOS PÚBLICOS
+  // ========================================
+
+  /**
+   * Intenta consumir tokens, primero del lote local y si no alcanza del
+   * bucket remoto.
+   *
+   * @param tokens número de tokens a consumir
+   * @return resultado del consumo; los tokens restantes son una estimación
+   *         (lote local más el último remanente remoto conocido)
+   */
+  public ConsumptionProbe tryConsumeAndReturnRemaining(long tokens) {
+    // Solo los consumos aceptados cuentan para la tasa: un cliente rechazado
+    // que insiste no debe agrandar el lote que arrienda
+    long actual;
+    while ((actual = locales.get()) >= tokens) {
+      if (locales.compareAndSet(actual, actual - tokens)) {
+        long quedan = actual - tokens;
+        consumidosDesdeRecarga.addAndGet(tokens);
+        consumosLocalesCounter.increment();
+        if (quedan <= tamanoLease / 4) {
+          recargarAsync();
+        }
+        return ConsumptionProbe.consumed(quedan + restanteRemoto, 0);
+      }
+    }
+
+    // Lote insuficiente: se consulta el bucket compartido
+    consumosRemotosCounter.increment();
+    ConsumptionProbe probe = remoto.tryConsumeAndReturnRemaining(tokens);
+    restanteRemoto = probe.getRemainingTokens();
+    if (probe.isConsumed()) {
+      consumidosDesdeRecarga.addAndGet(tokens);
+      recargarAsync();
+    }
+    return probe;
+  }
+
+  /**
+   * Devuelve al bucket remoto los tokens arrendados que no se usaron.
+   */
+  public void liberar() {
+    long sobrantes = locales.getAndSet(0);
+    if (sobrantes <= 0) {
+      return;
+    }
+    ejecutar(() -> {
+      try {
+        remoto.addTokens(sobrantes);
+        logger.debug("↩️ Devueltos {} tokens arrendados de la clave {}", sobrantes, clave);
+      } catch (Exception e) {
+        logger.warn("⚠️ No se pudieron devolver {} tokens de la clave {}: {}", sobrantes, clave, e.getMessage());
+      }
+    });
+  }
+
+  /**
+   * @return tokens disponibles en el lote local
+   */
+  public long getLocales() {
+    return locales.get();
+  }
+
+  /**
+   * @return tamaño actual del lote
+   */
+  public long getTamanoLease() {
+    return tamanoLease;
+  }
+
+  // ========================================
+  // MÉTODOS PRIVADOS
+  // ========================================
+
+  private void recargarAsync() {
+    if (tamanoLease <= 0 && leaseMaximo <= 0) {
+      return;
+    }
+    if (recargando.compareAndSet(false, true)) {
+      if (!ejecutar(this::recargar)) {
+        recargando.set(false);
+      }
+    }
+  }
+
+  private void recargar() {
+    try {
+      actualizarTamanoLease();
+      long lease = tamanoLease;
+      if (lease <= 0) {
+        return;
+      }
+
+      long obtenidos;
+      ConsumptionProbe probe = remoto.tryConsumeAndReturnRemaining(lease);
+      if (probe.isConsumed()) {
+        obtenidos = lease;
+        restanteRemoto = probe.getRemainingTokens();
+      } else {
+        obtenidos = remoto.tryConsumeAsMuchAsPossible(lease);
+        restanteRemoto = 0;
+      }
+
+      if (obtenidos > 0) {
+        locales.addAndGet(obtenidos);
+        recargasCounter.increment();
+      }
+    } catch (Exception e) {
+      logger.warn("⚠️ Error recargando tokens arrendados de la clave {}: {}", clave, e.getMessage());
+    } finally {
+      recargando.set(false);
+    }
+  }
+
+  private void actualizarTamanoLease() {
+    long ahora = reloj.getAsLong();
+    long transcurrido = ahora - ultimaRecarga;
+    if (transcurrido <= 0) {
+      return;
+    }
+
+    double tasa = consumidosDesdeRecarga.getAndSet(0) * 1_000_000_000.0 / transcurrido;
+    ultimaRecarga = ahora;
+    tasaEwma = tasaEwma == 0 ? tasa : ALFA_EWMA * tasa + (1 - ALFA_EWMA) * tasaEwma;
+
+    long deseado = Math.round(tasaEwma * horizonteNanos / 1_000_000_000.0);
+    tamanoLease = Math.max(leaseMinimo, Math.min(leaseMaximo, deseado));
+  }
+
+  private boolean ejecutar(Runnable tarea) {
+    try {
+      executor.execute(tarea);
+      return true;
+    } catch (RejectedExecutionException e) {
+      logger.warn("⚠️ Tarea de rate limit rechazada para la clave {}", clave);
+      return false;
+    }
+  }
+}
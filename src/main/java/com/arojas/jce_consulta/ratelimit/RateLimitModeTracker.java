@@ -0,0 +1,198 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.ratelimit;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Seguimiento del modo de rate limiting: distribuido (Redis) o local.
+ *
+ * Si Redis no está disponible al arrancar o falla en tiempo de ejecución,
+ * el rate limiting pasa a buckets en memoria y el servicio sigue atendiendo.
+ * Mientras dure el modo local se sondea Redis periódicamente y, cuando
+ * responde, se vuelve al modo distribuido y se notifica a los interesados
+ * para que descarten el estado local.
+ *
+ * El estado se expone como indicador de salud (siempre UP, con el modo en
+ * los detalles, porque el rate limiting no debe tumbar el servicio) y como
+ * métricas:
+ * - {@code jce.ratelimit.modo}: 1 distribuido, 0 local
+ * - {@code jce.ratelimit.cambios_modo{hacia=distribuido|local}}
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+public final class RateLimitModeTracker implements HealthIndicator {
+
+  private static final Logger logger = LoggerFactory.getLogger(RateLimitModeTracker.class);
+
+  private final Supplier<ProxyManager<String>> fabricaProxy;
+  private final BooleanSupplier sondaRedis;
+  private final List<Runnable> alRecuperar = new CopyOnWriteArrayList<>();
+
+  private volatile ProxyManager<String> proxyManager;
+  private volatile boolean distribuido;
+  private volatile Instant desde = Instant.now();
+  private volatile String ultimoError;
+
+  // Métricas
+  private final Counter haciaDistribuidoCounter;
+  private final Counter haciaLocalCounter;
+
+  /**
+   * Crea el seguimiento e intenta conectar con Redis una primera vez.
+   *
+   * @param fabricaProxy  crea el ProxyManager de Redis; puede lanzar excepción
+   * @param sondaRedis    comprueba si Redis responde
+   * @param meterRegistry registro de métricas
+   */
+  public RateLimitModeTracker(Supplier<ProxyManager<String>> fabricaProxy, BooleanSupplier sondaRedis,
+      MeterRegistry meterRegistry) {
+    this.fabricaProxy = fabricaProxy;
+    this.sondaRedis = sondaRedis;
+
+    this.haciaDistribuidoCounter = Counter.builder("jce.ratelimit.cambios_modo")
+        .description("Cambios del modo de rate limiting")
+        .tag("hacia", "distribuido")
+        .register(meterRegistry);
+
+    this.haciaLocalCounter = Counter.builder("jce.ratelimit.cambios_modo")
+        .description("Cambios del modo de rate limiting")
+        .tag("hacia", "local")
+        .register(meterRegistry);
+
+    Gauge.builder("jce.ratelimit.modo", this, modo -> modo.distribuido ? 1 : 0)
+        .description("Modo de rate limiting activo (1 distribuido, 0 local)")
+        .register(meterRegistry);
+
+    this.distribuido = crearProxyManager();
+    if (!distribuido) {
+      logger.warn("🔄 Fallback: Usando rate limiting en memoria local hasta que Redis esté disponible");
+    }
+  }
+
+  // ========================================
+  // MÉTODOS PÚBLICOS
+  // ========================================
+
+  /**
+   * @return true si el rate limiting usa Redis
+   */
+  public boolean isDistribuido() {
+    return distribuido;
+  }
+
+  /**
+   * @return el ProxyManager de Redis si ya se pudo crear
+   */
+  public Optional<ProxyManager<String>> getProxyManager() {
+    return Optional.ofNullable(proxyManager);
+  }
+
+  /**
+   * Registra una acción a ejecutar cada vez que se vuelve al modo
+   * distribuido.
+   */
+  public void alRecuperar(Runnable accion) {
+    alRecuperar.add(accion);
+  }
+
+  /**
+   * Registra un fallo de Redis y pasa a modo local si no lo estaba.
+   *
+   * @param error error recibido de Redis
+   */
+  public void registrarFallo(Throwable error) {
+    ultimoError = error.getClass().getSimpleName() + ": " + error.getMessage();
+    if (distribuido) {
+      synchronized (this) {
+        if (distribuido) {
+          distribuido = false;
+          desde = Instant.now();
+          haciaLocalCounter.increment();
+          logger.warn("🔄 Redis no disponible para rate limiting ({}); usando buckets locales", ultimoError);
+        }
+      }
+    }
+  }
+
+  /**
+   * Sondea Redis mientras se está en modo local y vuelve al modo
+   * distribuido cuando responde.
+   */
+  @Scheduled(fixedDelayString = "${rate-limit.fallback.probe-interval-millis:5000}")
+  public void sondear() {
+    if (distribuido) {
+      return;
+    }
+
+    boolean disponible;
+    try {
+      disponible = (proxyManager != null || crearProxyManager()) && sondaRedis.getAsBoolean();
+    } catch (Exception e) {
+      ultimoError = e.getClass().getSimpleName() + ": " + e.getMessage();
+      disponible = false;
+    }
+
+    if (!disponible) {
+      logger.debug("🔍 Redis sigue sin responder para rate limiting");
+      return;
+    }
+
+    synchronized (this) {
+      if (distribuido) {
+        return;
+      }
+      distribuido = true;
+      desde = Instant.now();
+      ultimoError = null;
+      haciaDistribuidoCounter.increment();
+    }
+    logger.info("✅ Redis disponible de nuevo; rate limiting distribuido restablecido");
+    alRecuperar.forEach(Runnable::run);
+  }
+
+  @Override
+  public Health health() {
+    Health.Builder builder = Health.up()
+        .withDetail("modo", distribuido ? "distribuido" : "local")
+        .withDetail("desde", desde.toString());
+    if (ultimoError != null) {
+      builder.withDetail("ultimoError", ultimoError);
+    }
+    return builder.build();
+  }
+
+  // ========================================
+  // MÉTODOS PRIVADOS
+  // ========================================
+
+  private boolean crearProxyManager() {
+    try {
+      proxyManager = fabricaProxy.get();
+      return true;
+    } catch (Exception e) {
+      ultimoError = e.getClass().getSimpleName() + ": " + e.getMessage();
+      logger.error("❌ Error configurando ProxyManager Redis: {}", e.getMessage());
+      return false;
+    }
+  }
+}
@@ -0,0 +1,339 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.resilience;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.arojas.jce_consulta.exceptions.ApiException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Limitador adaptativo de concurrencia para llamadas a un servicio externo.
+ *
+ * El límite de llamadas simultáneas se ajusta con el algoritmo de Vegas: se
+ * compara cada latencia observada con la mínima reciente (latencia sin
+ * carga) para estimar cuántas peticiones están haciendo cola en el
+ * servicio. Si la cola estimada es pequeña el límite crece; si es grande,
+ * decrece. Los errores de sobrecarga (timeouts, 5xx, conexión rechazada)
+ * reducen el límite de forma multiplicativa.
+ *
+ * Las llamadas que exceden el límite esperan en una cola acotada durante un
+ * tiempo máximo; si la cola está llena o la espera vence, se rechazan con
+ * {@link ApiException#jceNoDisponible()}.
+ *
+ * Métricas publicadas (etiqueta {@code nombre}):
+ * - {@code jce.limitador.limite}: límite de concurrencia actual
+ * - {@code jce.limitador.en_curso}: llamadas en curso
+ * - {@code jce.limitador.en_cola}: llamadas esperando permiso
+ * - {@code jce.limitador.espera}: tiempo de espera en cola
+ * - {@code jce.limitador.rechazos{motivo=cola_llena|timeout}}
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+  private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+  // Factor de reducción ante errores de sobrecarga
+  private static final double FACTOR_REDUCCION = 0.9;
+
+  // Muestras tras las cuales se vuelve a medir la latencia sin carga
+  private static final int MUESTRAS_POR_SONDEO = 1000;
+
+  private final String nombre;
+  private final int limiteMinimo;
+  private final int limiteMaximo;
+  private final int colaMaxima;
+  private final Duration esperaMaxima;
+  private final Predicate<Throwable> esSobrecarga;
+  private final LongSupplier reloj;
+
+  // Estado protegido por el monitor de la instancia
+  private double limite;
+  private int enCurso;
+  private long latenciaSinCargaNanos = Long.MAX_VALUE;
+  private int muestrasDesdeSondeo;
+  private final ArrayDeque<Espera> cola = new ArrayDeque<>();
+
+  // Métricas
+  private final Timer esperaTimer;
+  private final Counter rechazosColaLlenaCounter;
+  private final Counter rechazosTimeoutCounter;
+
+  /**
+   * Crea un limitador con el reloj del sistema.
+   *
+   * @param nombre         nombre del limitador (etiqueta de métricas)
+   * @param limiteInicial  límite de concurrencia inicial
+   * @param limiteMinimo   límite inferior
+   * @param limiteMaximo   límite superior
+   * @param colaMaxima     máximo de llamadas en espera
+   * @param esperaMaxima   tiempo máximo de espera en cola
+   * @param esSobrecarga   indica si un error refleja sobrecarga del servicio
+   * @param meterRegistry  registro de métricas
+   */
+  public AdaptiveConcurrencyLimiter(String nombre, int limiteInicial, int limiteMinimo, int limiteMaximo,
+      int colaMaxima, Duration esperaMaxima, Predicate<Throwable> esSobrecarga, MeterRegistry meterRegistry) {
+    this(nombre, limiteInicial, limiteMinimo, limiteMaximo, colaMaxima, esperaMaxima, esSobrecarga,
+        meterRegistry, System::nanoTime);
+  }
+
+  /**
+   * Crea un limitador con un reloj en nanosegundos explícito.
+   */
+  AdaptiveConcurrencyLimiter(String nombre, int limiteInicial, int limiteMinimo, int limiteMaximo,
+      int colaMaxima, Duration esperaMaxima, Predicate<Throwable> esSobrecarga, MeterRegistry meterRegistry,
+      LongSupplier reloj) {
+    if (limiteMinimo < 1 || limiteMaximo < limiteMinimo) {
+      throw new IllegalArgumentException("Límites de concurrencia inválidos: " + limiteMinimo + ".." + limiteMaximo);
+    }
+
+    this.nombre = nombre;
+    this.limiteMinimo = limiteMinimo;
+    this.limiteMaximo = limiteMaximo;
+    this.limite = Math.max(limiteMinimo, Math.min(limiteMaximo, limiteInicial));
+    this.colaMaxima = colaMaxima;
+    this.esperaMaxima = esperaMaxima;
+    this.esSobrecarga = esSobrecarga;
+    this.reloj = reloj;
+
+    Gauge.builder("jce.limitador.limite", this, AdaptiveConcurrencyLimiter::getLimite)
+        .description("Límite adaptativo de llamadas concurrentes")
+        .tag("nombre", nombre)
+        .register(meterRegistry);
+
+    Gauge.builder("jce.limitador.en_curso", this, AdaptiveConcurrencyLimiter::getEnCurso)
+        .description("Llamadas en curso bajo el limitador")
+        .tag("nombre", nombre)
+        .register(meterRegistry);
+
+    Gauge.builder("jce.limitador.en_cola", this, AdaptiveConcurrencyLimiter::getEnCola)
+        .description("Llamadas esperando permiso del limitador")
+        .tag("nombre", nombre)
+        .register(meterRegistry);
+
+    this.esperaTimer = Timer.builder("jce.limitador.espera")
+        .description("Tiempo de espera en cola del limitador")
+        .tag("nombre", nombre)
+        .register(meterRegistry);
+
+    this.rechazosColaLlenaCounter = Counter.builder("jce.limitador.rechazos")
+        .description("Llamadas rechazadas por el limitador")
+        .tag("nombre", nombre)
+        .tag("motivo", "cola_llena")
+        .register(meterRegistry);
+
+    this.rechazosTimeoutCounter = Counter.builder("jce.limitador.rechazos")
+        .description("Llamadas rechazadas por el limitador")
+        .tag("nombre", nombre)
+        .tag("motivo", "timeout")
+        .register(meterRegistry);
+  }
+
+  // ========================================
+  // MÉTODOS PÚBLICOS
+  // ========================================
+
+  /**
+   * Ejecuta una llamada bajo el limitador.
+   *
+   * La llamada se suscribe solo cuando obtiene permiso. Su latencia (si
+   * termina bien) o su error de sobrecarga alimentan el ajuste del límite.
+   *
+   * @param llamada proveedor de la llamada a ejecutar
+   * @return Mono con el resultado de la llamada o error de rechazo
+   */
+  public <T> Mono<T> ejecutar(Supplier<Mono<T>> llamada) {
+    return adquirir().flatMap(permiso -> Mono.defer(llamada)
+        .doOnSuccess(resultado -> permiso.liberar(Muestra.EXITO))
+        .doOnError(error -> permiso.liberar(esSobrecarga.test(error) ? Muestra.SOBRECARGA : Muestra.IGNORAR))
+        .doOnCancel(() -> permiso.liberar(Muestra.IGNORAR)));
+  }
+
+  public synchronized double getLimite() {
+    return limite;
+  }
+
+  public synchronized int getEnCurso() {
+    return enCurso;
+  }
+
+  public synchronized int getEnCola() {
+    return cola.size();
+  }
+
+  // ========================================
+  // ADQUISICIÓN Y LIBERACIÓN
+  // ========================================
+
+  private Mono<Permiso> adquirir() {
+    return Mono.defer(() -> {
+      Espera espera;
+      synchronized (this) {
+        if (enCurso < (int) limite) {
+          enCurso++;
+          return Mono.just(new Permiso());
+        }
+        if (cola.size() >= colaMaxima) {
+          rechazosColaLlenaCounter.increment();
+          logger.warn("🚦 Limitador '{}': cola llena ({}), límite {}", nombre, colaMaxima, (int) limite);
+          return Mono.error(ApiException.jceNoDisponible());
+        }
+        espera = new Espera(reloj.getAsLong());
+        cola.addLast(espera);
+      }
+
+      return espera.sink.asMono()
+          .timeout(esperaMaxima)
+          .doOnNext(permiso -> esperaTimer.record(reloj.getAsLong() - espera.inicioNanos, TimeUnit.NANOSECONDS))
+          .onErrorResume(TimeoutException.class, error -> {
+            abandonar(espera);
+            rechazosTimeoutCounter.increment();
+            logger.warn("🚦 Limitador '{}': espera en cola superó {}ms", nombre, esperaMaxima.toMillis());
+            return Mono.error(ApiException.jceNoDisponible());
+          })
+          .doOnCancel(() -> abandonar(espera));
+    });
+  }
+
+  /**
+   * Retira una espera que ya no será atendida; si se le había asignado un
+   * permiso que no llegó a usarse, lo devuelve.
+   */
+  private void abandonar(Espera espera) {
+    Permiso asignado;
+    synchronized (this) {
+      if (espera.activa) {
+        espera.activa = false;
+        cola.remove(espera);
+        return;
+      }
+      asignado = espera.permiso;
+    }
+    if (asignado != null) {
+      asignado.liberar(Muestra.IGNORAR);
+    }
+  }
+
+  private void liberar(long inicioNanos, Muestra muestra) {
+    List<Espera> atendidas = new ArrayList<>();
+
+    synchronized (this) {
+      enCurso--;
+      if (muestra == Muestra.EXITO) {
+        ajustarPorLatencia(reloj.getAsLong() - inicioNanos);
+      } else if (muestra == Muestra.SOBRECARGA) {
+        limite = Math.max(limiteMinimo, limite * FACTOR_REDUCCION);
+      }
+
+      while (enCurso < (int) limite && !cola.isEmpty()) {
+        Espera espera = cola.pollFirst();
+        espera.activa = false;
+        espera.permiso = new Permiso();
+        enCurso++;
+        atendidas.add(espera);
+      }
+    }
+
+    // Se emite fuera del monitor: el suscriptor inicia su llamada en este hilo
+    for (Espera espera : atendidas) {
+      if (espera.sink.tryEmitValue(espera.permiso).isFailure()) {
+        espera.permiso.liberar(Muestra.IGNORAR);
+      }
+    }
+  }
+
+  // ========================================
+  // ALGORITMO DE VEGAS
+  // ========================================
+
+  /**
+   * Ajusta el límite a partir de una latencia observada. Debe llamarse con
+   * el monitor tomado.
+   */
+  private void ajustarPorLatencia(long latenciaNanos) {
+    if (++muestrasDesdeSondeo >= MUESTRAS_POR_SONDEO) {
+      muestrasDesdeSondeo = 0;
+      latenciaSinCargaNanos = latenciaNanos;
+    }
+    latenciaSinCargaNanos = Math.min(latenciaSinCargaNanos, latenciaNanos);
+
+    // Con menos de la mitad del límite en uso, la latencia no informa sobre él
+    if ((enCurso + 1) * 2 < limite) {
+      return;
+    }
+
+    double log = Math.max(1.0, Math.log10(limite));
+    double colaEstimada = limite * (1.0 - (double) latenciaSinCargaNanos / Math.max(1, latenciaNanos));
+    double nuevoLimite;
+
+    if (colaEstimada <= log) {
+      nuevoLimite = limite + 6 * log;
+    } else if (colaEstimada < 3 * log) {
+      nuevoLimite = limite + log;
+    } else if (colaEstimada > 6 * log) {
+      nuevoLimite = limite - log;
+    } else {
+      return;
+    }
+
+    limite = Math.max(limiteMinimo, Math.min(limiteMaximo, nuevoLimite));
+  }
+
+  // ========================================
+  // CLASES INTERNAS
+  // ========================================
+
+  private enum Muestra {
+    EXITO, SOBRECARGA, IGNORAR
+  }
+
+  /**
+   * Petición esperando permiso en la cola.
+   */
+  private static final class Espera {
+    private final Sinks.One<Permiso> sink = Sinks.one();
+    private final long inicioNanos;
+    private boolean activa = true;
+    private Permiso permiso;
+
+    private Espera(long inicioNanos) {
+      this.inicioNanos = inicioNanos;
+    }
+  }
+
+  /**
+   * Permiso de ejecución; se libera una sola vez.
+   */
+  private final class Permiso {
+    private final AtomicBoolean liberado = new AtomicBoolean();
+    private final long inicioNanos = reloj.getAsLong();
+
+    private void liberar(Muestra muestra) {
+      if (liberado.compareAndSet(false, true)) {
+        AdaptiveConcurrencyLimiter.this.liberar(inicioNanos, muestra);
+      }
+    }
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.resilience;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Política de peticiones de cobertura (hedging) para reducir la latencia de
+ * cola de un servicio externo.
+ *
+ * Si la llamada primaria no responde dentro del percentil configurado de
+ * las latencias recientes, se lanza una única llamada duplicada y se usa la
+ * primera que responda con un valor; la otra se cancela. Las coberturas
+ * consumen tokens de un {@link TokenRatioBudget} propio, de modo que nunca
+ * superan el porcentaje de tráfico configurado. Un error de cualquiera de
+ * las dos no decide el resultado mientras la otra siga en curso: si la
+ * primaria falla con la cobertura ya lanzada se espera a la cobertura, y si
+ * falla antes de lanzarla la cobertura ya no se lanza. Si ninguna produce un
+ * valor se propaga el error de la primaria.
+ *
+ * Las latencias se guardan en un buffer circular y el percentil se
+ * recalcula cada cierto número de muestras, no en cada petición.
+ *
+ * Métricas publicadas:
+ * - {@code jce.cobertura.peticiones{resultado=lanzada|descartada|ganadora}}
+ * - {@code jce.cobertura.retraso}: retraso actual antes de cubrir (ms)
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+public final class HedgingPolicy {
+
+  private static final int TAMANO_MUESTRAS = 1024;
+  private static final int MUESTRAS_POR_RECALCULO = 64;
+
+  private final boolean habilitada;
+  private final double percentil;
+  private final int muestrasMinimas;
+  private final long retrasoMinimoNanos;
+  private final TokenRatioBudget presupuesto;
+
+  // Buffer circular de latencias en nanosegundos
+  private final AtomicLongArray latencias = new AtomicLongArray(TAMANO_MUESTRAS);
+  private final AtomicLong totalMuestras = new AtomicLong();
+  private volatile long retrasoNanos = -1;
+
+  // Métricas
+  private final Counter lanzadasCounter;
+  private final Counter descartadasCounter;
+  private final Counter ganadorasCounter;
+
+  /**
+   * Crea la política de cobertura.
+   *
+   * @param habilitada      si está deshabilitada solo se registran latencias
+   * @param percentil       percentil de latencia tras el cual se cubre (0-100)
+   * @param muestrasMinimas muestras necesarias antes de empezar a cubrir
+   * @param retrasoMinimo   retraso mínimo antes de cubrir
+   * @param presupuesto     presupuesto de peticiones de cobertura
+   * @param meterRegistry   registro de métricas
+   */
+  public HedgingPolicy(boolean habilitada, double percentil, int muestrasMinimas, Duration retrasoMinimo,
+      TokenRatioBudget presupuesto, MeterRegistry meterRegistry) {
+    if (percentil <= 0 || percentil >= 100) {
+      throw new IllegalArgumentException("El percentil de cobertura debe estar entre 0 y 100");
+    }
+
+    this.habilitada = habilitada;
+    this.percentil = percentil;
+    this.muestrasMinimas = Math.min(muestrasMinimas, TAMANO_MUESTRAS);
+    this.retrasoMinimoNanos = retrasoMinimo.toNanos();
+    this.presupuesto = presupuesto;
+
+    this.lanzadasCounter = Counter.builder("jce.cobertura.peticiones")
+        .description("Peticiones de cobertura según su resultado")
+        .tag("resultado", "lanzada")
+        .register(meterRegistry);
+
+    this.descartadasCounter = Counter.builder("jce.cobertura.peticiones")
+        .description("Peticiones de cobertura según su resultado")
+        .tag("resultado", "descartada")
+        .register(meterRegistry);
+
+    this.ganadorasCounter = Counter.builder("jce.cobertura.peticiones")
+        .description("Peticiones de cobertura según su resultado")
+        .tag("resultado", "ganadora")
+        .register(meterRegistry);
+
+    Gauge.builder("jce.cobertura.retraso", this, politica -> Math.max(0, politica.retrasoNanos) / 1_000_000.0)
+        .description("Retraso actual antes de lanzar una petición de cobertura (ms)")
+        .register(meterRegistry);
+  }
+
+  // ========================================
+  // MÉTODOS PÚBLICOS
+  // ========================================
+
+  /**
+   * Ejecuta una llamada con cobertura si corresponde.
+   *
+   * @param llamada proveedor de la llamada; se invoca una o dos veces
+   * @return Mono con el primer valor disponible, o el error de la primaria
+   *         si ninguna llamada produce uno
+   */
+  public <T> Mono<T> ejecutar(Supplier<Mono<T>> llamada) {
+    return Mono.defer(() -> {
+      long inicio = System.nanoTime();
+      long retraso = retrasoNanos;
+
+      Mono<T> resultado;
+      if (!habilitada || retraso < 0) {
+        resultado = Mono.defer(llamada);
+      } else {
+        presupuesto.depositar();
+        AtomicReference<Throwable> errorPrimaria = new AtomicReference<>();
+        Sinks.One<Boolean> primariaFallida = Sinks.one();
+        Mono<T> primaria = Mono.defer(llamada)
+            .doOnError(error -> {
+              errorPrimaria.set(error);
+              primariaFallida.tryEmitValue(Boolean.TRUE);
+            });
+        // Si la primaria falla antes del retraso, la cobertura ya no se lanza
+        Mono<T> cobertura = Mono.delay(Duration.ofNanos(retraso))
+            .takeUntilOther(primariaFallida.asMono())
+            .flatMap(tick -> lanzarCobertura(llamada));
+        resultado = Mono.firstWithValue(primaria, cobertura)
+            .onErrorMap(error -> errorPrimaria.get() != null ? errorPrimaria.get() : error);
+      }
+
+      return resultado.doOnSuccess(valor -> {
+        if (valor != null) {
+          registrar(System.nanoTime() - inicio);
+        }
+      });
+    });
+  }
+
+  /**
+   * Retraso actual antes de cubrir, o null si aún no hay muestras
+   * suficientes.
+   */
+  public Duration getRetraso() {
+    long retraso = retrasoNanos;
+    return retraso < 0 ? null : Duration.ofNanos(retraso);
+  }
+
+  // ========================================
+  // MÉTODOS PRIVADOS
+  // ========================================
+
+  private <T> Mono<T> lanzarCobertura(Supplier<Mono<T>> llamada) {
+    if (!presupuesto.intentarRetirar()) {
+      descartadasCounter.increment();
+      return Mono.empty();
+    }
+
+    lanzadasCounter.increment();
+    return Mono.defer(llamada)
+        .doOnNext(valor -> ganadorasCounter.increment());
+  }
+
+  /**
+   * Registra una latencia y recalcula el percentil periódicamente.
+   */
+  void registrar(long latenciaNanos) {
+    long n = totalMuestras.getAndIncrement();
+    latencias.set((int) (n % TAMANO_MUESTRAS), latenciaNanos);
+
+    long muestras = n + 1;
+    if (muestras >= muestrasMinimas && (muestras % MUESTRAS_POR_RECALCULO == 0 || retrasoNanos < 0)) {
+      recalcular((int) Math.min(muestras, TAMANO_MUESTRAS));
+    }
+  }
+
+  private void recalcular(int muestras) {
+    long[] copia = new long[muestras];
+    for (int i = 0; i < muestras; i++) {
+      copia[i] = latencias.get(i);
+    }
+    Arrays.sort(copia);
+
+    int indice = (int) Math.ceil(percentil / 100.0 * muestras) - 1;
+    long valor = copia[Math.max(0, Math.min(muestras - 1, indice))];
+    retrasoNanos = Math.max(retrasoMinimoNanos, valor);
+  }
+}
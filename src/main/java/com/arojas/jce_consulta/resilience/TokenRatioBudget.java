@@ -0,0 +1,194 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Presupuesto de llamadas adicionales proporcional al tráfico primario.
+ *
+ * Cada llamada primaria deposita un token; cada llamada adicional (un
+ * reintento, una petición de cobertura) retira uno, y solo se permite
+ * mientras los retiros de la ventana no superen {@code ratio} veces los
+ * depósitos más una reserva mínima. Así la carga extra sobre el servicio
+ * externo queda acotada a un porcentaje del tráfico real, incluso cuando
+ * todas las peticiones están fallando.
+ *
+ * La ventana deslizante se divide en cubetas de tiempo que se reciclan al
+ * avanzar el reloj. Las operaciones son atómicas por cubeta y no bloquean;
+ * bajo alta concurrencia el límite puede excederse por unas pocas unidades.
+ *
+ * Métricas publicadas (etiqueta {@code presupuesto}):
+ * - {@code jce.presupuesto.depositos}: llamadas primarias registradas
+ * - {@code jce.presupuesto.retiros{resultado=permitido|rechazado}}
+ * - {@code jce.presupuesto.disponible}: tokens disponibles en la ventana
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+public final class TokenRatioBudget {
+
+  private static final int NUMERO_CUBETAS = 10;
+
+  private final String nombre;
+  private final double ratio;
+  private final double reserva;
+  private final long duracionCubetaNanos;
+  private final LongSupplier reloj;
+
+  // Época de cada cubeta y sus contadores
+  private final AtomicLongArray epocas = new AtomicLongArray(NUMERO_CUBETAS);
+  private final AtomicLongArray depositos = new AtomicLongArray(NUMERO_CUBETAS);
+  private final AtomicLongArray retiros = new AtomicLongArray(NUMERO_CUBETAS);
+
+  // Métricas
+  private final Counter depositosCounter;
+  private final Counter retirosPermitidosCounter;
+  private final Counter retirosRechazadosCounter;
+
+  /**
+   * Crea un presupuesto con el reloj del sistema.
+   *
+   * @param nombre            nombre del presupuesto (etiqueta de métricas)
+   * @param ratio             fracción de llamadas adicionales permitidas por
+   *                          cada llamada primaria (0.2 = 20%)
+   * @param minimoPorSegundo  llamadas adicionales permitidas por segundo aunque
+   *                          no haya tráfico primario suficiente
+   * @param ventana           duración de la ventana deslizante
+   * @param meterRegistry     registro de métricas
+   */
+  public TokenRatioBudget(String nombre, double ratio, int minimoPorSegundo, Duration ventana,
+      MeterRegistry meterRegistry) {
+    this(nombre, ratio, minimoPorSegundo, ventana, meterRegistry, System::nanoTime);
+  }
+
+  /**
+   * Crea un presupuesto con un reloj en nanosegundos explícito.
+   */
+  TokenRatioBudget(String nombre, double ratio, int minimoPorSegundo, Duration ventana,
+      MeterRegistry meterRegistry, LongSupplier reloj) {
+    if (ratio < 0) {
+      throw new IllegalArgumentException("El ratio del presupuesto no puede ser negativo");
+    }
+    if (ventana.isNegative() || ventana.isZero()) {
+      throw new IllegalArgumentException("La ventana del presupuesto debe ser positiva");
+    }
+
+    this.nombre = nombre;
+    this.ratio = ratio;
+    this.reserva = minimoPorSegundo * (ventana.toMillis() / 1000.0);
+    this.duracionCubetaNanos = Math.max(1, ventana.toNanos() / NUMERO_CUBETAS);
+    this.reloj = reloj;
+
+    this.depositosCounter = Counter.builder("jce.presupuesto.depositos")
+        .description("Llamadas primarias registradas en el presupuesto")
+        .tag("presupuesto", nombre)
+        .register(meterRegistry);
+
+    this.retirosPermitidosCounter = Counter.builder("jce.presupuesto.retiros")
+        .description("Llamadas adicionales solicitadas al presupuesto")
+        .tag("presupuesto", nombre)
+        .tag("resultado", "permitido")
+        .register(meterRegistry);
+
+    this.retirosRechazadosCounter = Counter.builder("jce.presupuesto.retiros")
+        .description("Llamadas adicionales solicitadas al presupuesto")
+        .tag("presupuesto", nombre)
+        .tag("resultado", "rechazado")
+        .register(meterRegistry);
+
+    Gauge.builder("jce.presupuesto.disponible", this, TokenRatioBudget::getDisponible)
+        .description("Llamadas adicionales disponibles en la ventana actual")
+        .tag("presupuesto", nombre)
+        .register(meterRegistry);
+  }
+
+  // ========================================
+  // MÉTODOS PÚBLICOS
+  // ========================================
+
+  /**
+   * Registra una llamada primaria.
+   */
+  public void depositar() {
+    depositos.incrementAndGet(cubetaActual());
+    depositosCounter.increment();
+  }
+
+  /**
+   * Intenta consumir un token para una llamada adicional.
+   *
+   * @return true si la llamada adicional está dentro del presupuesto
+   */
+  public boolean intentarRetirar() {
+    int cubeta = cubetaActual();
+    retiros.incrementAndGet(cubeta);
+
+    if (sumarVigentes(retiros) > limiteVigente()) {
+      retiros.decrementAndGet(cubeta);
+      retirosRechazadosCounter.increment();
+      return false;
+    }
+
+    retirosPermitidosCounter.increment();
+    return true;
+  }
+
+  /**
+   * Tokens disponibles en la ventana actual.
+   */
+  public double getDisponible() {
+    cubetaActual();
+    return Math.max(0, limiteVigente() - sumarVigentes(retiros));
+  }
+
+  public String getNombre() {
+    return nombre;
+  }
+
+  // ========================================
+  // MÉTODOS PRIVADOS
+  // ========================================
+
+  private double limiteVigente() {
+    return sumarVigentes(depositos) * ratio + reserva;
+  }
+
+  /**
+   * Devuelve el índice de la cubeta actual, reiniciándola si pertenece a
+   * una vuelta anterior de la ventana.
+   */
+  private int cubetaActual() {
+    long epoca = reloj.getAsLong() / duracionCubetaNanos;
+    int indice = (int) Math.floorMod(epoca, (long) NUMERO_CUBETAS);
+    long epocaCubeta = epocas.get(indice);
+
+    if (epocaCubeta != epoca && epocas.compareAndSet(indice, epocaCubeta, epoca)) {
+      depositos.set(indice, 0);
+      retiros.set(indice, 0);
+    }
+    return indice;
+  }
+
+  /**
+   * Suma los contadores de las cubetas que siguen dentro de la ventana.
+   */
+  private long sumarVigentes(AtomicLongArray contadores) {
+    long epocaActual = reloj.getAsLong() / duracionCubetaNanos;
+    long total = 0;
+    for (int i = 0; i < NUMERO_CUBETAS; i++) {
+      if (epocaActual - epocas.get(i) < NUMERO_CUBETAS) {
+        total += contadores.get(i);
+      }
+    }
+    return total;
+  }
+}
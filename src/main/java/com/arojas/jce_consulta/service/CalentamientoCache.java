@@ -0,0 +1,403 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.arojas.jce_consulta.DTOs.ConsultaResponse;
+import com.arojas.jce_consulta.cache.ConsultaCache;
+import com.arojas.jce_consulta.config.AppProperties;
+import com.arojas.jce_consulta.model.Cedula;
+import com.arojas.jce_consulta.resilience.AdaptiveConcurrencyLimiter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Precalentamiento del caché con las cédulas que más consultan los sistemas
+ * clientes (nóminas, clientes activos), para que en horas pico esas
+ * consultas no lleguen a la JCE.
+ *
+ * Las cédulas se toman de un archivo de lista ({@code warmup.file}) y de
+ * las más consultadas en el log de auditoría ({@code warmup.audit-log-path},
+ * top {@code warmup.top-n}), sin duplicados y en ese orden. Cada una se
+ * consulta por {@link JceConsultaService#precalentar}, que sigue el camino
+ * de una petición normal, de modo que se cachea con los mismos TTL, caché
+ * negativo y variantes; las que ya están frescas en el caché local se
+ * omiten. Esas consultas no registran el evento de auditoría de los
+ * clientes, así el top no se refuerza con sus propias ejecuciones.
+ *
+ * El ritmo se ajusta al presupuesto hacia el portal: el precalentamiento
+ * mantiene en curso como máximo {@code warmup.budget-fraction} del límite
+ * actual del limitador adaptativo, se detiene mientras haya peticiones
+ * reales esperando en su cola y no supera {@code warmup.max-rate-per-second}.
+ *
+ * Se ejecuta con {@code @Async} al terminar de arrancar y según
+ * {@code warmup.cron}; nunca hay dos ejecuciones a la vez.
+ *
+ * Métricas publicadas:
+ * - {@code jce.calentamiento.total} (cédulas de la ejecución en curso)
+ * - {@code jce.calentamiento.pendientes}
+ * - {@code jce.calentamiento.en_curso} (1 mientras se ejecuta)
+ * - {@code jce.calentamiento.cedulas} con tag {@code resultado}
+ * - {@code jce.calentamiento.duracion}
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+@Service
+public class CalentamientoCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(CalentamientoCache.class);
+
+  /**
+   * Evento de auditoría que {@link JceConsultaService} registra por cada
+   * cédula pedida por un cliente.
+   */
+  static final String MARCA_CONSULTA = JceConsultaService.EVENTO_CONSULTA_CLIENTE;
+
+  private static final Duration ESPERA_PRESUPUESTO = Duration.ofMillis(20);
+
+  private final JceConsultaService jceConsultaService;
+  private final ConsultaCache consultaCache;
+  private final AdaptiveConcurrencyLimiter limitador;
+  private final AppProperties.Warmup config;
+
+  private final AtomicBoolean ejecutando = new AtomicBoolean();
+  private final AtomicInteger enVuelo = new AtomicInteger();
+  private final AtomicInteger pendientes = new AtomicInteger();
+  private final AtomicInteger total = new AtomicInteger();
+  private volatile boolean detenido;
+
+  // Métricas
+  private final Counter precargadasCounter;
+  private final Counter omitidasCounter;
+  private final Counter noEncontradasCounter;
+  private final Counter erroresCounter;
+  private final Timer duracionTimer;
+
+  /**
+   * Constructor con inyección de dependencias.
+   */
+  public CalentamientoCache(JceConsultaService jceConsultaService, ConsultaCache consultaCache,
+      AdaptiveConcurrencyLimiter limitadorConcurrenciaJce, AppProperties appProperties,
+      MeterRegistry meterRegistry) {
+    this.jceConsultaService = jceConsultaService;
+    this.consultaCache = consultaCache;
+    this.limitador = limitadorConcurrenciaJce;
+    this.config = appProperties.getWarmup();
+
+    this.precargadasCounter = contador(meterRegistry, "precargada");
+    this.omitidasCounter = contador(meterRegistry, "omitida");
+    this.noEncontradasCounter = contador(meterRegistry, "no_encontrada");
+    this.erroresCounter = contador(meterRegistry, "error");
+
+    this.duracionTimer = Timer.builder("jce.calentamiento.duracion")
+        .description("Duración de cada ejecución del precalentamiento")
+        .register(meterRegistry);
+
+    Gauge.builder("jce.calentamiento.total", total, AtomicInteger::get)
+        .description("Cédulas de la ejecución de precalentamiento en curso o la última")
+        .register(meterRegistry);
+
+    Gauge.builder("jce.calentamiento.pendientes", pendientes, AtomicInteger::get)
+        .description("Cédulas que faltan por precalentar")
+        .register(meterRegistry);
+
+    Gauge.builder("jce.calentamiento.en_curso", ejecutando, e -> e.get() ? 1 : 0)
+        .description("1 mientras se ejecuta el precalentamiento")
+        .register(meterRegistry);
+
+    logger.info("🔥 CalentamientoCache inicializado - Habilitado: {}, Fracción del presupuesto: {}, Tasa máxima: {}/s",
+        config.isEnabled(), config.getBudgetFraction(), config.getMaxRatePerSecond());
+  }
+
+  // ========================================
+  // DISPARADORES
+  // ========================================
+
+  /**
+   * Precalienta el caché al terminar de arrancar.
+   */
+  @Async
+  @EventListener(ApplicationReadyEvent.class)
+  public void alArrancar() {
+    if (config.isEnabled() && config.isOnStartup()) {
+      calentar();
+    }
+  }
+
+  /**
+   * Precalienta el caché según {@code warmup.cron}.
+   */
+  @Async
+  @Scheduled(cron = "${jce.consulta.warmup.cron:-}")
+  public void calentarProgramado() {
+    if (config.isEnabled()) {
+      calentar();
+    }
+  }
+
+  @PreDestroy
+  public void detener() {
+    detenido = true;
+  }
+
+  // ========================================
+  // PRECALENTAMIENTO
+  // ========================================
+
+  /**
+   * Ejecuta un precalentamiento completo en el hilo actual. Si ya hay uno en
+   * curso no hace nada.
+   *
+   * @return cédulas enviadas al servicio, o -1 si no se ejecutó
+   */
+  public int calentar() {
+    if (!ejecutando.compareAndSet(false, true)) {
+      logger.info("🔥 Precalentamiento ya en curso; se omite esta ejecución");
+      return -1;
+    }
+
+    long inicio = System.nanoTime();
+    int enviadas = 0;
+    try {
+      List<Long> cedulas = recolectar();
+      total.set(cedulas.size());
+      pendientes.set(cedulas.size());
+      logger.info("🔥 Precalentamiento iniciado con {} cédulas", cedulas.size());
+
+      long intervalo = config.getMaxRatePerSecond() > 0 ? 1_000_000_000L / config.getMaxRatePerSecond() : 0;
+      long siguiente = System.nanoTime();
+      for (long valor : cedulas) {
+        String clave = Cedula.aTextoLimpio(valor);
+        if (consultaCache.tieneFrescoLocal(clave)) {
+          omitidasCounter.increment();
+          pendientes.decrementAndGet();
+          continue;
+        }
+
+        esperarPresupuesto();
+        if (intervalo > 0) {
+          dormir(siguiente - System.nanoTime());
+          siguiente = Math.max(siguiente, System.nanoTime()) + intervalo;
+        }
+        if (detenido) {
+          break;
+        }
+
+        enVuelo.incrementAndGet();
+        enviadas++;
+        jceConsultaService.precalentar(clave)
+            .doFinally(senal -> {
+              enVuelo.decrementAndGet();
+              pendientes.decrementAndGet();
+            })
+            .subscribe(this::contarResultado, error -> erroresCounter.increment());
+      }
+
+      while (enVuelo.get() > 0 && !detenido) {
+        dormir(ESPERA_PRESUPUESTO.toNanos());
+      }
+
+      Duration duracion = Duration.ofNanos(System.nanoTime() - inicio);
+      duracionTimer.record(duracion);
+      logger.info("🔥 Precalentamiento terminado: {} de {} cédulas consultadas en {} s", enviadas, cedulas.size(),
+          duracion.toSeconds());
+      return enviadas;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.warn("⚠️ Precalentamiento interrumpido tras {} cédulas", enviadas);
+      return enviadas;
+    } finally {
+      pendientes.set(0);
+      ejecutando.set(false);
+    }
+  }
+
+  // ========================================
+  // FUENTES DE CÉDULAS
+  // ========================================
+
+  /**
+   * Lee una lista de cédulas, una por línea. Las líneas vacías o que
+   * empiezan con # se ignoran; si la línea tiene varios campos separados por
+   * coma o punto y coma se usa el primero.
+   *
+   * @param lector texto de la lista
+   * @return cédulas válidas sin duplicados, en el orden del archivo
+   * @throws IOException si falla la lectura
+   */
+  static List<Long> leerLista(BufferedReader lector) throws IOException {
+    Set<Long> cedulas = new LinkedHashSet<>();
+    String linea;
+    while ((linea = lector.readLine()) != null) {
+      linea = linea.strip();
+      if (linea.isEmpty() || linea.startsWith("#")) {
+        continue;
+      }
+      int separador = indiceSeparador(linea);
+      long valor = Cedula.valorDe(separador < 0 ? linea : linea.substring(0, separador).strip());
+      if (Cedula.esValida(valor)) {
+        cedulas.add(valor);
+      }
+    }
+    return new ArrayList<>(cedulas);
+  }
+
+  /**
+   * Cuenta las consultas por cédula en el log de auditoría y devuelve las
+   * más frecuentes. Solo se cuentan las líneas con {@link #MARCA_CONSULTA},
+   * que el servicio registra por cada cédula pedida por un cliente y nunca
+   * para el precalentamiento.
+   *
+   * @param lector texto del log
+   * @param limite cantidad máxima de cédulas
+   * @return cédulas de la más a la menos consultada
+   * @throws IOException si falla la lectura
+   */
+  static List<Long> masConsultadas(BufferedReader lector, int limite) throws IOException {
+    if (limite <= 0) {
+      return List.of();
+    }
+
+    Map<Long, int[]> conteos = new HashMap<>();
+    String linea;
+    while ((linea = lector.readLine()) != null) {
+      int marca = linea.indexOf(MARCA_CONSULTA);
+      if (marca < 0) {
+        continue;
+      }
+      int desde = marca + MARCA_CONSULTA.length();
+      int hasta = desde;
+      while (hasta < linea.length() && !Character.isWhitespace(linea.charAt(hasta))) {
+        hasta++;
+      }
+      long valor = Cedula.valorDe(linea.subSequence(desde, hasta));
+      if (Cedula.esValida(valor)) {
+        conteos.computeIfAbsent(valor, v -> new int[1])[0]++;
+      }
+    }
+
+    // Montículo de mínimos con las N más consultadas; empates por cédula
+    PriorityQueue<Map.Entry<Long, int[]>> top = new PriorityQueue<>(
+        (a, b) -> a.getValue()[0] != b.getValue()[0]
+            ? Integer.compare(a.getValue()[0], b.getValue()[0])
+            : Long.compare(b.getKey(), a.getKey()));
+    for (Map.Entry<Long, int[]> entrada : conteos.entrySet()) {
+      top.offer(entrada);
+      if (top.size() > limite) {
+        top.poll();
+      }
+    }
+
+    Long[] resultado = new Long[top.size()];
+    for (int i = resultado.length - 1; i >= 0; i--) {
+      resultado[i] = top.poll().getKey();
+    }
+    return List.of(resultado);
+  }
+
+  // ========================================
+  // MÉTODOS PRIVADOS
+  // ========================================
+
+  private List<Long> recolectar() {
+    Set<Long> cedulas = new LinkedHashSet<>();
+    if (!config.getFile().isBlank()) {
+      agregarDesde(cedulas, Path.of(config.getFile()), false);
+    }
+    if (config.getAuditLogPath() != null && !config.getAuditLogPath().isBlank()) {
+      agregarDesde(cedulas, Path.of(config.getAuditLogPath()), true);
+    }
+    return new ArrayList<>(cedulas);
+  }
+
+  private void agregarDesde(Set<Long> cedulas, Path archivo, boolean esLogAuditoria) {
+    if (!Files.isRegularFile(archivo)) {
+      logger.warn("⚠️ Fuente de precalentamiento no encontrada: {}", archivo.toAbsolutePath());
+      return;
+    }
+    try (BufferedReader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+      Collection<Long> leidas = esLogAuditoria ? masConsultadas(lector, config.getTopN()) : leerLista(lector);
+      cedulas.addAll(leidas);
+      logger.info("🔥 {} cédulas leídas de {}", leidas.size(), archivo);
+    } catch (IOException | RuntimeException e) {
+      logger.warn("⚠️ No se pudo leer la fuente de precalentamiento {}: {}", archivo, e.getMessage());
+    }
+  }
+
+  /**
+   * Espera hasta que el precalentamiento quepa en su fracción del límite
+   * adaptativo y no haya peticiones reales en cola.
+   */
+  private void esperarPresupuesto() throws InterruptedException {
+    while (!detenido && (enVuelo.get() >= permitidas() || limitador.getEnCola() > 0)) {
+      dormir(ESPERA_PRESUPUESTO.toNanos());
+    }
+  }
+
+  private int permitidas() {
+    return Math.max(1, (int) (limitador.getLimite() * config.getBudgetFraction()));
+  }
+
+  private void contarResultado(ConsultaResponse respuesta) {
+    if (Boolean.TRUE.equals(respuesta.exitosa())) {
+      precargadasCounter.increment();
+    } else if ("CIUDADANO_NO_ENCONTRADO".equals(respuesta.codigo())) {
+      noEncontradasCounter.increment();
+    } else {
+      erroresCounter.increment();
+    }
+  }
+
+  private static int indiceSeparador(String linea) {
+    int coma = linea.indexOf(',');
+    int puntoYComa = linea.indexOf(';');
+    if (coma < 0) {
+      return puntoYComa;
+    }
+    return puntoYComa < 0 ? coma : Math.min(coma, puntoYComa);
+  }
+
+  private static void dormir(long nanos) throws InterruptedException {
+    if (nanos > 0) {
+      Thread.sleep(Duration.ofNanos(nanos));
+    }
+  }
+
+  private static Counter contador(MeterRegistry meterRegistry, String resultado) {
+    return Counter.builder("jce.calentamiento.cedulas")
+        .description("Cédulas procesadas por el precalentamiento")
+        .tag("resultado", resultado)
+        .register(meterRegistry);
+  }
+}
@@ -4,26 +4,41 @@
  */
 package com.arojas.jce_consulta.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import com.arojas.jce_consulta.DTOs.ConsultaLoteResponse;
 import com.arojas.jce_consulta.DTOs.ConsultaRequest;
 import com.arojas.jce_consulta.DTOs.ConsultaResponse;
 import com.arojas.jce_consulta.DTOs.ConsultaResponse.DatosCiudadano;
 import com.arojas.jce_consulta.DTOs.ConsultaResponse.InformacionFoto;
+import com.arojas.jce_consulta.cache.CacheNegativo;
+import com.arojas.jce_consulta.cache.CiudadanoCacheado;
+import com.arojas.jce_consulta.cache.ConsultaCache;
+import com.arojas.jce_consulta.cache.PlantillaRespuesta;
 import com.arojas.jce_consulta.client.JceHttpClient;
+import com.arojas.jce_consulta.config.AppProperties;
 import com.arojas.jce_consulta.exceptions.ApiException;
+import com.arojas.jce_consulta.model.Cedula;
 import com.arojas.jce_consulta.model.Individuo;
 
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -48,12 +63,22 @@ import reactor.core.publisher.Mono;
 public class JceConsultaService {
 
   private static final Logger logger = LoggerFactory.getLogger(JceConsultaService.class);
+  private static final Logger auditoria = LoggerFactory.getLogger("com.arojas.jce_consulta.audit");
+
+  /**
+   * Evento del log de auditoría que se registra una vez por cédula pedida
+   * por un cliente, seguido de la cédula limpia. El precalentamiento no lo
+   * registra, de modo que el log refleja solo la demanda real.
+   */
+  public static final String EVENTO_CONSULTA_CLIENTE = "CONSULTA_CLIENTE cedula=";
 
   // ========================================
   // DEPENDENCIAS Y CONFIGURACIÓN
   // ========================================
 
   private final JceHttpClient jceHttpClient;
+  private final ConsultaCache consultaCache;
+  private final CacheNegativo cacheNegativo;
   private final MeterRegistry meterRegistry;
 
   // Métricas
@@ -61,10 +86,20 @@ public class JceConsultaService {
   private final Counter consultasErrorCounter;
   private final Counter cedulasInvalidasCounter;
   private final Counter ciudadanosNoEncontradosCounter;
+  private final Counter datosObsoletosCounter;
   private final Timer consultaTimer;
 
   // Configuración
   private final String baseUrlJce;
+  private final int maxConsultasLote;
+  private final int concurrenciaLote;
+  private final int prefetchFlujo;
+
+  // Consultas al portal en curso por cédula, con el llenado del caché incluido
+  private final ConcurrentHashMap<String, Mono<Individuo>> consultasEnCurso = new ConcurrentHashMap<>();
+
+  // Claves con una revalidación en segundo plano en curso
+  private final Set<String> revalidacionesEnCurso = ConcurrentHashMap.newKeySet();
 
   // Formatos válidos
   private static final Set<String> FORMATOS_VALIDOS = Set.of("completo", "basico", "personal", "familiar");
@@ -74,12 +109,20 @@ public class JceConsultaService {
    */
   public JceConsultaService(
       JceHttpClient jceHttpClient,
+      ConsultaCache consultaCache,
+      CacheNegativo cacheNegativo,
+      AppProperties appProperties,
       MeterRegistry meterRegistry,
       @Value("${jce.consulta.jce.base-url}") String baseUrlJce) {
 
     this.jceHttpClient = jceHttpClient;
+    this.consultaCache = consultaCache;
+    this.cacheNegativo = cacheNegativo;
     this.meterRegistry = meterRegistry;
     this.baseUrlJce = baseUrlJce;
+    this.maxConsultasLote = appProperties.getBatch().getMaxItems();
+    this.concurrenciaLote = appProperties.getBatch().getMaxConcurrency();
+    this.prefetchFlujo = appProperties.getBatch().getStreamPrefetch();
 
     // Inicializar métricas
     this.consultasExitosasCounter = Counter.builder("jce.consultas.exitosas")
@@ -98,10 +141,16 @@ public class JceConsultaService {
         .description("Número de ciudadanos no encontrados en JCE")
         .register(meterRegistry);
 
+    this.datosObsoletosCounter = Counter.builder("jce.consultas.datos_obsoletos")
+        .description("Respuestas servidas desde caché vencido porque el portal falló")
+        .register(meterRegistry);
+
     this.consultaTimer = Timer.builder("jce.consulta.duracion")
         .description("Duración de las consultas a la JCE")
         .register(meterRegistry);
 
+    consultaCache.alRevalidar(this::revalidarEnSegundoPlano);
+
     logger.info("🚀 JceConsultaService inicializado con métricas habilitadas");
   }
 
@@ -112,20 +161,62 @@ public class JceConsultaService {
   /**
    * Consulta principal para obtener datos de un ciudadano en la JCE.
    * 
+   * Si el ciudadano está en {@link ConsultaCache} la respuesta se proyecta
+   * desde el registro cacheado; en caso contrario se consulta el portal y
+   * se cachea el registro completo, válido para cualquier formato. Las
+   * cédulas que el portal no encontró hace poco se responden desde
+   * {@link CacheNegativo} sin volver a consultarlo. Los registros que
+   * pasaron el TTL duro se vuelven a consultar y, si el portal falla, se
+   * sirven marcados como datos obsoletos.
+   * 
    * @param request petición con datos de consulta
    * @return Mono con la respuesta completa
    */
-  @Cacheable(value = "consultas-jce", key = "#request.cedulaLimpia", unless = "#result.exitosa == false")
   public Mono<ConsultaResponse> consultarCiudadano(ConsultaRequest request) {
+    return consultar(request, true);
+  }
+
+  /**
+   * Consulta un ciudadano para precalentar el caché. Sigue el mismo camino
+   * que {@link #consultarCiudadano(ConsultaRequest)} pero no registra el
+   * evento {@link #EVENTO_CONSULTA_CLIENTE}, para que el precalentamiento no
+   * cuente como demanda de los clientes.
+   * 
+   * @param cedula cédula limpia
+   * @return Mono con la respuesta en formato completo
+   */
+  public Mono<ConsultaResponse> precalentar(String cedula) {
+    return consultar(new ConsultaRequest(cedula), false);
+  }
+
+  /**
+   * Consulta principal; {@code deCliente} indica si se registra en
+   * auditoría como demanda de un cliente.
+   */
+  private Mono<ConsultaResponse> consultar(ConsultaRequest request, boolean deCliente) {
     String requestId = generateRequestId();
 
+    // Validar la petición antes de entrar en el flujo reactivo
+    Cedula cedula = validateRequest(request);
+    if (deCliente) {
+      auditarConsulta(cedula.limpia());
+    }
+
     logger.info("🔍 [{}] Iniciando consulta para cédula: {}",
-        requestId, request.getCedulaFormateada());
+        requestId, cedula.formateada());
 
-    // Validar la petición antes de entrar en el flujo reactivo
-    validateRequest(request);
+    String claveCache = ConsultaCache.claveDe(request);
+    long startTime = System.currentTimeMillis();
 
-    return executeConsultaWithTiming(request, requestId)
+    Mono<ConsultaResponse> resultado = cacheNegativo.contiene(claveCache)
+        ? Mono.fromSupplier(() -> respuestaNoEncontrado(request, System.currentTimeMillis() - startTime))
+        : consultaCache.obtener(claveCache)
+            .flatMap(cacheado -> consultaCache.estaVencido(cacheado)
+                ? executeConsulta(request, cacheado, requestId)
+                : Mono.just(proyectar(cacheado.individuo(), request, System.currentTimeMillis() - startTime)))
+            .switchIfEmpty(Mono.defer(() -> executeConsulta(request, null, requestId)));
+
+    return resultado
         .doOnSuccess(response -> logConsultaResult(response, requestId))
         .doOnError(error -> {
           consultasErrorCounter.increment();
@@ -133,6 +224,30 @@ public class JceConsultaService {
         });
   }
 
+  /**
+   * Busca en el caché local la respuesta ya serializada de una consulta.
+   * 
+   * Es la ruta rápida de los aciertos: no construye {@code DatosCiudadano}
+   * ni invoca Jackson. Las peticiones inválidas devuelven null sin lanzar
+   * excepción para que la ruta normal genere el error correspondiente. Los
+   * aciertos se registran en auditoría como demanda del cliente.
+   * 
+   * @param request petición con datos de consulta
+   * @return plantilla JSON cacheada, o null si no hay acierto local
+   */
+  public PlantillaRespuesta buscarRespuestaSerializada(ConsultaRequest request) {
+    String formato = request.getFormato();
+    if (!request.esCedulaValida() || (formato != null && !FORMATOS_VALIDOS.contains(formato.toLowerCase()))) {
+      return null;
+    }
+    PlantillaRespuesta plantilla = consultaCache.obtenerPlantilla(request,
+        individuo -> proyectar(individuo, request, 0L));
+    if (plantilla != null) {
+      auditarConsulta(request.getCedulaLimpia());
+    }
+    return plantilla;
+  }
+
   /**
    * Consulta simplificada con solo cédula.
    * 
@@ -154,6 +269,105 @@ public class JceConsultaService {
     return consultarCiudadano(new ConsultaRequest(cedula, true, formato));
   }
 
+  /**
+   * Consulta en lote de varios ciudadanos.
+   * 
+   * Las consultas repetidas (misma cédula, formato y foto) se resuelven una
+   * sola vez, y las variantes de una misma cédula comparten una única
+   * consulta al portal. Los aciertos de caché se responden de inmediato y
+   * solo los fallos se envían al portal, con como máximo
+   * {@code jce.consulta.batch.max-concurrency} consultas en paralelo. Los
+   * errores de una consulta se devuelven como resultado de error de ese
+   * elemento sin interrumpir el lote.
+   * 
+   * @param consultas peticiones del lote
+   * @return Mono con un resultado por petición, en el mismo orden
+   */
+  public Mono<ConsultaLoteResponse> consultarLote(List<ConsultaRequest> consultas) {
+    String requestId = generateRequestId();
+
+    validarTamanoLote(consultas.size());
+
+    long startTime = System.currentTimeMillis();
+
+    // Clave de cada posición y primera petición de cada clave distinta
+    List<String> claves = new ArrayList<>(consultas.size());
+    Map<String, ConsultaRequest> unicas = new LinkedHashMap<>();
+    for (ConsultaRequest consulta : consultas) {
+      String clave = ConsultaCache.claveDe(consulta) + ":" + ConsultaCache.varianteDe(consulta);
+      claves.add(clave);
+      unicas.putIfAbsent(clave, consulta);
+    }
+
+    Set<String> cedulas = new LinkedHashSet<>();
+    unicas.values().stream()
+        .filter(ConsultaRequest::esCedulaValida)
+        .forEach(consulta -> cedulas.add(ConsultaCache.claveDe(consulta)));
+
+    logger.info("📦 [{}] Iniciando lote de {} consultas ({} distintas, {} cédulas)",
+        requestId, consultas.size(), unicas.size(), cedulas.size());
+
+    return Flux.fromIterable(cedulas)
+        .flatMap(cedula -> consultaCache.obtener(cedula).map(individuo -> Map.entry(cedula, individuo)))
+        .collectMap(Map.Entry::getKey, Map.Entry::getValue, HashMap::new)
+        .flatMap(aciertos -> {
+          int desdeCache = (int) unicas.values().stream()
+              .map(consulta -> aciertos.get(ConsultaCache.claveDe(consulta)))
+              .filter(cacheado -> cacheado != null && !consultaCache.estaVencido(cacheado))
+              .count();
+
+          return Flux.fromIterable(unicas.entrySet())
+              .flatMap(entrada -> consultarElementoLote(entrada.getValue(), aciertos, requestId,
+                  startTime).map(respuesta -> Map.entry(entrada.getKey(), respuesta)), concurrenciaLote)
+              .collectMap(Map.Entry::getKey, Map.Entry::getValue, HashMap::new)
+              .map(resultados -> armarRespuestaLote(claves, resultados, unicas.size(), desdeCache, startTime));
+        })
+        .doOnSuccess(lote -> logger.info("📦 [{}] Lote completado en {}ms - {}/{} exitosas, {} desde caché",
+            requestId, lote.tiempoRespuesta(), lote.exitosas(), lote.total(), lote.desdeCache()));
+  }
+
+  /**
+   * Verifica que el lote no supere {@code jce.consulta.batch.max-items}.
+   * El controlador la invoca antes de consumir tokens de rate limit, para
+   * que un lote rechazado no gaste el presupuesto del cliente.
+   * 
+   * @param tamano cantidad de consultas del lote
+   * @throws ApiException con código PARAMETROS_INVALIDOS si es demasiado
+   *                      grande
+   */
+  public void validarTamanoLote(int tamano) {
+    if (tamano > maxConsultasLote) {
+      throw new ApiException(ApiException.TipoError.PARAMETROS_INVALIDOS,
+          "El lote contiene " + tamano + " consultas; el máximo permitido es " + maxConsultasLote,
+          "tamano=" + tamano);
+    }
+  }
+
+  /**
+   * Consulta en flujo para listas de cédulas de tamaño arbitrario.
+   * 
+   * Las peticiones se piden al origen en tandas de
+   * {@code jce.consulta.batch.stream-prefetch} y se resuelven con como
+   * máximo {@code jce.consulta.batch.max-concurrency} consultas en paralelo,
+   * de modo que la memoria no crece con el tamaño de la entrada. Los
+   * resultados se emiten en orden de finalización; los errores de una
+   * consulta se emiten como respuesta de error de ese elemento.
+   * 
+   * @param consultas flujo de peticiones
+   * @return flujo con una respuesta por petición
+   */
+  public Flux<ConsultaResponse> consultarFlujo(Flux<ConsultaRequest> consultas) {
+    String requestId = generateRequestId();
+
+    return consultas
+        .limitRate(prefetchFlujo)
+        .flatMap(request -> {
+          long startTime = System.currentTimeMillis();
+          return Mono.defer(() -> consultarCiudadano(request))
+              .onErrorResume(error -> Mono.just(respuestaDeError(error, request, startTime, requestId)));
+        }, concurrenciaLote);
+  }
+
   /**
    * Verifica el estado de salud del servicio JCE.
    * 
@@ -170,11 +384,12 @@ public class JceConsultaService {
   /**
    * Valida la petición de consulta.
    */
-  private ConsultaRequest validateRequest(ConsultaRequest request) {
+  private Cedula validateRequest(ConsultaRequest request) {
     logger.debug("🔍 Validando petición de consulta");
 
-    // Validar cédula
-    if (!request.esCedulaValida()) {
+    // Validar cédula (formato, municipio y dígito verificador)
+    Cedula cedula = request.getCedulaParseada();
+    if (cedula == null) {
       cedulasInvalidasCounter.increment();
       throw ApiException.cedulaInvalida(request.getCedulaFormateada());
     }
@@ -186,7 +401,7 @@ public class JceConsultaService {
     }
 
     logger.debug("✅ Petición validada correctamente");
-    return request;
+    return cedula;
   }
 
   // ========================================
@@ -194,27 +409,183 @@ public class JceConsultaService {
   // ========================================
 
   /**
-   * Ejecuta la consulta con medición de tiempo.
+   * Resuelve un elemento del lote: desde el registro cacheado si lo hay y
+   * no está vencido, o desde la consulta al portal de su cédula, compartida
+   * con las demás variantes en curso. Si otra variante ya trajo la cédula
+   * durante el lote se responde desde el caché local que esa consulta llenó.
+   * Los errores se convierten en una respuesta de error del elemento.
    */
-  private Mono<ConsultaResponse> executeConsultaWithTiming(ConsultaRequest request, String requestId) {
-    Timer.Sample sample = Timer.start(meterRegistry);
+  private Mono<ConsultaResponse> consultarElementoLote(ConsultaRequest request,
+      Map<String, CiudadanoCacheado> aciertos, String requestId, long inicioLote) {
+    long startTime = System.currentTimeMillis();
 
-    return executeConsulta(request, requestId)
-        .doOnTerminate(() -> sample.stop(consultaTimer));
+    return Mono.defer(() -> {
+      validateRequest(request);
+      String cedula = ConsultaCache.claveDe(request);
+      auditarConsulta(cedula);
+      if (cacheNegativo.contiene(cedula)) {
+        return Mono.just(respuestaNoEncontrado(request, System.currentTimeMillis() - startTime));
+      }
+
+      CiudadanoCacheado cacheado = aciertos.get(cedula);
+      if (cacheado != null && !consultaCache.estaVencido(cacheado)) {
+        return Mono.just(proyectar(cacheado.individuo(), request, System.currentTimeMillis() - inicioLote));
+      }
+
+      Mono<Individuo> individuo = consultaCache.tieneFrescoLocal(cedula)
+          ? consultaCache.obtener(cedula)
+              .map(CiudadanoCacheado::individuo)
+              .switchIfEmpty(Mono.defer(() -> consultarIndividuo(cedula, requestId)))
+          : consultarIndividuo(cedula, requestId);
+
+      return individuo
+          .map(encontrado -> processIndividuoResponse(encontrado, request, startTime))
+          .onErrorResume(error -> respaldoOError(error, request, cacheado, requestId, startTime));
+    })
+        .doOnSuccess(response -> logConsultaResult(response, requestId))
+        .onErrorResume(error -> Mono.just(respuestaDeError(error, request, startTime, requestId)));
   }
 
   /**
-   * Ejecuta la consulta principal.
+   * Convierte un error de una consulta individual en su respuesta de error,
+   * para lotes y flujos donde un elemento no debe interrumpir al resto.
    */
-  private Mono<ConsultaResponse> executeConsulta(ConsultaRequest request, String requestId) {
-    logger.debug("🔄 [{}] Ejecutando consulta JCE", requestId);
+  private ConsultaResponse respuestaDeError(Throwable error, ConsultaRequest request, long startTime,
+      String requestId) {
+    long tiempoRespuesta = System.currentTimeMillis() - startTime;
+    if (error instanceof ApiException apiException) {
+      return ConsultaResponse.error(
+          apiException.getMessage(),
+          apiException.getCodigoError(),
+          request.getCedulaFormateada(),
+          tiempoRespuesta);
+    }
+    consultasErrorCounter.increment();
+    logger.error("❌ [{}] Error en consulta del lote: {}", requestId, error.getMessage());
+    return ConsultaResponse.error(
+        "Error procesando la consulta en el portal JCE",
+        "ERROR_PROCESAMIENTO",
+        request.getCedulaFormateada(),
+        tiempoRespuesta);
+  }
 
+  /**
+   * Reconstruye los resultados del lote en el orden de la petición.
+   */
+  private ConsultaLoteResponse armarRespuestaLote(List<String> claves, Map<String, ConsultaResponse> resultados,
+      int unicas, int desdeCache, long startTime) {
+    List<ConsultaResponse> ordenados = new ArrayList<>(claves.size());
+    int exitosas = 0;
+    for (String clave : claves) {
+      ConsultaResponse respuesta = resultados.get(clave);
+      ordenados.add(respuesta);
+      if (respuesta != null && Boolean.TRUE.equals(respuesta.exitosa())) {
+        exitosas++;
+      }
+    }
+
+    return new ConsultaLoteResponse(
+        claves.size(),
+        unicas,
+        desdeCache,
+        exitosas,
+        System.currentTimeMillis() - startTime,
+        ordenados);
+  }
+
+  /**
+   * Consulta el registro completo en el portal con medición de tiempo y lo
+   * cachea: en el caché principal si el ciudadano existe o en el negativo
+   * si no.
+   * 
+   * Las llamadas concurrentes para la misma cédula (consultas individuales,
+   * elementos de un lote y revalidaciones) comparten una única consulta, y
+   * el caché se llena dentro de ella: una vez por respuesta del portal y
+   * antes de entregarla, no una vez por cada llamada que la esperaba. La
+   * entrada se elimina del registro al terminar, antes de emitir el
+   * resultado, de modo que la siguiente llamada vuelve a consultar.
+   */
+  private Mono<Individuo> consultarIndividuo(String cedulaLimpia, String requestId) {
+    return Mono.defer(() -> consultasEnCurso.computeIfAbsent(cedulaLimpia, cedula -> {
+      logger.debug("🔄 [{}] Ejecutando consulta JCE", requestId);
+
+      // Solo se elimina esta misma consulta, nunca una más reciente de la cédula
+      AtomicReference<Mono<Individuo>> propia = new AtomicReference<>();
+      Runnable quitar = () -> consultasEnCurso.remove(cedula, propia.get());
+      Mono<Individuo> nueva = Mono.defer(() -> {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return jceHttpClient.consultarCiudadano(cedula)
+            .doOnTerminate(() -> sample.stop(consultaTimer));
+      })
+          .doOnNext(individuo -> {
+            if (individuo.esConsultaExitosa()) {
+              cacheNegativo.invalidar(cedula);
+              consultaCache.guardar(cedula, individuo);
+            } else {
+              consultaCache.invalidar(cedula);
+              cacheNegativo.guardar(cedula);
+            }
+          })
+          .doOnTerminate(quitar)
+          .doOnCancel(quitar)
+          .cache();
+      propia.set(nueva);
+      return nueva;
+    }));
+  }
+
+  /**
+   * Ejecuta la consulta principal.
+   * 
+   * @param respaldo registro vencido a servir si el portal falla, o null
+   */
+  private Mono<ConsultaResponse> executeConsulta(ConsultaRequest request, CiudadanoCacheado respaldo,
+      String requestId) {
     long startTime = System.currentTimeMillis();
-    String cedulaLimpia = request.getCedulaLimpia();
 
-    return jceHttpClient.consultarCiudadano(cedulaLimpia)
+    return consultarIndividuo(request.getCedulaLimpia(), requestId)
         .map(individuo -> processIndividuoResponse(individuo, request, startTime))
-        .onErrorResume(error -> handleConsultaError(error, request, startTime));
+        .onErrorResume(error -> respaldoOError(error, request, respaldo, requestId, startTime));
+  }
+
+  /**
+   * Ante un error del portal sirve el registro de respaldo marcado como
+   * datos obsoletos (stale-if-error); sin respaldo, o si el respaldo pasó
+   * {@code max-stale-minutes}, maneja el error.
+   */
+  private Mono<ConsultaResponse> respaldoOError(Throwable error, ConsultaRequest request,
+      CiudadanoCacheado respaldo, String requestId, long startTime) {
+    if (respaldo == null || !consultaCache.puedeServirseObsoleto(respaldo)) {
+      return handleConsultaError(error, request, startTime);
+    }
+
+    datosObsoletosCounter.increment();
+    logger.warn("🕰️ [{}] Portal JCE no disponible ({}); sirviendo datos en caché de hace {} min",
+        requestId, error.getMessage(), respaldo.edadMillis(System.currentTimeMillis()) / 60_000);
+
+    return Mono.just(proyectar(respaldo.individuo(), request, System.currentTimeMillis() - startTime)
+        .comoDatosObsoletos());
+  }
+
+  /**
+   * Refresca desde el portal un registro que pasó el TTL blando. Mientras
+   * haya una revalidación en curso para la misma cédula las demás
+   * solicitudes se ignoran.
+   */
+  private void revalidarEnSegundoPlano(String cedulaLimpia) {
+    if (!revalidacionesEnCurso.add(cedulaLimpia)) {
+      return;
+    }
+
+    String requestId = generateRequestId();
+    logger.debug("🔄 [{}] Revalidando en segundo plano la cédula {}", requestId, cedulaLimpia);
+
+    consultarIndividuo(cedulaLimpia, requestId)
+        .doFinally(signal -> revalidacionesEnCurso.remove(cedulaLimpia))
+        .subscribe(
+            individuo -> logger.debug("✅ [{}] Cédula {} revalidada", requestId, cedulaLimpia),
+            error -> logger.warn("⚠️ [{}] Falló la revalidación de la cédula {}: {}",
+                requestId, cedulaLimpia, error.getMessage()));
   }
 
   /**
@@ -225,23 +596,21 @@ public class JceConsultaService {
 
     if (individuo == null || !individuo.esConsultaExitosa()) {
       ciudadanosNoEncontradosCounter.increment();
-      return ConsultaResponse.error(
-          "No se encontraron datos para la cédula consultada",
-          "CIUDADANO_NO_ENCONTRADO",
-          request.getCedulaFormateada(),
-          tiempoRespuesta);
+      return respuestaNoEncontrado(request, tiempoRespuesta);
     }
 
-    // Convertir a DTO con filtrado por formato
-    DatosCiudadano datos = convertirADatosCiudadano(individuo, request.getFormato());
-    InformacionFoto foto = request.getIncluirFoto() ? procesarInformacionFoto(individuo) : null;
-
     consultasExitosasCounter.increment();
+    return proyectar(individuo, request, tiempoRespuesta);
+  }
 
-    return ConsultaResponse.exitosa(
+  /**
+   * Crea la respuesta para una cédula sin datos en el portal.
+   */
+  private ConsultaResponse respuestaNoEncontrado(ConsultaRequest request, long tiempoRespuesta) {
+    return ConsultaResponse.error(
+        "No se encontraron datos para la cédula consultada",
+        "CIUDADANO_NO_ENCONTRADO",
         request.getCedulaFormateada(),
-        datos,
-        foto,
         tiempoRespuesta);
   }
 
@@ -283,6 +652,20 @@ public class JceConsultaService {
   // MÉTODOS PRIVADOS - TRANSFORMACIÓN
   // ========================================
 
+  /**
+   * Proyecta el registro completo del ciudadano al formato y foto pedidos.
+   */
+  private ConsultaResponse proyectar(Individuo individuo, ConsultaRequest request, long tiempoRespuesta) {
+    DatosCiudadano datos = convertirADatosCiudadano(individuo, request.getFormato());
+    InformacionFoto foto = request.getIncluirFoto() ? procesarInformacionFoto(individuo) : null;
+
+    return ConsultaResponse.exitosa(
+        request.getCedulaFormateada(),
+        datos,
+        foto,
+        tiempoRespuesta);
+  }
+
   /**
    * Convierte Individuo a DatosCiudadano con filtrado por formato.
    */
@@ -462,6 +845,13 @@ public class JceConsultaService {
     return campo.trim();
   }
 
+  /**
+   * Registra en el log de auditoría una cédula pedida por un cliente.
+   */
+  private void auditarConsulta(String cedulaLimpia) {
+    auditoria.info("{}{}", EVENTO_CONSULTA_CLIENTE, cedulaLimpia);
+  }
+
   /**
    * Registra el resultado de una consulta.
    */
@@ -0,0 +1,130 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+import com.arojas.jce_consulta.cache.CiudadanoCacheado;
+import com.arojas.jce_consulta.cache.CodecCiudadano;
+import com.arojas.jce_consulta.model.Individuo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Benchmark JMH de la serialización de registros de ciudadanos para Redis.
+ *
+ * Compara el serializador JSON de Jackson usado antes con
+ * {@link CodecCiudadano}, sin y con compresión. El tamaño de cada forma se
+ * imprime al preparar el estado.
+ *
+ * Ejecución: {@code mvn -Pbenchmark test-compile exec:exec@benchmarks}
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "--enable-preview")
+public class CodecCiudadanoBenchmark {
+
+  private CiudadanoCacheado registro;
+
+  private Jackson2JsonRedisSerializer<CiudadanoCacheado> json;
+  private CodecCiudadano binario;
+  private CodecCiudadano binarioComprimido;
+
+  private byte[] bytesJson;
+  private byte[] bytesBinario;
+  private byte[] bytesComprimido;
+
+  @Setup
+  public void setup() {
+    Individuo individuo = new Individuo();
+    individuo.setNombres("JUAN CARLOS");
+    individuo.setApellido1("RODRIGUEZ");
+    individuo.setApellido2("MARTINEZ");
+    individuo.setFechaNacimiento("1985-03-15");
+    individuo.setLugarNacimiento("SANTO DOMINGO");
+    individuo.setFechaExpiracion("2029-03-15");
+    individuo.setSexo("M");
+    individuo.setEstadoCivil("S");
+    individuo.setEdad("39");
+    individuo.setCodigoNacionalidad("1");
+    individuo.setDescripcionNacionalidad("DOMINICANA");
+    individuo.setMunicipioCedula("001");
+    individuo.setSecuenciaCedula("1234567");
+    individuo.setOcupacion("INGENIERO");
+    individuo.setConyugue("MARIA FERNANDEZ");
+    individuo.setCedulaConyugue("00176543219");
+    individuo.setPadre("CARLOS RODRIGUEZ");
+    individuo.setMadre("ANA MARTINEZ");
+    individuo.setCedulaVieja("0010987654");
+    individuo.setPasaporte("A12345678");
+    individuo.setCategoria("1");
+    individuo.setDescripcionCategoria("CEDULA PRIMERA VEZ");
+    individuo.setEstatus("TERMINADO");
+    individuo.setCodigoCausa("");
+    individuo.setDescripcionCausaInhabilidad("");
+    individuo.setDescripcionTipoCausa("");
+    individuo.setMessage("OK");
+    individuo.setSuccess("true");
+    registro = new CiudadanoCacheado(individuo, System.currentTimeMillis());
+
+    json = new Jackson2JsonRedisSerializer<>(new ObjectMapper(), CiudadanoCacheado.class);
+    binario = new CodecCiudadano(false, 0);
+    binarioComprimido = new CodecCiudadano(true, 0);
+
+    bytesJson = json.serialize(registro);
+    bytesBinario = binario.serialize(registro);
+    bytesComprimido = binarioComprimido.serialize(registro);
+
+    System.out.printf("%nTamaños - JSON: %d bytes, binario: %d bytes, binario comprimido: %d bytes%n",
+        bytesJson.length, bytesBinario.length, bytesComprimido.length);
+  }
+
+  @Benchmark
+  public byte[] serializarJson() {
+    return json.serialize(registro);
+  }
+
+  @Benchmark
+  public byte[] serializarBinario() {
+    return binario.serialize(registro);
+  }
+
+  @Benchmark
+  public byte[] serializarBinarioComprimido() {
+    return binarioComprimido.serialize(registro);
+  }
+
+  @Benchmark
+  public CiudadanoCacheado deserializarJson() {
+    return json.deserialize(bytesJson);
+  }
+
+  @Benchmark
+  public CiudadanoCacheado deserializarBinario() {
+    return binario.deserialize(bytesBinario);
+  }
+
+  @Benchmark
+  public CiudadanoCacheado deserializarBinarioComprimido() {
+    return binarioComprimido.deserialize(bytesComprimido);
+  }
+}
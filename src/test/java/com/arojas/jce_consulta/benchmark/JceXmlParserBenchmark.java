@@ -0,0 +1,127 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package com.arojas.jce_consulta.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arojas.jce_consulta.client.JceXmlParser;
+import com.arojas.jce_consulta.model.Individuo;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+
+/**
+ * Benchmark JMH del parseo de respuestas XML del portal JCE.
+ *
+ * Compara la ruta anterior (agregar el cuerpo en un String, limpiarlo con
+ * tres expresiones regulares y deserializar con {@link XmlMapper}) contra el
+ * parser incremental {@link JceXmlParser}, alimentado de una vez o en
+ * fragmentos del tamaño típico de un buffer de red.
+ *
+ * Ejecución: {@code mvn -Pbenchmark test-compile exec:exec@benchmarks}
+ *
+ * @author A. Rojas
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "--enable-preview")
+public class JceXmlParserBenchmark {
+
+  private static final String RESPUESTA_JCE = """
+      \uFEFF<?xml version="1.0" encoding="UTF-8"?>
+      <root>
+        <nombres>JUAN CARLOS</nombres>
+        <apellido1>RODRIGUEZ</apellido1>
+        <apellido2>MARTINEZ</apellido2>
+        <fecha_nac>1985-03-15</fecha_nac>
+        <lugar_nac>SANTO DOMINGO</lugar_nac>
+        <fecha_expiracion>2029-03-15</fecha_expiracion>
+        <sexo>M</sexo>
+        <est_civil>S</est_civil>
+        <edad>39</edad>
+        <cod_nacion>1</cod_nacion>
+        <desc_nacionalidad>DOMINICANA</desc_nacionalidad>
+        <mun_ced>001</mun_ced>
+        <seq_ced>1234567</seq_ced>
+        <ocupacion>INGENIERO & ARQUITECTO</ocupacion>
+        <conyugue>MARIA FERNANDEZ</conyugue>
+        <cedula_conyugue>00176543219</cedula_conyugue>
+        <padre>CARLOS RODRIGUEZ</padre>
+        <madre>ANA MARTINEZ</madre>
+        <cedula_vieja>0010987654</cedula_vieja>
+        <pasaporte>A12345678</pasaporte>
+        <categoria>1</categoria>
+        <desc_categoria>CEDULA PRIMERA VEZ</desc_categoria>
+        <estatus>TERMINADO</estatus>
+        <cod_causa></cod_causa>
+        <desc_causa_inhabilidad></desc_causa_inhabilidad>
+        <desc_tipo_causa></desc_tipo_causa>
+        <message>OK</message>
+        <success>true</success>
+      </root>
+      """;
+
+  @Param({ "512", "8192" })
+  private int tamanoFragmento;
+
+  private byte[] cuerpo;
+  private XmlMapper xmlMapper;
+
+  @Setup
+  public void setup() {
+    cuerpo = RESPUESTA_JCE.getBytes(StandardCharsets.UTF_8);
+    xmlMapper = new XmlMapper();
+  }
+
+  /**
+   * Ruta anterior: String completo + limpieza con regex + XmlMapper.
+   */
+  @Benchmark
+  public Individuo stringRegexXmlMapper() throws Exception {
+    String contenido = new String(cuerpo, StandardCharsets.UTF_8);
+    String limpio = contenido.trim()
+        .replaceFirst("^\\uFEFF", "")
+        .replaceAll("[\\x00-\\x08\\x0B\\x0C\\x0E-\\x1F\\x7F]", "")
+        .replaceAll("&(?!(?:amp|lt|gt|quot|apos);)", "&amp;");
+    return xmlMapper.readValue(limpio, Individuo.class);
+  }
+
+  /**
+   * Parser incremental alimentado con el cuerpo completo.
+   */
+  @Benchmark
+  public Individuo parserIncrementalCompleto() {
+    JceXmlParser parser = new JceXmlParser();
+    parser.alimentar(cuerpo, 0, cuerpo.length);
+    return parser.finalizar();
+  }
+
+  /**
+   * Parser incremental alimentado en fragmentos, como llegan desde Netty.
+   */
+  @Benchmark
+  public Individuo parserIncrementalFragmentado() {
+    JceXmlParser parser = new JceXmlParser();
+    for (int offset = 0; offset < cuerpo.length; offset += tamanoFragmento) {
+      parser.alimentar(cuerpo, offset, Math.min(tamanoFragmento, cuerpo.length - offset));
+    }
+    return parser.finalizar();
+  }
+}
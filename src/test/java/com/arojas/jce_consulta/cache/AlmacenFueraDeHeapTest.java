@@ -0,0 +1,79 @@
+package com.arojas.jce_consulta.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class AlmacenFueraDeHeapTest {
+
+  private static byte[] valor(long clave, int longitud) {
+    byte[] valor = new byte[longitud];
+    for (int i = 0; i < longitud; i++) {
+      valor[i] = (byte) (clave + i);
+    }
+    return valor;
+  }
+
+  @Test
+  void guardaReemplazaYEliminaPorClave() {
+    AlmacenFueraDeHeap almacen = new AlmacenFueraDeHeap(64 * 1024, 4);
+
+    assertThat(almacen.guardar(40212345678L, valor(1, 100))).isTrue();
+    assertThat(almacen.guardar(40212345678L, valor(2, 50))).isTrue();
+
+    assertThat(almacen.obtener(40212345678L)).isEqualTo(valor(2, 50));
+    assertThat(almacen.getEntradas()).isEqualTo(1);
+    assertThat(almacen.getBytesUsados()).isEqualTo(12 + 50);
+
+    almacen.eliminar(40212345678L);
+    assertThat(almacen.obtener(40212345678L)).isNull();
+    assertThat(almacen.getEntradas()).isZero();
+    assertThat(almacen.guardar(1L, new byte[64 * 1024])).isFalse();
+  }
+
+  @Test
+  void laExpulsionCLOCKConservaLasEntradasLeidas() {
+    AlmacenFueraDeHeap almacen = new AlmacenFueraDeHeap(16 * 1024, 1);
+
+    almacen.guardar(1L, valor(1, 200));
+    for (long clave = 2; clave <= 1000; clave++) {
+      almacen.obtener(1L);
+      almacen.guardar(clave, valor(clave, 200));
+    }
+
+    assertThat(almacen.obtener(1L)).isEqualTo(valor(1, 200));
+    assertThat(almacen.obtener(2L)).isNull();
+    assertThat(almacen.getExpulsiones()).isPositive();
+    assertThat(almacen.getBytesUsados()).isLessThanOrEqualTo(almacen.getCapacidadBytes());
+  }
+
+  @Test
+  void coincideConUnMapaBajoOperacionesAleatorias() {
+    AlmacenFueraDeHeap almacen = new AlmacenFueraDeHeap(8 * 1024 * 1024, 8);
+    Map<Long, byte[]> esperado = new HashMap<>();
+    Random random = new Random(42);
+
+    for (int i = 0; i < 200_000; i++) {
+      long clave = 1 + random.nextInt(20_000);
+      if (random.nextInt(4) == 0) {
+        almacen.eliminar(clave);
+        esperado.remove(clave);
+      } else {
+        byte[] valor = valor(clave + i, 16 + random.nextInt(300));
+        almacen.guardar(clave, valor);
+        esperado.put(clave, valor);
+      }
+    }
+
+    // El presupuesto alcanza para todas las claves: no debe haber expulsiones
+    assertThat(almacen.getExpulsiones()).isZero();
+    assertThat(almacen.getEntradas()).isEqualTo(esperado.size());
+    for (long clave = 1; clave <= 20_000; clave++) {
+      assertThat(almacen.obtener(clave)).isEqualTo(esperado.get(clave));
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.arojas.jce_consulta.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.arojas.jce_consulta.config.AppProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CacheNegativoTest {
+
+  private final AtomicLong reloj = new AtomicLong();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private CacheNegativo crear(int ttlSegundos) {
+    AppProperties.Cache config = new AppProperties.Cache();
+    config.setNegativeTtlSeconds(ttlSegundos);
+    config.setNegativeMaxSize(1_000);
+    return new CacheNegativo(config, meterRegistry, reloj::get);
+  }
+
+  @Test
+  void recuerdaLasCedulasNoEncontradasHastaElTtl() {
+    CacheNegativo cache = crear(60);
+    cache.guardar("00112345673");
+
+    assertThat(cache.contiene("00112345673")).isTrue();
+    assertThat(cache.contiene("40212345678")).isFalse();
+
+    reloj.addAndGet(Duration.ofSeconds(61).toNanos());
+    assertThat(cache.contiene("00112345673")).isFalse();
+    assertThat(meterRegistry.get("jce.cache.negativo.aciertos").counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void conservaLasEntradasVivasAlRotarLosFiltros() {
+    CacheNegativo cache = crear(60);
+
+    reloj.addAndGet(Duration.ofSeconds(50).toNanos());
+    cache.guardar("00112345673");
+
+    // Rota el filtro activo; la entrada sigue viva 40 segundos más
+    reloj.addAndGet(Duration.ofSeconds(20).toNanos());
+    assertThat(cache.contiene("00112345673")).isTrue();
+  }
+
+  @Test
+  void seInvalidaCuandoElPortalYaDevuelveDatos() {
+    CacheNegativo cache = crear(60);
+    cache.guardar("00112345673");
+
+    cache.invalidar("00112345673");
+
+    assertThat(cache.contiene("00112345673")).isFalse();
+  }
+}
@@ -0,0 +1,109 @@
+package com.arojas.jce_consulta.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.arojas.jce_consulta.model.Individuo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class CodecCiudadanoTest {
+
+  static Individuo individuoDePrueba() {
+    Individuo individuo = new Individuo();
+    individuo.setNombres("JUAN CARLOS");
+    individuo.setApellido1("RODRÍGUEZ");
+    individuo.setApellido2("MARTÍNEZ");
+    individuo.setFechaNacimiento("1985-03-15");
+    individuo.setLugarNacimiento("SANTO DOMINGO");
+    individuo.setFechaExpiracion("2029-03-15");
+    individuo.setSexo("M");
+    individuo.setEstadoCivil("S");
+    individuo.setEdad("39");
+    individuo.setCodigoNacionalidad("1");
+    individuo.setDescripcionNacionalidad("DOMINICANA");
+    individuo.setMunicipioCedula("001");
+    individuo.setSecuenciaCedula("1234567");
+    individuo.setOcupacion("INGENIERO & ARQUITECTO");
+    individuo.setPadre("CARLOS RODRÍGUEZ");
+    individuo.setMadre("ANA MARTÍNEZ");
+    individuo.setCategoria("1");
+    individuo.setDescripcionCategoria("CEDULA PRIMERA VEZ");
+    individuo.setEstatus("TERMINADO");
+    individuo.setCodigoCausa("");
+    individuo.setSuccess("true");
+    individuo.setMessage("OK");
+    return individuo;
+  }
+
+  private static void assertMismosCampos(Individuo esperado, Individuo obtenido) {
+    assertThat(obtenido).usingRecursiveComparison().isEqualTo(esperado);
+  }
+
+  @Test
+  void conservaTodosLosCamposIncluidosNulosYVacios() {
+    CodecCiudadano codec = new CodecCiudadano(false, 0);
+    Individuo individuo = individuoDePrueba();
+    individuo.setEstadoCivil("X"); // fuera del diccionario
+
+    CiudadanoCacheado leido = codec.deserialize(codec.serialize(new CiudadanoCacheado(individuo, 1_735_689_600_123L)));
+
+    assertThat(leido.guardadoEn()).isEqualTo(1_735_689_600_123L);
+    assertMismosCampos(individuo, leido.individuo());
+    assertThat(leido.individuo().getConyugue()).isNull();
+    assertThat(leido.individuo().getCodigoCausa()).isEmpty();
+  }
+
+  @Test
+  void comprimeYDescomprime() {
+    CodecCiudadano codec = new CodecCiudadano(true, 0);
+    Individuo individuo = individuoDePrueba();
+    individuo.setFotoUrl("https://dataportal.jce.gob.do/photos/001/1234567.jpg?token=" + "ab".repeat(100));
+
+    byte[] bytes = codec.serialize(new CiudadanoCacheado(individuo, 42L));
+
+    assertThat(bytes[1] & 1).isEqualTo(1);
+    assertMismosCampos(individuo, codec.deserialize(bytes).individuo());
+  }
+
+  @Test
+  void leeLaMarcaDeGuardadoSinDecodificarElRegistro() {
+    CodecCiudadano codec = new CodecCiudadano(true, 0);
+    Individuo individuo = individuoDePrueba();
+    individuo.setFotoUrl("https://dataportal.jce.gob.do/photos/001/1234567.jpg?token=" + "ab".repeat(100));
+
+    byte[] comprimido = codec.serialize(new CiudadanoCacheado(individuo, 1_735_689_600_123L));
+    byte[] plano = new CodecCiudadano(false, 0).serialize(new CiudadanoCacheado(individuo, 7L));
+
+    assertThat(comprimido[1] & 1).isEqualTo(1);
+    assertThat(codec.leerGuardadoEn(comprimido)).isEqualTo(1_735_689_600_123L);
+    assertThat(codec.leerGuardadoEn(plano)).isEqualTo(7L);
+    assertThatThrownBy(() -> codec.leerGuardadoEn(new byte[] { 9, 0, 1 }))
+        .isInstanceOf(SerializationException.class);
+  }
+
+  @Test
+  void ocupaBastanteMenosQueJson() throws Exception {
+    CiudadanoCacheado registro = new CiudadanoCacheado(individuoDePrueba(), System.currentTimeMillis());
+
+    int binario = new CodecCiudadano(false, 0).serialize(registro).length;
+    int json = new ObjectMapper().writeValueAsBytes(registro).length;
+
+    assertThat(binario * 3).isLessThan(json);
+  }
+
+  @Test
+  void rechazaVersionesDesconocidas() {
+    CodecCiudadano codec = new CodecCiudadano(false, 0);
+
+    assertThatThrownBy(() -> codec.deserialize("{\"individuo\":{}}".getBytes(StandardCharsets.UTF_8)))
+        .isInstanceOf(SerializationException.class);
+    byte[] truncado = Arrays.copyOf(codec.serialize(new CiudadanoCacheado(individuoDePrueba(), 1L)), 10);
+    assertThatThrownBy(() -> codec.deserialize(truncado)).isInstanceOf(SerializationException.class);
+  }
+}
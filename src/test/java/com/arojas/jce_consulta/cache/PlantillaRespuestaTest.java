@@ -0,0 +1,92 @@
+package com.arojas.jce_consulta.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.arojas.jce_consulta.DTOs.ConsultaResponse;
+import com.arojas.jce_consulta.DTOs.ConsultaResponse.InformacionFoto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+class PlantillaRespuestaTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+  @Test
+  void generaElMismoJsonQueJackson() throws Exception {
+    ConsultaResponse respuesta = ConsultaResponse.exitosa("001-1234567-3", null,
+        InformacionFoto.disponible("https://dataportal.jce.gob.do/photos/001/1234567.jpg"), 1250L);
+    PlantillaRespuesta plantilla = PlantillaRespuesta.de(respuesta, objectMapper);
+    assertThat(plantilla).isNotNull();
+
+    LocalDateTime ahora = LocalDateTime.of(2025, 3, 7, 9, 5, 42);
+    for (long tiempo : new long[] { 0, 7, 1250, 123_456_789 }) {
+      ConsultaResponse esperada = new ConsultaResponse(respuesta.exitosa(), respuesta.mensaje(), respuesta.codigo(),
+          ahora, tiempo, respuesta.cedulaConsultada(), respuesta.datos(), respuesta.foto(), null);
+
+      assertThat(new String(plantilla.renderizar(ahora, tiempo), StandardCharsets.UTF_8))
+          .isEqualTo(objectMapper.writeValueAsString(esperada));
+    }
+  }
+
+  @Test
+  void conservaCaracteresNoAscii() throws Exception {
+    ConsultaResponse respuesta = ConsultaResponse.error("Ciudadano no encontrado en la Junta", "CÓDIGO_Ñ",
+        "001-1234567-3", 5L);
+    PlantillaRespuesta plantilla = PlantillaRespuesta.de(respuesta, objectMapper);
+
+    LocalDateTime ahora = LocalDateTime.of(1999, 12, 31, 23, 59, 59);
+    ConsultaResponse esperada = new ConsultaResponse(false, respuesta.mensaje(), respuesta.codigo(), ahora, 42L,
+        respuesta.cedulaConsultada(), null, null, null);
+
+    assertThat(plantilla.renderizar(ahora, 42)).isEqualTo(objectMapper.writeValueAsBytes(esperada));
+  }
+
+  @Test
+  void laFormaGzipSeDescomprimeAlMismoJson() throws Exception {
+    ConsultaResponse respuesta = ConsultaResponse.exitosa("001-1234567-3", null,
+        InformacionFoto.disponible("https://dataportal.jce.gob.do/photos/001/1234567.jpg"), 1250L);
+    PlantillaRespuesta plantilla = PlantillaRespuesta.de(respuesta, objectMapper);
+
+    LocalDateTime ahora = LocalDateTime.of(2025, 3, 7, 9, 5, 42);
+    for (long tiempo : new long[] { 0, 7, 1250, 123_456_789 }) {
+      // GZIPInputStream verifica el CRC32 y la longitud del trailer
+      assertThat(descomprimir(plantilla.renderizarGzip(ahora, tiempo)))
+          .isEqualTo(plantilla.renderizar(ahora, tiempo));
+    }
+  }
+
+  @Test
+  void elEtagDependeSoloDeLosDatos() throws Exception {
+    ConsultaResponse respuesta = ConsultaResponse.exitosa("001-1234567-3", null, null, 1250L);
+    PlantillaRespuesta plantilla = PlantillaRespuesta.de(respuesta, objectMapper);
+    PlantillaRespuesta otraVez = PlantillaRespuesta.de(
+        ConsultaResponse.exitosa("001-1234567-3", null, null, 7L), objectMapper);
+    PlantillaRespuesta otraCedula = PlantillaRespuesta.de(
+        ConsultaResponse.exitosa("001-1234567-4", null, null, 1250L), objectMapper);
+
+    String etag = plantilla.getEtag(false);
+    assertThat(etag).startsWith("\"").endsWith("\"").isEqualTo(otraVez.getEtag(false));
+    assertThat(plantilla.getEtag(true)).isNotEqualTo(etag);
+    assertThat(otraCedula.getEtag(false)).isNotEqualTo(etag);
+
+    assertThat(plantilla.coincide("\"otro\", W/" + etag)).isTrue();
+    assertThat(plantilla.coincide(plantilla.getEtag(true))).isTrue();
+    assertThat(plantilla.coincide("*")).isTrue();
+    assertThat(plantilla.coincide(otraCedula.getEtag(false))).isFalse();
+    assertThat(plantilla.coincide(null)).isFalse();
+  }
+
+  private static byte[] descomprimir(byte[] gzip) throws IOException {
+    try (GZIPInputStream entrada = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+      return entrada.readAllBytes();
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package com.arojas.jce_consulta.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SnapshotCiudadanosTest {
+
+  @TempDir
+  Path directorio;
+
+  private static byte[] registro(long cedula) {
+    return ("registro-" + cedula).getBytes();
+  }
+
+  @Test
+  void escribeYEntregaCadaEntradaUnaSolaVez() throws IOException {
+    Path archivo = directorio.resolve("cache.snap");
+
+    long escritas = SnapshotCiudadanos.escribir(archivo, 1234L, visitante -> {
+      for (long cedula = 40200000001L; cedula <= 40200001000L; cedula++) {
+        visitante.visitar(cedula, registro(cedula));
+      }
+    });
+    SnapshotCiudadanos snapshot = SnapshotCiudadanos.abrir(archivo);
+
+    assertThat(escritas).isEqualTo(1000);
+    assertThat(snapshot.getEntradas()).isEqualTo(1000);
+    assertThat(snapshot.getCreadoEn()).isEqualTo(1234L);
+    assertThat(snapshot.getPendientes()).isEqualTo(1000);
+    assertThat(snapshot.tomar(40200000500L)).isEqualTo(registro(40200000500L));
+    assertThat(snapshot.tomar(40200000500L)).isNull();
+    assertThat(snapshot.tomar(40200009999L)).isNull();
+
+    snapshot.descartar(40200000001L);
+    snapshot.descartar(40200000001L);
+    assertThat(snapshot.getPendientes()).isEqualTo(998);
+    Map<Long, byte[]> pendientes = new HashMap<>();
+    snapshot.recorrerPendientes(pendientes::put);
+    assertThat(pendientes).hasSize(998).doesNotContainKeys(40200000001L, 40200000500L);
+    assertThat(pendientes.get(40200001000L)).isEqualTo(registro(40200001000L));
+  }
+
+  @Test
+  void ignoraLaColaTruncadaYLosRegistrosCorruptos() throws IOException {
+    Path archivo = directorio.resolve("cache.snap");
+    SnapshotCiudadanos.escribir(archivo, 1L, visitante -> {
+      visitante.visitar(1L, registro(1));
+      visitante.visitar(2L, registro(2));
+      visitante.visitar(3L, registro(3));
+    });
+
+    byte[] bytes = Files.readAllBytes(archivo);
+    // Último byte del registro de la cédula 1 alterado y cola cortada a media entrada
+    bytes[14 + 16 + registro(1).length - 1] ^= 1;
+    Files.write(archivo, Arrays.copyOf(bytes, bytes.length - 3));
+
+    SnapshotCiudadanos snapshot = SnapshotCiudadanos.abrir(archivo);
+
+    assertThat(snapshot.getEntradas()).isEqualTo(2);
+    assertThat(snapshot.tomar(1L)).isNull();
+    assertThat(snapshot.tomar(2L)).isEqualTo(registro(2));
+    assertThat(snapshot.tomar(3L)).isNull();
+    assertThat(SnapshotCiudadanos.abrir(directorio.resolve("no-existe.snap"))).isNull();
+  }
+}
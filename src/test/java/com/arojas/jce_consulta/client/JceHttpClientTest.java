@@ -0,0 +1,89 @@
+package com.arojas.jce_consulta.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.arojas.jce_consulta.config.AppProperties;
+import com.arojas.jce_consulta.model.Individuo;
+import com.arojas.jce_consulta.resilience.AdaptiveConcurrencyLimiter;
+import com.arojas.jce_consulta.resilience.HedgingPolicy;
+import com.arojas.jce_consulta.resilience.TokenRatioBudget;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+
+class JceHttpClientTest {
+
+  private static final String CEDULA = "00100000017";
+  private static final int CONCURRENTES = 32;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final AtomicInteger suscripcionesAlPortal = new AtomicInteger();
+
+  private JceHttpClient crearCliente() {
+    HedgingPolicy politicaCobertura = mock(HedgingPolicy.class);
+    // Respuesta lenta del portal para que todas las llamadas lleguen mientras está en curso
+    when(politicaCobertura.ejecutar(any())).thenAnswer(invocacion -> Mono.fromCallable(() -> {
+      suscripcionesAlPortal.incrementAndGet();
+      Individuo individuo = new Individuo();
+      individuo.setNombres("JUAN");
+      return individuo;
+    }).delayElement(Duration.ofMillis(200)));
+
+    return new JceHttpClient(
+        WebClient.builder(),
+        HttpClient.create(),
+        CircuitBreaker.ofDefaults("jce-test"),
+        mock(TokenRatioBudget.class),
+        mock(AdaptiveConcurrencyLimiter.class),
+        politicaCobertura,
+        new AppProperties(),
+        meterRegistry,
+        "https://dataportal.jce.gob.do",
+        "/RestApiV2/api/consulta",
+        "servicio",
+        25000);
+  }
+
+  @Test
+  void lasConsultasConcurrentesDeUnaCedulaCompartenUnaSolaPeticion() {
+    JceHttpClient cliente = crearCliente();
+
+    List<Individuo> resultados = Flux.range(0, CONCURRENTES)
+        .flatMap(i -> cliente.consultarCiudadano(CEDULA).subscribeOn(Schedulers.parallel()))
+        .collectList()
+        .block(Duration.ofSeconds(5));
+
+    assertThat(resultados).hasSize(CONCURRENTES);
+    assertThat(resultados).allSatisfy(individuo -> assertThat(individuo).isSameAs(resultados.get(0)));
+    assertThat(suscripcionesAlPortal).hasValue(1);
+    assertThat(meterRegistry.get("jce.upstream.consultas").tag("rol", "lider").counter().count())
+        .isEqualTo(1.0);
+    assertThat(meterRegistry.get("jce.upstream.consultas").tag("rol", "coalescida").counter().count())
+        .isEqualTo(CONCURRENTES - 1.0);
+    assertThat(meterRegistry.get("jce.upstream.en_curso").gauge().value()).isZero();
+  }
+
+  @Test
+  void unaConsultaTerminadaNoSeReutiliza() {
+    JceHttpClient cliente = crearCliente();
+
+    cliente.consultarCiudadano(CEDULA).block(Duration.ofSeconds(5));
+    cliente.consultarCiudadano(CEDULA).block(Duration.ofSeconds(5));
+
+    assertThat(suscripcionesAlPortal).hasValue(2);
+  }
+}
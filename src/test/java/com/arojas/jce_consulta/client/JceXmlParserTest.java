@@ -0,0 +1,88 @@
+package com.arojas.jce_consulta.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.arojas.jce_consulta.model.Individuo;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+
+class JceXmlParserTest {
+
+  private static final String RESPUESTA_JCE = "\r\n  \uFEFF<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<root>\n"
+      + "  <nombres>JUAN\u0001 CARLOS</nombres>\n"
+      + "  <apellido1>RODRÍGUEZ</apellido1>\n"
+      + "  <apellido2>MARTÍNEZ\u007F</apellido2>\n"
+      + "  <fecha_nac>1985-03-15</fecha_nac>\n"
+      + "  <lugar_nac>SANTO DOMINGO &amp; DISTRITO</lugar_nac>\n"
+      + "  <sexo>M</sexo>\n"
+      + "  <est_civil>S</est_civil>\n"
+      + "  <edad>39</edad>\n"
+      + "  <desc_nacionalidad>DOMINICANA</desc_nacionalidad>\n"
+      + "  <mun_ced>001</mun_ced>\n"
+      + "  <seq_ced>1234567</seq_ced>\n"
+      + "  <ocupacion>INGENIERO & ARQUITECTO</ocupacion>\n"
+      + "  <conyugue>MARIA &amX FERNANDEZ</conyugue>\n"
+      + "  <padre>CARLOS &lt;HIJO&gt; &quot;C&quot;</padre>\n"
+      + "  <madre>ANA &a</madre>\n"
+      + "  <pasaporte>A12345678&</pasaporte>\n"
+      + "  <categoria>1</categoria>\n"
+      + "  <estatus>TERMINADO</estatus>\n"
+      + "  <cod_causa></cod_causa>\n"
+      + "  <desc_causa_inhabilidad/>\n"
+      + "  <desc_tipo_causa>\u0008</desc_tipo_causa>\n"
+      + "  <message>OK</message>\n"
+      + "  <success>true</success>\n"
+      + "</root>\n";
+
+  /**
+   * Ruta anterior: String completo + limpieza con regex + XmlMapper.
+   */
+  private static Individuo parsearConXmlMapper(String contenido) throws Exception {
+    String limpio = contenido.trim()
+        .replaceFirst("^\\uFEFF", "")
+        .replaceAll("[\\x00-\\x08\\x0B\\x0C\\x0E-\\x1F\\x7F]", "")
+        .replaceAll("&(?!(?:amp|lt|gt|quot|apos);)", "&amp;");
+    return new XmlMapper().readValue(limpio, Individuo.class);
+  }
+
+  private static Individuo parsearEnFragmentos(byte[] cuerpo, int tamanoFragmento) {
+    JceXmlParser parser = new JceXmlParser();
+    for (int offset = 0; offset < cuerpo.length; offset += tamanoFragmento) {
+      parser.alimentar(cuerpo, offset, Math.min(tamanoFragmento, cuerpo.length - offset));
+    }
+    return parser.finalizar();
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 1, 2, 3, 5, 7, 64, Integer.MAX_VALUE })
+  void produceLosMismosCamposQueLaRutaXmlMapper(int tamanoFragmento) throws Exception {
+    byte[] cuerpo = RESPUESTA_JCE.getBytes(StandardCharsets.UTF_8);
+
+    Individuo esperado = parsearConXmlMapper(RESPUESTA_JCE);
+    Individuo obtenido = parsearEnFragmentos(cuerpo, tamanoFragmento);
+
+    assertThat(obtenido).usingRecursiveComparison().isEqualTo(esperado);
+    assertThat(obtenido.getNombres()).isEqualTo("JUAN CARLOS");
+    assertThat(obtenido.getOcupacion()).isEqualTo("INGENIERO & ARQUITECTO");
+    assertThat(obtenido.getConyugue()).isEqualTo("MARIA &amX FERNANDEZ");
+    assertThat(obtenido.getMadre()).isEqualTo("ANA &a");
+    assertThat(obtenido.getPasaporte()).isEqualTo("A12345678&");
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = { 1, 4, Integer.MAX_VALUE })
+  void escapaUnAmpersandSueltoPartidoEntreFragmentos(int tamanoFragmento) throws Exception {
+    String xml = "<root><ocupacion>A &am&amp;&lt&gt;B</ocupacion><message>&</message></root>";
+
+    Individuo obtenido = parsearEnFragmentos(xml.getBytes(StandardCharsets.UTF_8), tamanoFragmento);
+
+    assertThat(obtenido).usingRecursiveComparison().isEqualTo(parsearConXmlMapper(xml));
+    assertThat(obtenido.getOcupacion()).isEqualTo("A &am&&lt>B");
+    assertThat(obtenido.getMessage()).isEqualTo("&");
+  }
+}
@@ -0,0 +1,90 @@
+package com.arojas.jce_consulta.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.arojas.jce_consulta.DTOs.ConsultaLoteRequest;
+import com.arojas.jce_consulta.DTOs.ConsultaRequest;
+import com.arojas.jce_consulta.DTOs.ConsultaResponse;
+import com.arojas.jce_consulta.config.AppProperties;
+import com.arojas.jce_consulta.config.RateLimitConfig.BucketResolver;
+import com.arojas.jce_consulta.service.JceConsultaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.bucket4j.ConsumptionProbe;
+
+class JceConsultaControllerTest {
+
+  private static final String CLAVE_REGISTRADA = "clave-registrada";
+
+  private final BucketResolver bucketResolver = mock(BucketResolver.class);
+  private final JceConsultaController controlador = new JceConsultaController(mock(JceConsultaService.class),
+      bucketResolver, new ObjectMapper(), new AppProperties(), "X-API-Key", new String[] { CLAVE_REGISTRADA, " " });
+
+  /**
+   * Consulta con el bucket agotado y retorna la clave con la que se consumió.
+   */
+  private String claveUsada(String apiKey) {
+    when(bucketResolver.consumir(anyString(), anyLong()))
+        .thenReturn(ConsumptionProbe.rejected(0, 1_000_000_000L, 1_000_000_000L));
+    MockHttpServletRequest peticion = new MockHttpServletRequest();
+    peticion.setRemoteAddr("10.0.0.1");
+    if (apiKey != null) {
+      peticion.addHeader("X-API-Key", apiKey);
+    }
+
+    ResponseEntity<?> respuesta = controlador.consultarCiudadanoPorCedula("00100000017", "completo", false, peticion)
+        .block();
+
+    assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    ArgumentCaptor<String> clave = ArgumentCaptor.forClass(String.class);
+    verify(bucketResolver).consumir(clave.capture(), anyLong());
+    return clave.getValue();
+  }
+
+  @Test
+  void usaElBucketDeLaApiKeySoloSiEstaRegistrada() {
+    String clave = claveUsada(" " + CLAVE_REGISTRADA + " ");
+
+    assertThat(clave).startsWith("api:").doesNotContain(CLAVE_REGISTRADA);
+  }
+
+  @Test
+  void ignoraLasApiKeysDesconocidas() {
+    assertThat(claveUsada("clave-inventada")).isEqualTo("ip:10.0.0.1");
+  }
+
+  @Test
+  void usaLaIpSinApiKey() {
+    assertThat(claveUsada(null)).isEqualTo("ip:10.0.0.1");
+  }
+
+  @Test
+  void elLoteSinTokensRespondeConElMismoCuerpoDeError() {
+    when(bucketResolver.consumir(anyString(), anyLong()))
+        .thenReturn(ConsumptionProbe.rejected(0, 1_000_000_000L, 1_000_000_000L));
+    MockHttpServletRequest peticion = new MockHttpServletRequest();
+    peticion.setRemoteAddr("10.0.0.1");
+    ConsultaLoteRequest lote = new ConsultaLoteRequest(
+        List.of(new ConsultaRequest("00100000017"), new ConsultaRequest("40200000004")));
+
+    ResponseEntity<?> respuesta = controlador.consultarLote(lote, peticion).block();
+
+    assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    assertThat(respuesta.getHeaders().getFirst("Retry-After")).isEqualTo("1");
+    assertThat(respuesta.getBody()).isInstanceOfSatisfying(ConsultaResponse.class,
+        cuerpo -> assertThat(cuerpo.codigo()).isEqualTo("RATE_LIMIT_EXCEEDED"));
+  }
+}
@@ -0,0 +1,46 @@
+package com.arojas.jce_consulta.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import com.arojas.jce_consulta.exceptions.ApiException;
+
+class CedulaTest {
+
+  @Test
+  void analizaConYSinGuiones() {
+    Cedula conGuiones = Cedula.de("001-1234567-3");
+    Cedula sinGuiones = Cedula.de("00112345673");
+
+    assertThat(conGuiones).isEqualTo(sinGuiones);
+    assertThat(conGuiones.getValor()).isEqualTo(112345673L);
+    assertThat(conGuiones.getMunicipio()).isEqualTo(1);
+    assertThat(conGuiones.getSecuencia()).isEqualTo(1234567);
+    assertThat(conGuiones.getDigitoVerificador()).isEqualTo(3);
+    assertThat(conGuiones.limpia()).isEqualTo("00112345673");
+    assertThat(conGuiones.formateada()).isEqualTo("001-1234567-3");
+  }
+
+  @Test
+  void rechazaDigitoVerificadorIncorrecto() {
+    assertThat(Cedula.de("001-1234567-1")).isNull();
+    assertThat(Cedula.valorDe("001-1234567-1")).isEqualTo(112345671L);
+    assertThatThrownBy(() -> Cedula.parsear("001-1234567-1"))
+        .isInstanceOf(ApiException.class)
+        .extracting(e -> ((ApiException) e).getCodigoError())
+        .isEqualTo("CEDULA_INVALIDA");
+  }
+
+  @Test
+  void rechazaMunicipioCeroYFormatosInvalidos() {
+    String municipioCero = "000" + "0000001" + Cedula.calcularDigitoVerificador(1L);
+
+    assertThat(Cedula.de(municipioCero)).isNull();
+    assertThat(Cedula.valorDe("0011234567")).isEqualTo(Cedula.SIN_VALOR);
+    assertThat(Cedula.valorDe("001123456733")).isEqualTo(Cedula.SIN_VALOR);
+    assertThat(Cedula.valorDe("001A1234567")).isEqualTo(Cedula.SIN_VALOR);
+    assertThat(Cedula.valorDe(null)).isEqualTo(Cedula.SIN_VALOR);
+  }
+}
@@ -0,0 +1,45 @@
+package com.arojas.jce_consulta.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class DiccionarioValoresTest {
+
+  @Test
+  void devuelveSiempreLaMismaInstanciaYCodigosFijosEstables() {
+    String leido = new String("DOMINICANA");
+
+    assertThat(DiccionarioValores.DESCRIPCION_NACIONALIDAD.canonico(leido))
+        .isSameAs(DiccionarioValores.DESCRIPCION_NACIONALIDAD.valorFijo(0))
+        .isNotSameAs(leido);
+    assertThat(DiccionarioValores.SEXO.codigoFijo("F")).isEqualTo(1);
+    assertThat(DiccionarioValores.SEXO.canonico(null)).isNull();
+  }
+
+  @Test
+  void losValoresNuevosSeInternanSinCodigoFijo() {
+    String primero = DiccionarioValores.MUNICIPIO_CEDULA.canonico(new String("223"));
+    String segundo = DiccionarioValores.MUNICIPIO_CEDULA.canonico(new String("223"));
+
+    assertThat(segundo).isSameAs(primero);
+    assertThat(DiccionarioValores.MUNICIPIO_CEDULA.codigoFijo("223")).isEqualTo(-1);
+    assertThat(DiccionarioValores.MUNICIPIO_CEDULA.valor(DiccionarioValores.MUNICIPIO_CEDULA.codigo("223")))
+        .isSameAs(primero);
+  }
+
+  @Test
+  void traduceDescripcionesSinDistinguirMayusculas() {
+    Individuo individuo = new Individuo();
+    individuo.setEstadoCivil("se");
+    individuo.setEstatus("X");
+
+    assertThat(individuo.getEstadoCivilDescripcion()).isEqualTo("SEPARADO");
+    assertThat(individuo.getEstatusDescripcion()).isEqualTo("X");
+
+    individuo.setEstatus("TERMINADO");
+    assertThat(individuo.getEstatusDescripcion()).isEqualTo("TERMINADO");
+    individuo.setEstatus("r");
+    assertThat(individuo.getEstatusDescripcion()).isEqualTo("RECHAZADO");
+  }
+}
@@ -0,0 +1,93 @@
+package com.arojas.jce_consulta.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LeasedBucketTest {
+
+  private final AtomicLong reloj = new AtomicLong();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private static Bucket remoto(long capacidad) {
+    return Bucket.builder()
+        .addLimit(Bandwidth.classic(capacidad, Refill.greedy(capacidad, Duration.ofHours(1))))
+        .build();
+  }
+
+  private LeasedBucket arrendado(Bucket remoto, long minimo, long maximo) {
+    return new LeasedBucket("prueba", remoto, Runnable::run, minimo, maximo, Duration.ofSeconds(1),
+        meterRegistry, reloj::get);
+  }
+
+  @Test
+  void atiendeDesdeElLoteSinSuperarElLimiteRemoto() {
+    Bucket remoto = remoto(10);
+    LeasedBucket bucket = arrendado(remoto, 4, 4);
+
+    int aceptados = 0;
+    for (int i = 0; i < 20; i++) {
+      if (bucket.tryConsumeAndReturnRemaining(1).isConsumed()) {
+        aceptados++;
+      }
+    }
+
+    assertThat(aceptados).isEqualTo(10);
+    assertThat(remoto.getAvailableTokens()).isZero();
+    assertThat(meterRegistry.get("jce.ratelimit.consumos").tag("origen", "local").counter().count())
+        .isGreaterThanOrEqualTo(5.0);
+  }
+
+  @Test
+  void adaptaElTamanoDelLoteALaTasa() {
+    LeasedBucket bucket = arrendado(remoto(1_000), 1, 50);
+
+    // 30 peticiones en un segundo con horizonte de un segundo
+    for (int i = 0; i < 30; i++) {
+      reloj.addAndGet(Duration.ofMillis(33).toNanos());
+      bucket.tryConsumeAndReturnRemaining(1);
+    }
+
+    assertThat(bucket.getTamanoLease()).isGreaterThan(1).isLessThanOrEqualTo(50);
+  }
+
+  @Test
+  void losConsumosRechazadosNoAgrandanElLote() {
+    Bucket remoto = remoto(1);
+    LeasedBucket bucket = arrendado(remoto, 1, 50);
+    assertThat(bucket.tryConsumeAndReturnRemaining(1).isConsumed()).isTrue();
+
+    // 100 intentos rechazados en un segundo
+    for (int i = 0; i < 100; i++) {
+      reloj.addAndGet(Duration.ofMillis(10).toNanos());
+      assertThat(bucket.tryConsumeAndReturnRemaining(1).isConsumed()).isFalse();
+    }
+
+    remoto.addTokens(1);
+    assertThat(bucket.tryConsumeAndReturnRemaining(1).isConsumed()).isTrue();
+    // Dos consumos aceptados en un segundo con horizonte de un segundo
+    assertThat(bucket.getTamanoLease()).isEqualTo(2);
+  }
+
+  @Test
+  void devuelveLosTokensSinUsarAlLiberar() {
+    Bucket remoto = remoto(10);
+    LeasedBucket bucket = arrendado(remoto, 5, 5);
+
+    bucket.tryConsumeAndReturnRemaining(1);
+    assertThat(bucket.getLocales()).isEqualTo(5);
+    assertThat(remoto.getAvailableTokens()).isEqualTo(4);
+
+    bucket.liberar();
+    assertThat(bucket.getLocales()).isZero();
+    assertThat(remoto.getAvailableTokens()).isEqualTo(9);
+  }
+}
@@ -0,0 +1,63 @@
+package com.arojas.jce_consulta.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RateLimitModeTrackerTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void arrancaEnModoLocalSiRedisNoEstaYSeRecupera() {
+    AtomicBoolean redisDisponible = new AtomicBoolean(false);
+    ProxyManager<String> proxyManager = mock(ProxyManager.class);
+    AtomicInteger recuperaciones = new AtomicInteger();
+
+    RateLimitModeTracker modo = new RateLimitModeTracker(() -> {
+      if (!redisDisponible.get()) {
+        throw new IllegalStateException("sin conexión");
+      }
+      return proxyManager;
+    }, redisDisponible::get, meterRegistry);
+    modo.alRecuperar(recuperaciones::incrementAndGet);
+
+    assertThat(modo.isDistribuido()).isFalse();
+    assertThat(modo.health().getStatus()).isEqualTo(Status.UP);
+    assertThat(modo.health().getDetails()).containsEntry("modo", "local");
+
+    modo.sondear();
+    assertThat(modo.isDistribuido()).isFalse();
+
+    redisDisponible.set(true);
+    modo.sondear();
+    assertThat(modo.isDistribuido()).isTrue();
+    assertThat(modo.getProxyManager()).contains(proxyManager);
+    assertThat(recuperaciones).hasValue(1);
+    assertThat(meterRegistry.get("jce.ratelimit.modo").gauge().value()).isEqualTo(1.0);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void pasaAModoLocalAnteUnFallo() {
+    RateLimitModeTracker modo = new RateLimitModeTracker(() -> mock(ProxyManager.class), () -> true,
+        meterRegistry);
+    assertThat(modo.isDistribuido()).isTrue();
+
+    modo.registrarFallo(new IllegalStateException("timeout"));
+
+    assertThat(modo.isDistribuido()).isFalse();
+    assertThat(modo.health().getDetails()).containsEntry("modo", "local").containsKey("ultimoError");
+    assertThat(meterRegistry.get("jce.ratelimit.cambios_modo").tag("hacia", "local").counter().count())
+        .isEqualTo(1.0);
+  }
+}
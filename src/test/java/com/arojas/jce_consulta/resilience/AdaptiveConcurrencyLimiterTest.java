@@ -0,0 +1,97 @@
+package com.arojas.jce_consulta.resilience;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.arojas.jce_consulta.exceptions.ApiException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+class AdaptiveConcurrencyLimiterTest {
+
+  private final AtomicLong reloj = new AtomicLong();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private AdaptiveConcurrencyLimiter limitador(int inicial, int cola) {
+    return new AdaptiveConcurrencyLimiter("prueba", inicial, 1, 100, cola, Duration.ofMillis(200),
+        error -> error instanceof TimeoutException, meterRegistry, reloj::get);
+  }
+
+  @Test
+  void creceConLatenciaEstableYSeReduceAnteSobrecarga() {
+    AdaptiveConcurrencyLimiter limitador = limitador(4, 0);
+
+    for (int i = 0; i < 3; i++) {
+      Sinks.One<String> a = Sinks.one();
+      Sinks.One<String> b = Sinks.one();
+      Sinks.One<String> c = Sinks.one();
+      limitador.ejecutar(a::asMono).subscribe();
+      limitador.ejecutar(b::asMono).subscribe();
+      limitador.ejecutar(c::asMono).subscribe();
+      reloj.addAndGet(Duration.ofMillis(50).toNanos());
+      a.tryEmitValue("ok");
+      b.tryEmitValue("ok");
+      c.tryEmitValue("ok");
+    }
+    double limiteTrasExitos = limitador.getLimite();
+    assertThat(limiteTrasExitos).isGreaterThan(4);
+
+    StepVerifier.create(limitador.ejecutar(() -> Mono.error(new TimeoutException())))
+        .expectError(TimeoutException.class)
+        .verify();
+    assertThat(limitador.getLimite()).isLessThan(limiteTrasExitos);
+    assertThat(limitador.getEnCurso()).isZero();
+  }
+
+  @Test
+  void rechazaCuandoLaColaEstaLlena() {
+    AdaptiveConcurrencyLimiter limitador = limitador(1, 0);
+    Sinks.One<String> enCurso = Sinks.one();
+    limitador.ejecutar(enCurso::asMono).subscribe();
+
+    StepVerifier.create(limitador.ejecutar(() -> Mono.just("extra")))
+        .expectError(ApiException.class)
+        .verify();
+
+    enCurso.tryEmitValue("ok");
+    assertThat(limitador.getEnCurso()).isZero();
+  }
+
+  @Test
+  void atiendeLaColaAlLiberarUnPermiso() {
+    AdaptiveConcurrencyLimiter limitador = limitador(1, 5);
+    Sinks.One<String> enCurso = Sinks.one();
+    limitador.ejecutar(enCurso::asMono).subscribe();
+
+    Mono<String> encolada = limitador.ejecutar(() -> Mono.just("atendida"));
+    StepVerifier.create(encolada)
+        .then(() -> assertThat(limitador.getEnCola()).isEqualTo(1))
+        .then(() -> enCurso.tryEmitValue("ok"))
+        .expectNext("atendida")
+        .verifyComplete();
+
+    assertThat(limitador.getEnCola()).isZero();
+    assertThat(limitador.getEnCurso()).isZero();
+  }
+
+  @Test
+  void rechazaCuandoVenceLaEsperaEnCola() {
+    AdaptiveConcurrencyLimiter limitador = limitador(1, 5);
+    limitador.ejecutar(() -> Sinks.<String>one().asMono()).subscribe();
+
+    StepVerifier.create(limitador.ejecutar(() -> Mono.just("tarde")))
+        .expectError(ApiException.class)
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(limitador.getEnCola()).isZero();
+    assertThat(limitador.getEnCurso()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,131 @@
+package com.arojas.jce_consulta.resilience;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+class HedgingPolicyTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private HedgingPolicy politica(double ratioPresupuesto) {
+    TokenRatioBudget presupuesto = new TokenRatioBudget("cobertura", ratioPresupuesto, 0,
+        Duration.ofSeconds(10), meterRegistry);
+    HedgingPolicy politica = new HedgingPolicy(true, 90, 10, Duration.ofMillis(20), presupuesto, meterRegistry);
+    for (int i = 0; i < 10; i++) {
+      politica.registrar(Duration.ofMillis(1).toNanos());
+    }
+    return politica;
+  }
+
+  @Test
+  void usaLaCoberturaCuandoLaPrimariaTarda() {
+    HedgingPolicy politica = politica(1.0);
+    AtomicInteger llamadas = new AtomicInteger();
+
+    Mono<String> resultado = politica.ejecutar(
+        () -> llamadas.incrementAndGet() == 1 ? Mono.never() : Mono.just("cobertura"));
+
+    StepVerifier.create(resultado)
+        .expectNext("cobertura")
+        .verifyComplete();
+
+    assertThat(politica.getRetraso()).isEqualTo(Duration.ofMillis(20));
+    assertThat(llamadas).hasValue(2);
+    assertThat(meterRegistry.get("jce.cobertura.peticiones").tag("resultado", "ganadora").counter().count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void noCubreSinPresupuesto() {
+    HedgingPolicy politica = politica(0.0);
+    AtomicInteger llamadas = new AtomicInteger();
+
+    Mono<String> resultado = politica.ejecutar(
+        () -> Mono.just("primaria" + llamadas.incrementAndGet()).delayElement(Duration.ofMillis(100)));
+
+    StepVerifier.create(resultado)
+        .expectNext("primaria1")
+        .verifyComplete();
+
+    assertThat(llamadas).hasValue(1);
+    assertThat(meterRegistry.get("jce.cobertura.peticiones").tag("resultado", "descartada").counter().count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void esperaLaCoberturaSiLaPrimariaFallaDespuesDeLanzarla() {
+    HedgingPolicy politica = politica(1.0);
+    AtomicInteger llamadas = new AtomicInteger();
+
+    // La primaria falla en cuanto se lanza la cobertura, que responde después
+    Sinks.Empty<Void> coberturaLanzada = Sinks.empty();
+    Mono<String> resultado = politica.ejecutar(() -> llamadas.incrementAndGet() == 1
+        ? coberturaLanzada.asMono().then(Mono.<String>error(new IllegalStateException("primaria")))
+        : Mono.fromRunnable(coberturaLanzada::tryEmitEmpty)
+            .then(Mono.just("cobertura").delayElement(Duration.ofMillis(50))));
+
+    StepVerifier.create(resultado)
+        .expectNext("cobertura")
+        .verifyComplete();
+
+    assertThat(llamadas).hasValue(2);
+  }
+
+  @Test
+  void noLanzaLaCoberturaSiLaPrimariaFallaAntes() {
+    HedgingPolicy politica = politica(1.0);
+    AtomicInteger llamadas = new AtomicInteger();
+
+    Mono<String> resultado = politica.ejecutar(() -> {
+      llamadas.incrementAndGet();
+      return Mono.error(new IllegalStateException("primaria"));
+    });
+
+    StepVerifier.create(resultado)
+        .expectErrorMessage("primaria")
+        .verify(Duration.ofSeconds(1));
+
+    assertThat(llamadas).hasValue(1);
+    assertThat(meterRegistry.get("jce.cobertura.peticiones").tag("resultado", "lanzada").counter().count())
+        .isZero();
+  }
+
+  @Test
+  void propagaElErrorDeLaPrimariaSiAmbasFallan() {
+    HedgingPolicy politica = politica(1.0);
+    AtomicInteger llamadas = new AtomicInteger();
+
+    Sinks.Empty<Void> coberturaLanzada = Sinks.empty();
+    Mono<String> resultado = politica.ejecutar(() -> llamadas.incrementAndGet() == 1
+        ? coberturaLanzada.asMono().then(Mono.<String>error(new IllegalStateException("primaria")))
+        : Mono.fromRunnable(coberturaLanzada::tryEmitEmpty)
+            .then(Mono.<String>error(new IllegalStateException("cobertura")).delaySubscription(Duration.ofMillis(50))));
+
+    StepVerifier.create(resultado)
+        .expectErrorMessage("primaria")
+        .verify(Duration.ofSeconds(1));
+
+    assertThat(llamadas).hasValue(2);
+  }
+
+  @Test
+  void propagaElErrorDeLaPrimariaSinPresupuestoParaCubrir() {
+    HedgingPolicy politica = politica(0.0);
+
+    Mono<String> resultado = politica.ejecutar(
+        () -> Mono.<String>error(new IllegalStateException("primaria")).delaySubscription(Duration.ofMillis(40)));
+
+    StepVerifier.create(resultado)
+        .expectErrorMessage("primaria")
+        .verify(Duration.ofSeconds(1));
+  }
+}
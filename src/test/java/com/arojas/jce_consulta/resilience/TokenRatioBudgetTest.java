@@ -0,0 +1,61 @@
+package com.arojas.jce_consulta.resilience;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TokenRatioBudgetTest {
+
+  private final AtomicLong reloj = new AtomicLong();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  void limitaLosRetirosAlRatioDeLosDepositos() {
+    TokenRatioBudget presupuesto = new TokenRatioBudget("prueba", 0.2, 0, Duration.ofSeconds(10),
+        meterRegistry, reloj::get);
+
+    for (int i = 0; i < 10; i++) {
+      presupuesto.depositar();
+    }
+
+    assertThat(presupuesto.intentarRetirar()).isTrue();
+    assertThat(presupuesto.intentarRetirar()).isTrue();
+    assertThat(presupuesto.intentarRetirar()).isFalse();
+    assertThat(meterRegistry.get("jce.presupuesto.retiros").tag("resultado", "rechazado").counter().count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void permiteLaReservaMinimaSinTraficoPrimario() {
+    TokenRatioBudget presupuesto = new TokenRatioBudget("prueba", 0.1, 1, Duration.ofSeconds(3),
+        meterRegistry, reloj::get);
+
+    assertThat(presupuesto.intentarRetirar()).isTrue();
+    assertThat(presupuesto.intentarRetirar()).isTrue();
+    assertThat(presupuesto.intentarRetirar()).isTrue();
+    assertThat(presupuesto.intentarRetirar()).isFalse();
+  }
+
+  @Test
+  void olvidaLosRetirosQueSalenDeLaVentana() {
+    TokenRatioBudget presupuesto = new TokenRatioBudget("prueba", 0.5, 0, Duration.ofSeconds(10),
+        meterRegistry, reloj::get);
+
+    presupuesto.depositar();
+    presupuesto.depositar();
+    assertThat(presupuesto.intentarRetirar()).isTrue();
+    assertThat(presupuesto.intentarRetirar()).isFalse();
+
+    reloj.addAndGet(Duration.ofSeconds(11).toNanos());
+    assertThat(presupuesto.getDisponible()).isZero();
+
+    presupuesto.depositar();
+    presupuesto.depositar();
+    assertThat(presupuesto.intentarRetirar()).isTrue();
+  }
+}
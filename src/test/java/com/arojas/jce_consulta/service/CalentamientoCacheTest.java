@@ -0,0 +1,54 @@
+package com.arojas.jce_consulta.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+import com.arojas.jce_consulta.model.Cedula;
+
+class CalentamientoCacheTest {
+
+  private static final String LINEA = "2025-01-10 08:00:00.123 [] [] [] - " + CalentamientoCache.MARCA_CONSULTA;
+
+  private static long valor(String cedula) {
+    return Cedula.valorDe(cedula);
+  }
+
+  @Test
+  void leeLaListaSinDuplicadosNiLineasInvalidas() throws IOException {
+    String lista = """
+        # nómina
+        001-0000001-7
+        00100000017
+        40200000004,Juan Pérez
+
+        123
+        001-0000001-0
+        """;
+
+    var cedulas = CalentamientoCache.leerLista(new BufferedReader(new StringReader(lista)));
+
+    assertThat(cedulas).containsExactly(valor("001-0000001-7"), valor("40200000004"));
+  }
+
+  @Test
+  void ordenaLasCedulasDelLogPorFrecuencia() throws IOException {
+    String a = Cedula.aTextoLimpio(valor("001-0000001-7"));
+    String b = Cedula.aTextoLimpio(valor("40200000004"));
+    String c = Cedula.aTextoLimpio(valor("001-0000002-5"));
+    String log = String.join("\n",
+        LINEA + b, LINEA + a, LINEA + a, LINEA + c, LINEA + a, LINEA + b,
+        // Las consultas del precalentamiento solo dejan los mensajes del servicio
+        "2025-01-10 08:00:01.000 [] [] [] - 🔍 [SVC-1-1] Iniciando consulta para cédula: " + c,
+        "2025-01-10 08:00:01.000 [] [] [] - 🔍 [SVC-1-2] Iniciando consulta para cédula: " + c,
+        LINEA + "00100000010");
+
+    var top = CalentamientoCache.masConsultadas(new BufferedReader(new StringReader(log)), 2);
+
+    assertThat(top).containsExactly(valor(a), valor(b));
+  }
+}
@@ -0,0 +1,168 @@
+package com.arojas.jce_consulta.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.arojas.jce_consulta.DTOs.ConsultaLoteResponse;
+import com.arojas.jce_consulta.DTOs.ConsultaRequest;
+import com.arojas.jce_consulta.DTOs.ConsultaResponse;
+import com.arojas.jce_consulta.cache.CacheNegativo;
+import com.arojas.jce_consulta.cache.CodecCiudadano;
+import com.arojas.jce_consulta.cache.ConsultaCache;
+import com.arojas.jce_consulta.client.JceHttpClient;
+import com.arojas.jce_consulta.config.AppProperties;
+import com.arojas.jce_consulta.model.Individuo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+class JceConsultaServiceTest {
+
+  private static final String CEDULA_A = "00100000017";
+  private static final String CEDULA_B = "40200000004";
+  private static final String CEDULA_INVALIDA = "00100000010";
+  private static final int PREFETCH_FLUJO = 16;
+
+  private final JceHttpClient jceHttpClient = mock(JceHttpClient.class);
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private ConsultaCache consultaCache;
+  private JceConsultaService servicio;
+
+  @BeforeEach
+  void setUp() {
+    AppProperties appProperties = new AppProperties();
+    appProperties.getCache().setDistributedEnabled(false);
+    appProperties.getBatch().setStreamPrefetch(PREFETCH_FLUJO);
+
+    consultaCache = spy(new ConsultaCache(appProperties, null, new CodecCiudadano(false, 384),
+        meterRegistry, new ObjectMapper().registerModule(new JavaTimeModule()), Duration.ofSeconds(2)));
+    servicio = new JceConsultaService(jceHttpClient, consultaCache, new CacheNegativo(appProperties, meterRegistry),
+        appProperties, meterRegistry, "https://dataportal.jce.gob.do");
+  }
+
+  private static Individuo individuo(String nombres) {
+    Individuo individuo = new Individuo();
+    individuo.setNombres(nombres);
+    individuo.setApellido1("RODRIGUEZ");
+    individuo.setOcupacion("INGENIERO");
+    individuo.setPadre("CARLOS RODRIGUEZ");
+    individuo.setSuccess("true");
+    return individuo;
+  }
+
+  @Test
+  void laSegundaConsultaSeRespondeDesdeElCacheLocal() {
+    when(jceHttpClient.consultarCiudadano(CEDULA_A)).thenReturn(Mono.fromSupplier(() -> individuo("JUAN")));
+
+    ConsultaResponse primera = servicio.consultarCiudadano(CEDULA_A).block();
+    ConsultaResponse segunda = servicio.consultarCiudadano(CEDULA_A).block();
+
+    verify(jceHttpClient, times(1)).consultarCiudadano(CEDULA_A);
+    assertThat(segunda.datos()).isEqualTo(primera.datos());
+    assertThat(meterRegistry.get("jce.cache.aciertos").tag("nivel", "local").counter().count()).isEqualTo(1.0);
+    assertThat(meterRegistry.get("jce.cache.fallos").counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void unaConsultaBasicaYUnaCompletaConsultanUnaSolaVezAlPortal() {
+    when(jceHttpClient.consultarCiudadano(CEDULA_A)).thenReturn(Mono.fromSupplier(() -> individuo("JUAN")));
+
+    ConsultaResponse basica = servicio.consultarCiudadano(CEDULA_A, "basico").block();
+    ConsultaResponse completa = servicio.consultarCiudadano(CEDULA_A, "completo").block();
+
+    verify(jceHttpClient, times(1)).consultarCiudadano(CEDULA_A);
+    assertThat(basica.exitosa()).isTrue();
+    assertThat(basica.datos().nombres()).isEqualTo("JUAN");
+    assertThat(basica.datos().ocupacion()).isNull();
+    assertThat(basica.datos().padre()).isNull();
+    assertThat(completa.exitosa()).isTrue();
+    assertThat(completa.datos().nombres()).isEqualTo("JUAN");
+    assertThat(completa.datos().ocupacion()).isEqualTo("INGENIERO");
+    assertThat(completa.datos().padre()).isEqualTo("CARLOS RODRIGUEZ");
+  }
+
+  @Test
+  void lasConsultasConcurrentesLlenanElCacheUnaSolaVez() {
+    when(jceHttpClient.consultarCiudadano(CEDULA_A))
+        .thenReturn(Mono.fromSupplier(() -> individuo("JUAN")).delayElement(Duration.ofMillis(200)));
+
+    List<ConsultaResponse> respuestas = Flux.range(0, 16)
+        .flatMap(i -> servicio.consultarCiudadano(CEDULA_A, i % 2 == 0 ? "basico" : "completo")
+            .subscribeOn(Schedulers.parallel()))
+        .collectList()
+        .block(Duration.ofSeconds(5));
+
+    assertThat(respuestas).hasSize(16).allSatisfy(respuesta -> assertThat(respuesta.exitosa()).isTrue());
+    verify(jceHttpClient, times(1)).consultarCiudadano(CEDULA_A);
+    verify(consultaCache, times(1)).guardar(eq(CEDULA_A), any(Individuo.class));
+  }
+
+  @Test
+  void elLoteRespetaElOrdenYConsultaUnaVezCadaCedula() {
+    // A responde después que B, para que el orden de finalización difiera del de la petición
+    when(jceHttpClient.consultarCiudadano(CEDULA_A))
+        .thenReturn(Mono.fromSupplier(() -> individuo("JUAN")).delayElement(Duration.ofMillis(100)));
+    when(jceHttpClient.consultarCiudadano(CEDULA_B)).thenReturn(Mono.fromSupplier(() -> individuo("MARIA")));
+
+    List<ConsultaRequest> consultas = List.of(
+        new ConsultaRequest(CEDULA_A, false, "basico"),
+        new ConsultaRequest(CEDULA_B, false, "completo"),
+        new ConsultaRequest(CEDULA_A, false, "basico"),
+        new ConsultaRequest(CEDULA_INVALIDA, false, "completo"),
+        new ConsultaRequest(CEDULA_A, false, "completo"),
+        new ConsultaRequest(CEDULA_B, false, "completo"));
+
+    ConsultaLoteResponse lote = servicio.consultarLote(consultas).block(Duration.ofSeconds(5));
+
+    verify(jceHttpClient, times(1)).consultarCiudadano(CEDULA_A);
+    verify(jceHttpClient, times(1)).consultarCiudadano(CEDULA_B);
+    assertThat(lote.total()).isEqualTo(6);
+    assertThat(lote.unicas()).isEqualTo(4);
+    assertThat(lote.exitosas()).isEqualTo(5);
+    assertThat(lote.resultados()).extracting(ConsultaResponse::cedulaConsultada)
+        .containsExactly("001-0000001-7", "402-0000000-4", "001-0000001-7", "001-0000001-0", "001-0000001-7",
+            "402-0000000-4");
+    assertThat(lote.resultados())
+        .extracting(respuesta -> respuesta.datos() != null ? respuesta.datos().nombres() : null)
+        .containsExactly("JUAN", "MARIA", "JUAN", null, "JUAN", "MARIA");
+    assertThat(lote.resultados().get(0).datos().ocupacion()).isNull();
+    assertThat(lote.resultados().get(3).exitosa()).isFalse();
+    assertThat(lote.resultados().get(4).datos().ocupacion()).isEqualTo("INGENIERO");
+  }
+
+  @Test
+  void elFlujoPideEnTandasYConvierteLosErroresEnRespuestas() {
+    when(jceHttpClient.consultarCiudadano(CEDULA_B)).thenReturn(Mono.fromSupplier(() -> individuo("MARIA")));
+    AtomicLong mayorPedido = new AtomicLong();
+
+    Flux<ConsultaRequest> consultas = Flux.range(0, 200)
+        .map(i -> new ConsultaRequest(i % 50 == 0 ? CEDULA_INVALIDA : CEDULA_B, false, "basico"))
+        .doOnRequest(pedido -> mayorPedido.accumulateAndGet(pedido, Math::max));
+
+    List<ConsultaResponse> respuestas = servicio.consultarFlujo(consultas)
+        .collectList()
+        .block(Duration.ofSeconds(5));
+
+    assertThat(mayorPedido).hasValueLessThanOrEqualTo(PREFETCH_FLUJO);
+    assertThat(respuestas).hasSize(200);
+    assertThat(respuestas).filteredOn(respuesta -> !respuesta.exitosa()).hasSize(4)
+        .allSatisfy(respuesta -> assertThat(respuesta.cedulaConsultada()).isEqualTo("001-0000001-0"));
+  }
+}